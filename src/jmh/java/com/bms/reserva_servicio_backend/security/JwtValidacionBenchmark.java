@@ -0,0 +1,126 @@
+package com.bms.reserva_servicio_backend.security;
+
+import static com.bms.reserva_servicio_backend.security.TokenJWTConfig.HEADER_AUTHORIZATION;
+import static com.bms.reserva_servicio_backend.security.TokenJWTConfig.PREFIX_TOKEN;
+import static com.bms.reserva_servicio_backend.security.TokenJWTConfig.SECRET_KEY;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.bms.reserva_servicio_backend.security.filter.JwtValidationFilter;
+
+import io.jsonwebtoken.Jwts;
+import jakarta.servlet.FilterChain;
+
+/**
+ * Requests por segundo a través de JwtValidationFilter (el filtro real, con su
+ * CacheTokensVerificados):
+ *
+ * - tokenRepetido: siempre el mismo token, que queda en la caché después del
+ *   primer request.
+ * - tokenNuevo: recorre más tokens distintos de los que caben en la caché, así
+ *   cada request verifica la firma, parsea los claims y guarda la entrada.
+ *
+ * Ejecutar con:
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="JwtValidacionBenchmark"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class JwtValidacionBenchmark {
+
+    // Más que MAX_TOKENS_EN_CACHE del filtro: ningún token distinto se encuentra en la caché
+    private static final int TOKENS_DISTINTOS = 40_000;
+
+    private static final AuthenticationManager SIN_AUTENTICACION = autenticacion -> {
+        throw new UnsupportedOperationException();
+    };
+
+    @State(Scope.Benchmark)
+    public static class Filtro {
+
+        JwtValidationFilter filtro;
+        String tokenRepetido;
+        String[] tokensDistintos;
+
+        @Setup
+        public void crear() {
+            filtro = new JwtValidationFilter(SIN_AUTENTICACION);
+            Date expiracion = new Date(System.currentTimeMillis() + 3600000);
+            tokenRepetido = token("benchmark", expiracion);
+            tokensDistintos = new String[TOKENS_DISTINTOS];
+            for (int i = 0; i < TOKENS_DISTINTOS; i++) {
+                tokensDistintos[i] = token("benchmark-" + i, expiracion);
+            }
+        }
+
+        private static String token(String usuario, Date expiracion) {
+            return Jwts.builder()
+                    .subject(usuario)
+                    .claim("roles", new String[] { "ROLE_USER", "ROLE_ADMIN" })
+                    .expiration(expiracion)
+                    .signWith(SECRET_KEY)
+                    .compact();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Posicion {
+
+        int siguiente;
+
+        @Setup
+        public void inicio() {
+            // Cada hilo empieza en otra parte de la lista
+            siguiente = (int) (Thread.currentThread().getId() * 7919 % TOKENS_DISTINTOS);
+        }
+    }
+
+    @Benchmark
+    public Authentication tokenRepetido(Filtro estado) throws Exception {
+        return filtrar(estado.filtro, estado.tokenRepetido);
+    }
+
+    @Benchmark
+    public Authentication tokenNuevo(Filtro estado, Posicion posicion) throws Exception {
+        String token = estado.tokensDistintos[posicion.siguiente];
+        posicion.siguiente = (posicion.siguiente + 1) % TOKENS_DISTINTOS;
+        return filtrar(estado.filtro, token);
+    }
+
+    private static Authentication filtrar(JwtValidationFilter filtro, String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/reservas");
+        request.addHeader(HEADER_AUTHORIZATION, PREFIX_TOKEN + token);
+        Authentication[] resultado = new Authentication[1];
+        FilterChain cadena = (req, res) -> resultado[0] = SecurityContextHolder.getContext().getAuthentication();
+        try {
+            filtro.doFilter(request, new MockHttpServletResponse(), cadena);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        if (resultado[0] == null) {
+            throw new IllegalStateException("El filtro no autenticó el request");
+        }
+        return resultado[0];
+    }
+}
@@ -0,0 +1,55 @@
+package com.bms.reserva_servicio_backend.config;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.bms.reserva_servicio_backend.config.CacheCatalogoRegionFactory.Almacen;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Publica en /actuator/metrics las estadísticas de la caché de segundo nivel
+ * del catálogo: cache.gets (tag result=hit/miss), cache.puts, cache.evictions y
+ * cache.size, con el tag "cache" igual al nombre de la región.
+ */
+@Component
+public class CacheCatalogoMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public CacheCatalogoMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Las regiones existen una vez construido el EntityManagerFactory
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void registrarMetricas() {
+        CacheCatalogoRegionFactory.regiones().forEach((region, almacen) -> {
+            FunctionCounter.builder("cache.gets", almacen, Almacen::aciertos)
+                    .description("Lecturas de la caché de segundo nivel")
+                    .tags("cache", region, "result", "hit")
+                    .register(meterRegistry);
+            FunctionCounter.builder("cache.gets", almacen, Almacen::fallos)
+                    .description("Lecturas de la caché de segundo nivel")
+                    .tags("cache", region, "result", "miss")
+                    .register(meterRegistry);
+            FunctionCounter.builder("cache.puts", almacen, Almacen::escrituras)
+                    .description("Entradas agregadas a la caché de segundo nivel")
+                    .tag("cache", region)
+                    .register(meterRegistry);
+            FunctionCounter.builder("cache.evictions", almacen, Almacen::desalojos)
+                    .description("Entradas descartadas por superar el tamaño máximo")
+                    .tag("cache", region)
+                    .register(meterRegistry);
+            Gauge.builder("cache.size", almacen, Almacen::tamano)
+                    .description("Entradas en la región")
+                    .tag("cache", region)
+                    .register(meterRegistry);
+        });
+    }
+}
@@ -0,0 +1,170 @@
+package com.bms.reserva_servicio_backend.config;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+/**
+ * Caché de segundo nivel de Hibernate en memoria local, usada para el catálogo
+ * (recursos, sus imágenes e items de inventario).
+ *
+ * Cada región es un mapa LRU acotado a hibernate.cache.catalogo.max_entradas
+ * entradas. La concurrencia (READ_WRITE) la resuelve Hibernate sobre este
+ * almacenamiento; aquí solo se guardan los datos y se cuentan aciertos, fallos,
+ * escrituras y desalojos para CacheCatalogoMetrics.
+ */
+public class CacheCatalogoRegionFactory extends RegionFactoryTemplate {
+
+    public static final String MAX_ENTRADAS = "hibernate.cache.catalogo.max_entradas";
+
+    private static final int MAX_ENTRADAS_POR_DEFECTO = 10_000;
+
+    // Hibernate instancia la fábrica por su cuenta: las regiones se exponen de forma estática
+    private static final Map<String, Almacen> REGIONES = new ConcurrentHashMap<>();
+
+    private int maxEntradas = MAX_ENTRADAS_POR_DEFECTO;
+
+    public static Map<String, Almacen> regiones() {
+        return Collections.unmodifiableMap(REGIONES);
+    }
+
+    @Override
+    protected void prepareForUse(SessionFactoryOptions settings, Map<String, Object> configValues) {
+        Object valor = configValues.get(MAX_ENTRADAS);
+        if (valor != null) {
+            maxEntradas = Integer.parseInt(valor.toString());
+        }
+    }
+
+    @Override
+    protected void releaseFromUse() {
+        REGIONES.values().forEach(Almacen::release);
+        REGIONES.clear();
+    }
+
+    @Override
+    protected DomainDataStorageAccess createDomainDataStorageAccess(DomainDataRegionConfig regionConfig,
+            DomainDataRegionBuildingContext buildingContext) {
+        return registrar(regionConfig.getRegionName(), maxEntradas);
+    }
+
+    @Override
+    protected StorageAccess createQueryResultsRegionStorageAccess(String regionName,
+            SessionFactoryImplementor sessionFactory) {
+        return registrar(regionName, maxEntradas);
+    }
+
+    @Override
+    protected StorageAccess createTimestampsRegionStorageAccess(String regionName,
+            SessionFactoryImplementor sessionFactory) {
+        // Los timestamps no se descartan por tamaño: invalidan los resultados de consultas
+        return registrar(regionName, Integer.MAX_VALUE);
+    }
+
+    private static Almacen registrar(String region, int maxEntradas) {
+        return REGIONES.computeIfAbsent(region, r -> new Almacen(maxEntradas));
+    }
+
+    /**
+     * Almacenamiento de una región: LinkedHashMap en orden de acceso que descarta
+     * la entrada usada hace más tiempo al superar el máximo.
+     */
+    public static final class Almacen implements DomainDataStorageAccess {
+
+        private final Map<Object, Object> datos;
+        private final LongAdder aciertos = new LongAdder();
+        private final LongAdder fallos = new LongAdder();
+        private final LongAdder escrituras = new LongAdder();
+        private final LongAdder desalojos = new LongAdder();
+
+        private Almacen(int maxEntradas) {
+            this.datos = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Object, Object> mayor) {
+                    if (size() > maxEntradas) {
+                        desalojos.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        @Override
+        public Object getFromCache(Object key, SharedSessionContractImplementor session) {
+            Object valor;
+            synchronized (datos) {
+                valor = datos.get(key);
+            }
+            (valor != null ? aciertos : fallos).increment();
+            return valor;
+        }
+
+        @Override
+        public void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+            synchronized (datos) {
+                datos.put(key, value);
+            }
+            escrituras.increment();
+        }
+
+        @Override
+        public boolean contains(Object key) {
+            synchronized (datos) {
+                return datos.containsKey(key);
+            }
+        }
+
+        @Override
+        public void evictData() {
+            synchronized (datos) {
+                datos.clear();
+            }
+        }
+
+        @Override
+        public void evictData(Object key) {
+            synchronized (datos) {
+                datos.remove(key);
+            }
+        }
+
+        @Override
+        public void release() {
+            evictData();
+        }
+
+        public int tamano() {
+            synchronized (datos) {
+                return datos.size();
+            }
+        }
+
+        public long aciertos() {
+            return aciertos.sum();
+        }
+
+        public long fallos() {
+            return fallos.sum();
+        }
+
+        public long escrituras() {
+            return escrituras.sum();
+        }
+
+        public long desalojos() {
+            return desalojos.sum();
+        }
+    }
+}
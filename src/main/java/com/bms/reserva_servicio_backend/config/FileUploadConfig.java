@@ -1,25 +1,44 @@
 package com.bms.reserva_servicio_backend.config;
 
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.lang.NonNull;
-import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
-import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.handler.SimpleUrlHandlerMapping;
 
 @Configuration
-public class FileUploadConfig implements WebMvcConfigurer {
+public class FileUploadConfig {
 
-    @Value("${app.upload.dir:uploads/recursos}")
-    private String uploadDir;
-
-    @Override
-    public void addResourceHandlers(@NonNull ResourceHandlerRegistry registry) {
-        Path uploadPath = Paths.get(uploadDir).toAbsolutePath().normalize();
+    /**
+     * Las imágenes subidas las sirve ImagenesRequestHandler (caché, rangos y
+     * sendfile) en lugar del manejador de recursos estáticos
+     */
+    @Bean
+    SimpleUrlHandlerMapping imagenesHandlerMapping(ImagenesRequestHandler imagenesRequestHandler) {
+        SimpleUrlHandlerMapping mapping = new SimpleUrlHandlerMapping(
+                Map.of("/uploads/recursos/**", imagenesRequestHandler));
+        mapping.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return mapping;
+    }
 
-        registry.addResourceHandler("/uploads/recursos/**")
-                .addResourceLocations("file:" + uploadPath.toString() + "/");
+    /**
+     * Pool acotado para escribir en paralelo los archivos de una carga múltiple.
+     * Con la cola llena el propio hilo del request escribe el archivo.
+     */
+    @Bean
+    ThreadPoolTaskExecutor escrituraImagenesExecutor(@Value("${app.upload.escritura.hilos:4}") int hilos,
+            @Value("${app.upload.escritura.capacidad-cola:100}") int capacidadCola) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(capacidadCola);
+        executor.setThreadNamePrefix("escritura-imagen-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
     }
 }
@@ -0,0 +1,229 @@
+package com.bms.reserva_servicio_backend.config;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.HttpRequestHandler;
+import org.springframework.web.servlet.HandlerMapping;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Sirve los archivos de /uploads/recursos/**.
+ *
+ * - Los archivos con nombre por contenido ({sha256}[-ancho].ext) nunca cambian:
+ *   se sirven con Cache-Control immutable de un año y ETag fuerte. Si el cliente
+ *   acepta AVIF o WebP y existe {nombre}.avif / {nombre}.webp junto al archivo,
+ *   se sirve esa versión (Vary: Accept).
+ * - Los archivos antiguos (nombre UUID) se sirven con max-age de una hora y ETag
+ *   débil por tamaño y fecha.
+ * - If-None-Match responde 304; Range (un solo rango, con If-Range) responde 206.
+ * - El cuerpo se envía con sendfile de Tomcat cuando está disponible, o con
+ *   FileChannel.transferTo, sin pasar por buffers de la aplicación.
+ */
+@Component
+public class ImagenesRequestHandler implements HttpRequestHandler {
+
+    private static final Pattern NOMBRE_VALIDO = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]*");
+    private static final Pattern NOMBRE_POR_CONTENIDO = Pattern.compile("([0-9a-f]{64}(?:-\\d+)?)\\.[a-z0-9]{1,5}");
+    private static final Pattern RANGO = Pattern.compile("bytes=(\\d*)-(\\d*)");
+
+    private static final String CACHE_INMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic()
+            .immutable().getHeaderValue();
+    private static final String CACHE_ANTIGUOS = CacheControl.maxAge(Duration.ofHours(1)).cachePublic()
+            .getHeaderValue();
+
+    // Formatos alternativos en orden de preferencia
+    private static final Map<String, MediaType> ALTERNATIVOS = Map.of(
+            "avif", MediaType.parseMediaType("image/avif"),
+            "webp", MediaType.parseMediaType("image/webp"));
+    private static final List<String> ORDEN_ALTERNATIVOS = List.of("avif", "webp");
+
+    // Atributos de Tomcat para enviar el archivo con sendfile
+    private static final String SENDFILE_SOPORTADO = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_ARCHIVO = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_INICIO = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_FIN = "org.apache.tomcat.sendfile.end";
+    // Bajo este tamaño es más rápido escribir directamente (mismo umbral que el DefaultServlet de Tomcat)
+    private static final long SENDFILE_TAMANO_MINIMO = 48 * 1024;
+
+    private final Path directorio;
+
+    public ImagenesRequestHandler(@Value("${app.upload.dir:uploads/recursos}") String uploadDir) {
+        this.directorio = Paths.get(uploadDir).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public void handleRequest(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response)
+            throws IOException {
+        boolean head = "HEAD".equals(request.getMethod());
+        if (!head && !"GET".equals(request.getMethod())) {
+            response.setHeader(HttpHeaders.ALLOW, "GET, HEAD");
+            response.sendError(HttpStatus.METHOD_NOT_ALLOWED.value());
+            return;
+        }
+
+        String nombre = (String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
+        if (nombre == null || !NOMBRE_VALIDO.matcher(nombre).matches() || nombre.contains("..")) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        Matcher porContenido = NOMBRE_POR_CONTENIDO.matcher(nombre);
+        boolean inmutable = porContenido.matches();
+        Path archivo = directorio.resolve(nombre);
+        MediaType tipo = tipoDe(nombre);
+
+        if (inmutable) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            String base = porContenido.group(1);
+            for (String formato : ORDEN_ALTERNATIVOS) {
+                Path alternativo = directorio.resolve(base + "." + formato);
+                if (acepta(request, ALTERNATIVOS.get(formato)) && Files.isRegularFile(alternativo)) {
+                    archivo = alternativo;
+                    tipo = ALTERNATIVOS.get(formato);
+                    break;
+                }
+            }
+        }
+
+        if (!Files.isRegularFile(archivo)) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        long largo = Files.size(archivo);
+        long modificado = Files.getLastModifiedTime(archivo).toMillis();
+        String etag = inmutable
+                ? "\"" + archivo.getFileName() + "\""
+                : "W/\"" + Long.toHexString(largo) + "-" + Long.toHexString(modificado) + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, inmutable ? CACHE_INMUTABLE : CACHE_ANTIGUOS);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, modificado);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (coincideEtag(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        long inicio = 0;
+        long fin = largo - 1;
+        String rango = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (rango != null && largo > 0 && (ifRange == null || coincideIfRange(ifRange, etag))) {
+            Matcher m = RANGO.matcher(rango.trim());
+            // Varios rangos o unidades desconocidas: se ignora el Range y se envía completo
+            if (m.matches() && !(m.group(1).isEmpty() && m.group(2).isEmpty())) {
+                boolean valido = true;
+                try {
+                    if (m.group(1).isEmpty()) {
+                        inicio = Math.max(0, largo - Long.parseLong(m.group(2)));
+                    } else {
+                        inicio = Long.parseLong(m.group(1));
+                        if (!m.group(2).isEmpty()) {
+                            fin = Math.min(fin, Long.parseLong(m.group(2)));
+                        }
+                    }
+                } catch (NumberFormatException e) {
+                    // Posiciones que no caben en un long
+                    valido = false;
+                }
+                if (!valido || inicio >= largo || inicio > fin) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + largo);
+                    response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    return;
+                }
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + inicio + "-" + fin + "/" + largo);
+            }
+        }
+
+        long cantidad = largo == 0 ? 0 : fin - inicio + 1;
+        response.setContentType(tipo.toString());
+        response.setContentLengthLong(cantidad);
+        if (head || cantidad == 0) {
+            return;
+        }
+
+        if (cantidad >= SENDFILE_TAMANO_MINIMO && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SOPORTADO))) {
+            request.setAttribute(SENDFILE_ARCHIVO, archivo.toRealPath().toString());
+            request.setAttribute(SENDFILE_INICIO, inicio);
+            request.setAttribute(SENDFILE_FIN, fin + 1);
+            return;
+        }
+
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            WritableByteChannel salida = Channels.newChannel(response.getOutputStream());
+            long enviado = 0;
+            while (enviado < cantidad) {
+                enviado += canal.transferTo(inicio + enviado, cantidad - enviado, salida);
+            }
+        }
+    }
+
+    private static MediaType tipoDe(String nombre) {
+        String extension = nombre.substring(nombre.lastIndexOf('.') + 1);
+        MediaType alternativo = ALTERNATIVOS.get(extension);
+        if (alternativo != null) {
+            return alternativo;
+        }
+        return MediaTypeFactory.getMediaType(nombre).orElse(MediaType.APPLICATION_OCTET_STREAM);
+    }
+
+    // Solo si el cliente declara el tipo explícitamente: los comodines no cuentan
+    private static boolean acepta(HttpServletRequest request, MediaType tipo) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null) {
+            return false;
+        }
+        try {
+            return MediaType.parseMediaTypes(accept).stream()
+                    .anyMatch(m -> m.equalsTypeAndSubtype(tipo) && m.getQualityValue() > 0);
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    // If-Range usa comparación fuerte: una ETag débil nunca coincide (RFC 9110, 13.1.5)
+    private static boolean coincideIfRange(String ifRange, String etag) {
+        String valor = ifRange.trim();
+        return !valor.startsWith("W/") && !etag.startsWith("W/") && valor.equals(etag);
+    }
+
+    private static boolean coincideEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String sinDebil = etag.startsWith("W/") ? etag.substring(2) : etag;
+        for (String candidato : ifNoneMatch.split(",")) {
+            String valor = candidato.trim();
+            if (valor.equals("*") || (valor.startsWith("W/") ? valor.substring(2) : valor).equals(sinDebil)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,8 +1,11 @@
 package com.bms.reserva_servicio_backend.config;
 
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -15,17 +18,23 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.filter.CorsFilter;
 
+import com.bms.reserva_servicio_backend.security.PasswordEncoderAcotado;
 import com.bms.reserva_servicio_backend.security.filter.JwtAuthenticationFilter;
 import com.bms.reserva_servicio_backend.security.filter.JwtValidationFilter;
+import com.bms.reserva_servicio_backend.service.RegistroUltimoAccesoService;
 import com.bms.reserva_servicio_backend.service.UserService;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 @Configuration
 @EnableMethodSecurity(prePostEnabled = true)
 public class SpringSecurityConfig {
@@ -34,9 +43,11 @@ public class SpringSecurityConfig {
     private AuthenticationConfiguration authenticationConfiguration;
 
     private final UserService userService;
+    private final RegistroUltimoAccesoService registroUltimoAcceso;
 
-    public SpringSecurityConfig(@Lazy UserService userService) {
+    public SpringSecurityConfig(@Lazy UserService userService, RegistroUltimoAccesoService registroUltimoAcceso) {
         this.userService = userService;
+        this.registroUltimoAcceso = registroUltimoAcceso;
     }
 
     @Bean
@@ -44,9 +55,32 @@ public class SpringSecurityConfig {
         return authenticationConfiguration.getAuthenticationManager();
     }
 
+    /**
+     * Los hashes se guardan con prefijo {algoritmo}; los antiguos sin prefijo son
+     * BCrypt. Al iniciar sesión, un hash con otro algoritmo o con menor costo que
+     * el configurado se recodifica (JpaUsersDetailsService.updatePassword).
+     */
     @Bean
-    PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    PasswordEncoder passwordEncoder(MeterRegistry meterRegistry,
+            @Value("${app.seguridad.password.algoritmo:bcrypt}") String algoritmo,
+            @Value("${app.seguridad.password.bcrypt-costo:10}") int bcryptCosto,
+            @Value("${app.seguridad.password.hilos:0}") int hilos,
+            @Value("${app.seguridad.password.capacidad-cola:50}") int capacidadCola,
+            @Value("${app.seguridad.password.espera-maxima-ms:3000}") long esperaMaximaMs) {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptCosto);
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", bcrypt);
+        encoders.put("pbkdf2", Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+        if (!encoders.containsKey(algoritmo)) {
+            throw new IllegalArgumentException("Algoritmo de contraseña no soportado: " + algoritmo);
+        }
+
+        DelegatingPasswordEncoder delegado = new DelegatingPasswordEncoder(algoritmo, encoders);
+        delegado.setDefaultPasswordEncoderForMatches(bcrypt);
+
+        // Por defecto la mitad de los núcleos: el resto queda para los demás endpoints
+        int hilosPool = hilos > 0 ? hilos : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new PasswordEncoderAcotado(delegado, hilosPool, capacidadCola, esperaMaximaMs, meterRegistry);
     }
 
     @Bean
@@ -93,6 +127,8 @@ public class SpringSecurityConfig {
 
                         // Ver TODAS las reservas (lista) - Solo ADMIN
                         .requestMatchers(HttpMethod.GET, "/api/reservas").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.GET, "/api/reservas/paginado").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.GET, "/api/reservas/pagina").hasRole("ADMIN")
 
                         // Crear reservas - Cualquier usuario autenticado (USER o ADMIN)
                         .requestMatchers(HttpMethod.POST, "/api/reservas/cabana").hasAnyRole("USER", "ADMIN")
@@ -204,7 +240,7 @@ public class SpringSecurityConfig {
 
                         .anyRequest().authenticated()
                 )
-                .addFilter(new JwtAuthenticationFilter(authenticationManager(), userService))
+                .addFilter(new JwtAuthenticationFilter(authenticationManager(), userService, registroUltimoAcceso))
                 .addFilter(new JwtValidationFilter(authenticationManager()))
                 .csrf(csrf -> csrf.disable())
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
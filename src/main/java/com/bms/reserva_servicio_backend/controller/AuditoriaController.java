@@ -8,6 +8,12 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import com.bms.reserva_servicio_backend.models.HallazgoAuditoria;
+import com.bms.reserva_servicio_backend.models.HallazgoAuditoria.TipoHallazgo;
+import com.bms.reserva_servicio_backend.repository.HallazgoAuditoriaRepository;
+import com.bms.reserva_servicio_backend.service.AuditoriaSchedulerService;
+import com.bms.reserva_servicio_backend.service.AuditoriaStockService;
+
 import java.util.*;
 
 @RestController
@@ -18,6 +24,39 @@ public class AuditoriaController {
     @Autowired
     private EntityManager entityManager;
 
+    @Autowired
+    private AuditoriaStockService auditoriaStock;
+
+    @Autowired
+    private AuditoriaSchedulerService auditoriaScheduler;
+
+    @Autowired
+    private HallazgoAuditoriaRepository hallazgoRepository;
+
+    /**
+     * Ejecutar la auditoría de integridad programada a pedido. Por defecto es
+     * incremental (desde la última ejecución); con completa=true revisa todo.
+     * Los hallazgos quedan en GET /api/auditoria/hallazgos.
+     */
+    @PostMapping("/integridad")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<AuditoriaSchedulerService.ResultadoAuditoria> ejecutarAuditoriaIntegridad(
+            @RequestParam(defaultValue = "false") boolean completa) {
+        return ResponseEntity.ok(auditoriaScheduler.ejecutar(completa));
+    }
+
+    /**
+     * Hallazgos abiertos de la auditoría de integridad, opcionalmente de un tipo
+     */
+    @GetMapping("/hallazgos")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<HallazgoAuditoria>> listarHallazgos(
+            @RequestParam(required = false) TipoHallazgo tipo) {
+        return ResponseEntity.ok(tipo != null
+                ? hallazgoRepository.findByTipoAndResueltoEnIsNullOrderByEntidadIdAsc(tipo)
+                : hallazgoRepository.findByResueltoEnIsNullOrderByTipoAscEntidadIdAsc());
+    }
+
     @GetMapping("/completa")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Map<String, Object>> ejecutarAuditoriaCompleta() {
@@ -99,55 +138,20 @@ public class AuditoriaController {
     }
 
     @PostMapping("/recalcular-stock")
-    @Transactional
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Map<String, Object>> recalcularStock() {
         Map<String, Object> resultado = new LinkedHashMap<>();
 
         try {
-            // 1. Ver estado antes de la corrección
-            List<Map<String, Object>> stockAntes = auditarStock();
-            resultado.put("items_inconsistentes_antes", stockAntes.size());
-
-            // 2. Recalcular stock de todos los items
-            String sql = """
-                UPDATE items_inventario ii
-                SET cantidad_disponible = cantidad_total - (
-                    SELECT COALESCE(SUM(ir.cantidad), 0)
-                    FROM items_reservados ir
-                    JOIN reservas r ON ir.reserva_id = r.id
-                    WHERE ir.item_id = ii.id
-                    AND r.estado IN ('PENDIENTE', 'CONFIRMADA', 'EN_CURSO')
-                )
-                """;
-
-            int actualizados = entityManager.createNativeQuery(sql).executeUpdate();
-            resultado.put("items_actualizados", actualizados);
-
-            // 3. Verificar que todos quedaron correctos
-            List<Map<String, Object>> stockDespues = auditarStock();
-            resultado.put("items_inconsistentes_despues", stockDespues.size());
-            resultado.put("exito", stockDespues.isEmpty());
-
-            // 4. Detalles de items corregidos
-            String sqlDetalle = """
-                SELECT
-                    ii.id,
-                    ii.nombre,
-                    r.nombre as recurso,
-                    ii.cantidad_total,
-                    ii.cantidad_disponible,
-                    (SELECT COALESCE(SUM(ir.cantidad), 0)
-                     FROM items_reservados ir
-                     JOIN reservas res ON ir.reserva_id = res.id
-                     WHERE ir.item_id = ii.id
-                     AND res.estado IN ('PENDIENTE', 'CONFIRMADA', 'EN_CURSO')) as cantidad_reservada
-                FROM items_inventario ii
-                JOIN recursos r ON ii.recurso_id = r.id
-                ORDER BY ii.id
-                """;
-
-            resultado.put("stock_actualizado", ejecutarQuery(sqlDetalle));
+            // Corrección por lotes, cada uno en su propia transacción
+            AuditoriaStockService.ResultadoCorreccion correccion = auditoriaStock.corregir();
+            resultado.put("items_inconsistentes_antes", correccion.inconsistentesAntes());
+            resultado.put("items_actualizados", correccion.corregidos());
+            resultado.put("items_inconsistentes_despues", correccion.inconsistentesDespues());
+            resultado.put("exito", correccion.inconsistentesDespues() == 0);
+
+            // Detalles del stock de todos los items, del mismo agregado que la corrección
+            resultado.put("stock_actualizado", aColumnas(correccion.stockPorItem()));
 
             return ResponseEntity.ok(resultado);
 
@@ -189,39 +193,9 @@ public class AuditoriaController {
     }
 
     private List<Map<String, Object>> auditarStock() {
-        String sql = """
-            SELECT
-                ii.id,
-                ii.nombre,
-                r.nombre as recurso,
-                ii.cantidad_total,
-                ii.cantidad_disponible as stock_actual,
-                (SELECT COALESCE(SUM(ir.cantidad), 0)
-                 FROM items_reservados ir
-                 JOIN reservas res ON ir.reserva_id = res.id
-                 WHERE ir.item_id = ii.id
-                 AND res.estado IN ('PENDIENTE', 'CONFIRMADA', 'EN_CURSO')) as cantidad_reservada,
-                ii.cantidad_total - (SELECT COALESCE(SUM(ir.cantidad), 0)
-                                     FROM items_reservados ir
-                                     JOIN reservas res ON ir.reserva_id = res.id
-                                     WHERE ir.item_id = ii.id
-                                     AND res.estado IN ('PENDIENTE', 'CONFIRMADA', 'EN_CURSO')) as stock_esperado,
-                CASE
-                    WHEN ii.cantidad_disponible = (ii.cantidad_total - (SELECT COALESCE(SUM(ir.cantidad), 0)
-                                                                        FROM items_reservados ir
-                                                                        JOIN reservas res ON ir.reserva_id = res.id
-                                                                        WHERE ir.item_id = ii.id
-                                                                        AND res.estado IN ('PENDIENTE', 'CONFIRMADA', 'EN_CURSO')))
-                    THEN 'CORRECTO'
-                    ELSE 'INCONSISTENTE'
-                END as validacion_stock
-            FROM items_inventario ii
-            JOIN recursos r ON ii.recurso_id = r.id
-            HAVING validacion_stock = 'INCONSISTENTE'
-            ORDER BY ii.id
-            """;
-
-        return ejecutarQuery(sql);
+        List<Map<String, Object>> inconsistentes = aColumnas(auditoriaStock.detalleInconsistencias(null));
+        inconsistentes.forEach(fila -> fila.put("col_" + fila.size(), "INCONSISTENTE"));
+        return inconsistentes;
     }
 
     private List<Map<String, Object>> auditarReservasFinalizadas() {
@@ -363,6 +337,21 @@ public class AuditoriaController {
         return ejecutarQuery(sql);
     }
 
+    /**
+     * Mismo formato de ejecutarQuery (col_0, col_1, ...) para filas con nombre
+     */
+    private List<Map<String, Object>> aColumnas(List<Map<String, Object>> filas) {
+        List<Map<String, Object>> mappedResults = new ArrayList<>();
+        for (Map<String, Object> fila : filas) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (Object valor : fila.values()) {
+                map.put("col_" + map.size(), valor);
+            }
+            mappedResults.add(map);
+        }
+        return mappedResults;
+    }
+
     @SuppressWarnings("unchecked")
     private List<Map<String, Object>> ejecutarQuery(String sql) {
         Query query = entityManager.createNativeQuery(sql);
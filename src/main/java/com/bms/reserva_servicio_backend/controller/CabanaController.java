@@ -5,6 +5,7 @@ import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -17,14 +18,17 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import com.bms.reserva_servicio_backend.models.ItemsInventario;
 import com.bms.reserva_servicio_backend.request.CabanaRequest;
 import com.bms.reserva_servicio_backend.response.CabanaResponse;
 import com.bms.reserva_servicio_backend.response.ItemInventarioResponse;
+import com.bms.reserva_servicio_backend.response.PaginaResponse;
 import com.bms.reserva_servicio_backend.response.SuccessResponse;
 import com.bms.reserva_servicio_backend.service.CabanaService;
 import com.bms.reserva_servicio_backend.service.InventarioService;
+import com.bms.reserva_servicio_backend.service.VersionRecursosService;
 
 import jakarta.validation.Valid;
 
@@ -39,6 +43,9 @@ public class CabanaController {
     @Autowired
     private InventarioService inventarioService;
 
+    @Autowired
+    private VersionRecursosService versionRecursos;
+
     /**
      * POST /api/cabanas
      * Crear nueva cabaña
@@ -61,7 +68,13 @@ public class CabanaController {
     public ResponseEntity<List<CabanaResponse>> obtenerCabanas(
             @RequestParam(required = false) String estado,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaInicio,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaFin) {
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaFin,
+            WebRequest webRequest) {
+        String etag = versionRecursos.etagCatalogo();
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag)
+                    .cacheControl(VersionRecursosService.CACHE_CATALOGO).build();
+        }
 
         List<CabanaResponse> cabanas;
 
@@ -78,7 +91,42 @@ public class CabanaController {
             cabanas = cabanaService.obtenerTodas();
         }
 
-        return ResponseEntity.ok(cabanas);
+        return ResponseEntity.ok().eTag(etag)
+                .cacheControl(VersionRecursosService.CACHE_CATALOGO)
+                .body(cabanas);
+    }
+
+    /**
+     * GET /api/cabanas/buscar
+     * Buscar cabañas libres en un rango de fechas (una sola consulta, paginada por precio)
+     * Query params:
+     * - fechaInicio & fechaFin: rango de fechas (obligatorio)
+     * - capacidad: capacidad mínima de personas
+     * - tipoCabana: ECONOMICA, STANDARD, PREMIUM, DELUXE
+     * - page, size: paginación (por defecto 0 y 20)
+     * - orden: asc | desc por precio (por defecto asc)
+     */
+    @GetMapping("/buscar")
+    public ResponseEntity<PaginaResponse<CabanaResponse>> buscarDisponibles(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaInicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaFin,
+            @RequestParam(required = false) Integer capacidad,
+            @RequestParam(required = false) String tipoCabana,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "asc") String orden,
+            WebRequest webRequest) {
+        String etag = versionRecursos.etagCatalogo();
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag)
+                    .cacheControl(VersionRecursosService.CACHE_CATALOGO).build();
+        }
+
+        PaginaResponse<CabanaResponse> resultado = cabanaService.buscarDisponibles(
+                fechaInicio, fechaFin, capacidad, tipoCabana, page, size, "desc".equalsIgnoreCase(orden));
+        return ResponseEntity.ok().eTag(etag)
+                .cacheControl(VersionRecursosService.CACHE_CATALOGO)
+                .body(resultado);
     }
 
     /**
@@ -86,9 +134,17 @@ public class CabanaController {
      * Obtener cabaña por ID
      */
     @GetMapping("/{id}")
-    public ResponseEntity<CabanaResponse> obtenerCabanaPorId(@PathVariable Long id) {
+    public ResponseEntity<CabanaResponse> obtenerCabanaPorId(@PathVariable Long id, WebRequest webRequest) {
+        String etag = versionRecursos.etagRecurso(id);
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag)
+                    .cacheControl(VersionRecursosService.CACHE_CATALOGO).build();
+        }
+
         CabanaResponse cabana = cabanaService.obtenerPorId(id);
-        return ResponseEntity.ok(cabana);
+        return ResponseEntity.ok().eTag(etag)
+                .cacheControl(VersionRecursosService.CACHE_CATALOGO)
+                .body(cabana);
     }
 
     /**
@@ -5,6 +5,7 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -16,6 +17,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import com.bms.reserva_servicio_backend.models.BloqueHorario;
 import com.bms.reserva_servicio_backend.models.Cabana;
@@ -24,12 +26,15 @@ import com.bms.reserva_servicio_backend.repository.CabanaRepository;
 import com.bms.reserva_servicio_backend.repository.DisponibilidadCabanaRepository;
 import com.bms.reserva_servicio_backend.request.BloqueoBloqueRequest;
 import com.bms.reserva_servicio_backend.request.BloqueoFechasRequest;
+import com.bms.reserva_servicio_backend.request.GenerarBloquesRangoRequest;
 import com.bms.reserva_servicio_backend.request.GenerarBloquesRequest;
 import com.bms.reserva_servicio_backend.response.BloqueHorarioResponse;
 import com.bms.reserva_servicio_backend.response.DisponibilidadCabanaResponse;
 import com.bms.reserva_servicio_backend.response.DisponibilidadResponse;
+import com.bms.reserva_servicio_backend.response.GenerarBloquesRangoResponse;
 import com.bms.reserva_servicio_backend.response.SuccessResponse;
 import com.bms.reserva_servicio_backend.service.DisponibilidadService;
+import com.bms.reserva_servicio_backend.service.VersionRecursosService;
 
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
@@ -47,6 +52,9 @@ public class DisponibilidadController {
 
     @Autowired
     private CabanaRepository cabanaRepository;
+
+    @Autowired
+    private VersionRecursosService versionRecursos;
     
     /**
      * GET /api/disponibilidad/cabanas/{id}
@@ -56,8 +64,14 @@ public class DisponibilidadController {
     public ResponseEntity<DisponibilidadResponse> consultarDisponibilidadCabana(
             @PathVariable Long id,
             @RequestParam LocalDate fechaInicio,
-            @RequestParam LocalDate fechaFin) {
-        
+            @RequestParam LocalDate fechaFin,
+            WebRequest webRequest) {
+        String etag = versionRecursos.etagRecurso(id);
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag)
+                    .cacheControl(VersionRecursosService.CACHE_DISPONIBILIDAD).build();
+        }
+
         // El servicio valida:
         // - No hay reservas en conflicto
         // - No hay bloqueos manuales
@@ -66,7 +80,9 @@ public class DisponibilidadController {
             id, fechaInicio, fechaFin
         );
         
-        return ResponseEntity.ok(new DisponibilidadResponse(disponible));
+        return ResponseEntity.ok().eTag(etag)
+                .cacheControl(VersionRecursosService.CACHE_DISPONIBILIDAD)
+                .body(new DisponibilidadResponse(disponible));
     }
     
     /**
@@ -76,7 +92,13 @@ public class DisponibilidadController {
     @GetMapping("/servicios/{id}")
     public ResponseEntity<List<BloqueHorarioResponse>> consultarBloquesDisponibles(
             @PathVariable Long id,
-            @RequestParam LocalDate fecha) {
+            @RequestParam LocalDate fecha,
+            WebRequest webRequest) {
+        String etag = versionRecursos.etagRecurso(id);
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag)
+                    .cacheControl(VersionRecursosService.CACHE_DISPONIBILIDAD).build();
+        }
 
         List<BloqueHorario> bloques = disponibilidadService
             .obtenerBloquesDisponibles(id, fecha);
@@ -91,7 +113,9 @@ public class DisponibilidadController {
                 .build())
             .collect(Collectors.toList());
 
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok().eTag(etag)
+                .cacheControl(VersionRecursosService.CACHE_DISPONIBILIDAD)
+                .body(response);
     }
 
     /**
@@ -102,7 +126,13 @@ public class DisponibilidadController {
     public ResponseEntity<List<DisponibilidadCabanaResponse>> obtenerCalendarioCabana(
             @PathVariable Long id,
             @RequestParam LocalDate fechaInicio,
-            @RequestParam LocalDate fechaFin) {
+            @RequestParam LocalDate fechaFin,
+            WebRequest webRequest) {
+        String etag = versionRecursos.etagRecurso(id);
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag)
+                    .cacheControl(VersionRecursosService.CACHE_DISPONIBILIDAD).build();
+        }
 
         Cabana cabana = cabanaRepository.findById(id)
             .orElseThrow(() -> new EntityNotFoundException("Cabaña no encontrada"));
@@ -122,7 +152,9 @@ public class DisponibilidadController {
                 .build())
             .collect(Collectors.toList());
 
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok().eTag(etag)
+                .cacheControl(VersionRecursosService.CACHE_DISPONIBILIDAD)
+                .body(response);
     }
 
     /**
@@ -133,30 +165,21 @@ public class DisponibilidadController {
     public ResponseEntity<List<LocalDate>> obtenerFechasOcupadas(
             @PathVariable Long id,
             @RequestParam LocalDate fechaInicio,
-            @RequestParam LocalDate fechaFin) {
-
-        // Obtener todas las disponibilidades en el rango
-        List<DisponibilidadCabana> disponibilidades = disponibilidadCabanaRepository
-            .findByRangoFechas(id, fechaInicio, fechaFin);
-
-        // Filtrar solo las fechas no disponibles y extraer las fechas
-        List<LocalDate> fechasOcupadas = disponibilidades.stream()
-            .filter(d -> !d.getDisponible())
-            .map(DisponibilidadCabana::getFecha)
-            .collect(Collectors.toList());
+            @RequestParam LocalDate fechaFin,
+            WebRequest webRequest) {
+        String etag = versionRecursos.etagRecurso(id);
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag)
+                    .cacheControl(VersionRecursosService.CACHE_DISPONIBILIDAD).build();
+        }
 
-        // También agregar fechas de reservas confirmadas
-        List<LocalDate> fechasReservadas = disponibilidadService
-            .obtenerFechasReservadas(id, fechaInicio, fechaFin);
+        // Días bloqueados (calendario de ocupación) + días con reservas activas
+        List<LocalDate> fechasUnicas = disponibilidadService
+            .obtenerFechasOcupadas(id, fechaInicio, fechaFin);
 
-        // Combinar y eliminar duplicados
-        fechasOcupadas.addAll(fechasReservadas);
-        List<LocalDate> fechasUnicas = fechasOcupadas.stream()
-            .distinct()
-            .sorted()
-            .collect(Collectors.toList());
-
-        return ResponseEntity.ok(fechasUnicas);
+        return ResponseEntity.ok().eTag(etag)
+                .cacheControl(VersionRecursosService.CACHE_DISPONIBILIDAD)
+                .body(fechasUnicas);
     }
 
     /**
@@ -169,29 +192,13 @@ public class DisponibilidadController {
             @PathVariable Long id,
             @Valid @RequestBody BloqueoFechasRequest request) {
 
-        Cabana cabana = cabanaRepository.findById(id)
-            .orElseThrow(() -> new EntityNotFoundException("Cabaña no encontrada"));
-
-        LocalDate fechaActual = request.getFechaInicio();
-        while (!fechaActual.isAfter(request.getFechaFin())) {
-            final LocalDate fecha = fechaActual;
-
-            DisponibilidadCabana disponibilidad = disponibilidadCabanaRepository
-                .findByCabanaIdAndFecha(id, fecha)
-                .orElseGet(() -> {
-                    DisponibilidadCabana nueva = new DisponibilidadCabana();
-                    nueva.setCabana(cabana);
-                    nueva.setFecha(fecha);
-                    return nueva;
-                });
-
-            disponibilidad.setDisponible(false);
-            disponibilidad.setMotivoNoDisponible(request.getMotivo() != null ? request.getMotivo() : "BLOQUEO_MANUAL");
-            disponibilidad.setPrecioEspecial(request.getPrecioEspecial());
-            disponibilidadCabanaRepository.save(disponibilidad);
-
-            fechaActual = fechaActual.plusDays(1);
-        }
+        disponibilidadService.bloquearFechasCabanaManual(
+            id,
+            request.getFechaInicio(),
+            request.getFechaFin(),
+            request.getMotivo(),
+            request.getPrecioEspecial()
+        );
 
         return ResponseEntity.ok(SuccessResponse.of(
             "Bloqueadas " + request.getFechaInicio() + " hasta " + request.getFechaFin(),
@@ -210,19 +217,8 @@ public class DisponibilidadController {
             @RequestParam LocalDate fechaInicio,
             @RequestParam LocalDate fechaFin) {
 
-        List<DisponibilidadCabana> disponibilidades = disponibilidadCabanaRepository
-            .findByRangoFechas(id, fechaInicio, fechaFin);
-
-        for (DisponibilidadCabana disp : disponibilidades) {
-            // Solo desbloquear si es bloqueo manual, no reservas
-            if (disp.getMotivoNoDisponible() != null &&
-                !disp.getMotivoNoDisponible().equals("RESERVADA")) {
-                disp.setDisponible(true);
-                disp.setMotivoNoDisponible(null);
-                disp.setPrecioEspecial(null);
-                disponibilidadCabanaRepository.save(disp);
-            }
-        }
+        // Solo desbloquea bloqueos manuales, no reservas
+        disponibilidadService.desbloquearFechasCabana(id, fechaInicio, fechaFin);
 
         return ResponseEntity.ok(SuccessResponse.of(
             "Desbloqueadas " + fechaInicio + " hasta " + fechaFin,
@@ -309,6 +305,25 @@ public class DisponibilidadController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * POST /api/disponibilidad/servicios/generar-bloques-rango
+     * Generar bloques horarios para varios servicios en un rango de fechas
+     * usando una plantilla semanal (horario por día de la semana)
+     */
+    @PostMapping("/servicios/generar-bloques-rango")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<SuccessResponse<GenerarBloquesRangoResponse>> generarBloquesEnRango(
+            @Valid @RequestBody GenerarBloquesRangoRequest request) {
+
+        GenerarBloquesRangoResponse resultado = disponibilidadService.generarBloquesHorariosEnRango(request);
+
+        return ResponseEntity.ok(SuccessResponse.of(
+            resultado,
+            "Se crearon " + resultado.getBloquesCreados() + " bloques (se omitieron "
+                + resultado.getBloquesDuplicados() + " duplicados)"
+        ));
+    }
+
     /**
      * GET /api/disponibilidad/servicios/{id}/rango
      * Obtener bloques horarios de un servicio por rango de fechas
@@ -317,7 +332,13 @@ public class DisponibilidadController {
     public ResponseEntity<List<BloqueHorarioResponse>> obtenerBloquesPorRango(
             @PathVariable Long id,
             @RequestParam LocalDate fechaInicio,
-            @RequestParam LocalDate fechaFin) {
+            @RequestParam LocalDate fechaFin,
+            WebRequest webRequest) {
+        String etag = versionRecursos.etagRecurso(id);
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag)
+                    .cacheControl(VersionRecursosService.CACHE_DISPONIBILIDAD).build();
+        }
 
         List<BloqueHorario> bloques = disponibilidadService
             .obtenerBloquesPorRangoFechas(id, fechaInicio, fechaFin);
@@ -333,7 +354,9 @@ public class DisponibilidadController {
                 .build())
             .collect(Collectors.toList());
 
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok().eTag(etag)
+                .cacheControl(VersionRecursosService.CACHE_DISPONIBILIDAD)
+                .body(response);
     }
 
     /**
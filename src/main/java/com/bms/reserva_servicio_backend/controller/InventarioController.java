@@ -18,6 +18,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import com.bms.reserva_servicio_backend.models.ItemsInventario;
 import com.bms.reserva_servicio_backend.request.ItemInventarioRequest;
@@ -25,6 +26,7 @@ import com.bms.reserva_servicio_backend.response.DisponibilidadItemResponse;
 import com.bms.reserva_servicio_backend.response.ItemInventarioResponse;
 import com.bms.reserva_servicio_backend.response.SuccessResponse;
 import com.bms.reserva_servicio_backend.service.InventarioService;
+import com.bms.reserva_servicio_backend.service.VersionRecursosService;
 
 import jakarta.validation.Valid;
 
@@ -35,6 +37,9 @@ public class InventarioController {
     
     @Autowired
     private InventarioService inventarioService;
+
+    @Autowired
+    private VersionRecursosService versionRecursos;
     
     /**
      * GET /api/inventario/recurso/{recursoId}
@@ -44,8 +49,14 @@ public class InventarioController {
     @GetMapping("/recurso/{recursoId}")
     // Sin @PreAuthorize - Se maneja en SpringSecurityConfig como permitAll()
     public ResponseEntity<List<ItemInventarioResponse>> obtenerInventarioRecurso(
-            @PathVariable Long recursoId) {
-        
+            @PathVariable Long recursoId,
+            WebRequest webRequest) {
+        String etag = versionRecursos.etagRecurso(recursoId);
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag)
+                    .cacheControl(VersionRecursosService.CACHE_INVENTARIO).build();
+        }
+
         List<ItemsInventario> items = inventarioService.obtenerItemsPorRecurso(recursoId);
         
         List<ItemInventarioResponse> response = items.stream()
@@ -63,7 +74,9 @@ public class InventarioController {
                 .build())
             .collect(Collectors.toList());
         
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok().eTag(etag)
+                .cacheControl(VersionRecursosService.CACHE_INVENTARIO)
+                .body(response);
     }
     
     /**
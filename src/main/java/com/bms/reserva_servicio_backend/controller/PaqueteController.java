@@ -97,7 +97,7 @@ public class PaqueteController {
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
     public ResponseEntity<PaqueteResponse> obtenerPaquete(@PathVariable Long id) {
-        PaqueteReserva paquete = paqueteService.obtenerPorId(id);
+        PaqueteReserva paquete = paqueteService.obtenerDetalle(id);
         return ResponseEntity.ok(mapper.toPaqueteResponse(paquete));
     }
     
@@ -62,6 +62,39 @@ public class RecursoImagenController {
         }
     }
 
+    /**
+     * POST /api/recursos/{recursoId}/imagenes/lote
+     * Subir varias imágenes para un recurso en una sola solicitud
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/lote")
+    public ResponseEntity<SuccessResponse<List<RecursoImagen>>> subirImagenes(
+            @PathVariable Long recursoId,
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestParam(required = false) List<String> descripciones,
+            @RequestParam(required = false) Integer indicePrincipal) {
+
+        try {
+            List<RecursoImagen> imagenes = imagenService.subirImagenes(recursoId, files, descripciones,
+                    indicePrincipal);
+
+            SuccessResponse<List<RecursoImagen>> response = new SuccessResponse<>();
+            response.setSuccess(true);
+            response.setMessage(imagenes.size() + " imágenes subidas exitosamente");
+            response.setData(imagenes);
+            response.setTimestamp(LocalDateTime.now());
+
+            return ResponseEntity.ok(response);
+        } catch (IOException e) {
+            SuccessResponse<List<RecursoImagen>> response = new SuccessResponse<>();
+            response.setSuccess(false);
+            response.setMessage("Error al subir las imágenes: " + e.getMessage());
+            response.setTimestamp(LocalDateTime.now());
+
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
     /**
      * GET /api/recursos/{recursoId}/imagenes
      * Obtener todas las imágenes de un recurso
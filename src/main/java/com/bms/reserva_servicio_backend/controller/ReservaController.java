@@ -1,9 +1,12 @@
 package com.bms.reserva_servicio_backend.controller;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -18,12 +21,16 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.bms.reserva_servicio_backend.enums.EstadoReserva;
+import com.bms.reserva_servicio_backend.enums.TipoReserva;
 import com.bms.reserva_servicio_backend.mappers.ReservaMapper;
 import com.bms.reserva_servicio_backend.models.Reserva;
 import com.bms.reserva_servicio_backend.request.CambioEstadoRequest;
 import com.bms.reserva_servicio_backend.request.PagoRequest;
 import com.bms.reserva_servicio_backend.request.ReservaCabanaRequest;
 import com.bms.reserva_servicio_backend.request.ReservaServicioRequest;
+import com.bms.reserva_servicio_backend.response.PaginaCursorResponse;
+import com.bms.reserva_servicio_backend.response.PaginaResponse;
+import com.bms.reserva_servicio_backend.response.ReservaListadoResponse;
 import com.bms.reserva_servicio_backend.response.ReservaResponse;
 import com.bms.reserva_servicio_backend.response.SuccessResponse;
 import com.bms.reserva_servicio_backend.service.ReservaService;
@@ -147,7 +154,7 @@ public class ReservaController {
      */
     @GetMapping("/{id}")
     public ResponseEntity<ReservaResponse> obtenerReserva(@PathVariable Long id) {
-        Reserva reserva = reservaService.obtenerPorId(id);
+        Reserva reserva = reservaService.obtenerDetalle(id);
         return ResponseEntity.ok(mapper.toResponse(reserva));
     }
 
@@ -191,6 +198,64 @@ public class ReservaController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * GET /api/reservas/pagina
+     * Obtener las reservas paginadas, de la más reciente a la más antigua (para admin)
+     * Query params: estado (opcional), page y size (por defecto 0 y 50, máximo 200)
+     */
+    @GetMapping("/pagina")
+    public ResponseEntity<PaginaResponse<ReservaResponse>> obtenerPaginaDeReservas(
+            @RequestParam(required = false) String estado,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
+
+        Page<Reserva> reservas;
+        if (estado != null && !estado.isEmpty()) {
+            EstadoReserva estadoEnum = EstadoReserva.valueOf(estado.toUpperCase());
+            reservas = reservaService.obtenerPorEstado(estadoEnum, page, size);
+        } else {
+            reservas = reservaService.obtenerTodas(page, size);
+        }
+
+        PaginaResponse<ReservaResponse> response = PaginaResponse.<ReservaResponse>builder()
+                .contenido(reservas.getContent().stream()
+                        .map(mapper::toResponse)
+                        .collect(Collectors.toList()))
+                .pagina(reservas.getNumber())
+                .tamano(reservas.getSize())
+                .totalElementos(reservas.getTotalElements())
+                .totalPaginas(reservas.getTotalPages())
+                .build();
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * GET /api/reservas/paginado
+     * Listado de reservas paginado por cursor (Admin)
+     * Query params opcionales: estado, tipo, recursoId, userId,
+     * desde & hasta (fecha de inicio de la reserva), cursor, limite (por defecto 50)
+     */
+    @GetMapping("/paginado")
+    public ResponseEntity<PaginaCursorResponse<ReservaListadoResponse>> listarReservasPaginadas(
+            @RequestParam(required = false) String estado,
+            @RequestParam(required = false) String tipo,
+            @RequestParam(required = false) Long recursoId,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limite) {
+
+        EstadoReserva estadoEnum = estado != null && !estado.isEmpty()
+                ? EstadoReserva.valueOf(estado.toUpperCase()) : null;
+        TipoReserva tipoEnum = tipo != null && !tipo.isEmpty()
+                ? TipoReserva.valueOf(tipo.toUpperCase()) : null;
+
+        return ResponseEntity.ok(reservaService.listarReservas(
+                estadoEnum, tipoEnum, recursoId, userId, desde, hasta, cursor, limite));
+    }
+
     /**
      * PUT /api/reservas/{id}/estado
      * Cambiar estado de una reserva (Admin)
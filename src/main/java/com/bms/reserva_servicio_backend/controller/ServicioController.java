@@ -5,6 +5,7 @@ import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -18,11 +19,13 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import com.bms.reserva_servicio_backend.request.ServicioRequest;
 import com.bms.reserva_servicio_backend.response.ServicioResponse;
 import com.bms.reserva_servicio_backend.response.SuccessResponse;
 import com.bms.reserva_servicio_backend.service.ServicioService;
+import com.bms.reserva_servicio_backend.service.VersionRecursosService;
 
 import jakarta.validation.Valid;
 
@@ -34,6 +37,9 @@ public class ServicioController {
     @Autowired
     private ServicioService servicioService;
 
+    @Autowired
+    private VersionRecursosService versionRecursos;
+
     /**
      * POST /api/servicios
      * Crear nuevo servicio de entretención
@@ -58,7 +64,13 @@ public class ServicioController {
     public ResponseEntity<List<ServicioResponse>> obtenerServicios(
             @RequestParam(required = false) String estado,
             @RequestParam(required = false) String tipo,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha) {
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha,
+            WebRequest webRequest) {
+        String etag = versionRecursos.etagCatalogo();
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag)
+                    .cacheControl(VersionRecursosService.CACHE_CATALOGO).build();
+        }
 
         List<ServicioResponse> servicios;
 
@@ -79,7 +91,9 @@ public class ServicioController {
             servicios = servicioService.obtenerTodos();
         }
 
-        return ResponseEntity.ok(servicios);
+        return ResponseEntity.ok().eTag(etag)
+                .cacheControl(VersionRecursosService.CACHE_CATALOGO)
+                .body(servicios);
     }
 
     /**
@@ -87,9 +101,17 @@ public class ServicioController {
      * Obtener servicio por ID
      */
     @GetMapping("/{id}")
-    public ResponseEntity<ServicioResponse> obtenerServicioPorId(@PathVariable Long id) {
+    public ResponseEntity<ServicioResponse> obtenerServicioPorId(@PathVariable Long id, WebRequest webRequest) {
+        String etag = versionRecursos.etagRecurso(id);
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag)
+                    .cacheControl(VersionRecursosService.CACHE_CATALOGO).build();
+        }
+
         ServicioResponse servicio = servicioService.obtenerPorId(id);
-        return ResponseEntity.ok(servicio);
+        return ResponseEntity.ok().eTag(etag)
+                .cacheControl(VersionRecursosService.CACHE_CATALOGO)
+                .body(servicio);
     }
 
     /**
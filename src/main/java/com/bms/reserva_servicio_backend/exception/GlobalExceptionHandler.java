@@ -179,6 +179,21 @@ public class GlobalExceptionHandler {
         return ResponseEntity.badRequest().body(errorResponse);
     }
 
+    /**
+     * Maneja el rechazo por pool de verificación de contraseñas saturado
+     */
+    @ExceptionHandler(VerificacionSaturadaException.class)
+    public ResponseEntity<ErrorResponse> handleVerificacionSaturada(VerificacionSaturadaException ex) {
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(HttpStatus.TOO_MANY_REQUESTS.value())
+                .error("Demasiadas Solicitudes")
+                .message(ex.getMessage())
+                .build();
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header("Retry-After", "1").body(errorResponse);
+    }
+
     /**
      * Maneja todas las excepciones genéricas
      */
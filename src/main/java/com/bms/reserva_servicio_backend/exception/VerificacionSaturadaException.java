@@ -0,0 +1,14 @@
+package com.bms.reserva_servicio_backend.exception;
+
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+
+/**
+ * Excepción lanzada cuando el pool de verificación de contraseñas está lleno y
+ * la solicitud se rechaza sin calcular el hash (se responde 429)
+ */
+public class VerificacionSaturadaException extends InternalAuthenticationServiceException {
+
+    public VerificacionSaturadaException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,122 @@
+package com.bms.reserva_servicio_backend.listener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.bms.reserva_servicio_backend.enums.EstadoReserva;
+import com.bms.reserva_servicio_backend.models.BloqueHorario;
+import com.bms.reserva_servicio_backend.models.DisponibilidadCabana;
+import com.bms.reserva_servicio_backend.models.Reserva;
+import com.bms.reserva_servicio_backend.service.CalendarioOcupacionService;
+import com.bms.reserva_servicio_backend.service.IndiceDisponibilidadService;
+import com.bms.reserva_servicio_backend.service.TemporizadorReservasService;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * Mantiene el índice de disponibilidad, el calendario de ocupación y los
+ * temporizadores de reservas en memoria sincronizados con reservas,
+ * disponibilidad_cabana y bloque_horario.
+ *
+ * Los valores se capturan al momento del flush y se aplican al índice
+ * solo si la transacción hace commit.
+ */
+@Component
+public class DisponibilidadEntityListener {
+
+    @Autowired
+    @Lazy
+    private IndiceDisponibilidadService indiceDisponibilidad;
+
+    @Autowired
+    @Lazy
+    private CalendarioOcupacionService calendarioOcupacion;
+
+    @Autowired
+    @Lazy
+    private TemporizadorReservasService temporizadorReservas;
+
+    @PostPersist
+    @PostUpdate
+    public void alGuardar(Object entidad) {
+        if (entidad instanceof Reserva reserva) {
+            Long id = reserva.getId();
+            Long recursoId = reserva.getRecurso() != null ? reserva.getRecurso().getId() : null;
+            EstadoReserva estado = reserva.getEstado();
+            LocalDateTime inicio = reserva.getFechaInicio();
+            LocalDateTime fin = reserva.getFechaFin();
+            despuesDelCommit(() -> {
+                indiceDisponibilidad.actualizarReserva(id, recursoId, estado, inicio, fin);
+                temporizadorReservas.programar(id, estado, inicio, fin);
+            });
+
+        } else if (entidad instanceof DisponibilidadCabana dia) {
+            Long id = dia.getId();
+            Long cabanaId = dia.getCabana() != null ? dia.getCabana().getId() : null;
+            LocalDate fecha = dia.getFecha();
+            Boolean disponible = dia.getDisponible();
+            despuesDelCommit(() -> {
+                indiceDisponibilidad.actualizarDiaCabana(id, cabanaId, fecha, disponible);
+                if (cabanaId != null && fecha != null) {
+                    calendarioOcupacion.marcarDia(cabanaId, fecha, Boolean.FALSE.equals(disponible));
+                }
+            });
+
+        } else if (entidad instanceof BloqueHorario bloque) {
+            Long id = bloque.getId();
+            Long servicioId = bloque.getServicio() != null ? bloque.getServicio().getId() : null;
+            LocalDate fecha = bloque.getFecha();
+            LocalTime horaInicio = bloque.getHoraInicio();
+            LocalTime horaFin = bloque.getHoraFin();
+            Boolean disponible = bloque.getDisponible();
+            despuesDelCommit(() -> indiceDisponibilidad.actualizarBloqueHorario(
+                    id, servicioId, fecha, horaInicio, horaFin, disponible));
+        }
+    }
+
+    @PostRemove
+    public void alEliminar(Object entidad) {
+        if (entidad instanceof Reserva reserva) {
+            Long id = reserva.getId();
+            despuesDelCommit(() -> {
+                indiceDisponibilidad.eliminarReserva(id);
+                temporizadorReservas.cancelar(id);
+            });
+        } else if (entidad instanceof DisponibilidadCabana dia) {
+            Long id = dia.getId();
+            Long cabanaId = dia.getCabana() != null ? dia.getCabana().getId() : null;
+            LocalDate fecha = dia.getFecha();
+            despuesDelCommit(() -> {
+                indiceDisponibilidad.eliminarDiaCabana(id);
+                if (cabanaId != null && fecha != null) {
+                    calendarioOcupacion.marcarDia(cabanaId, fecha, false);
+                }
+            });
+        } else if (entidad instanceof BloqueHorario bloque) {
+            Long id = bloque.getId();
+            despuesDelCommit(() -> indiceDisponibilidad.eliminarBloqueHorario(id));
+        }
+    }
+
+    private void despuesDelCommit(Runnable accion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            accion.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                accion.run();
+            }
+        });
+    }
+}
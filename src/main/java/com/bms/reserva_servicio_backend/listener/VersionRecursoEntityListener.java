@@ -0,0 +1,54 @@
+package com.bms.reserva_servicio_backend.listener;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import com.bms.reserva_servicio_backend.models.BloqueHorario;
+import com.bms.reserva_servicio_backend.models.DisponibilidadCabana;
+import com.bms.reserva_servicio_backend.models.ItemsInventario;
+import com.bms.reserva_servicio_backend.models.Recurso;
+import com.bms.reserva_servicio_backend.models.RecursoImagen;
+import com.bms.reserva_servicio_backend.models.Reserva;
+import com.bms.reserva_servicio_backend.service.VersionRecursosService;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * Incrementa la versión del recurso afectado (para las ETag de catálogo y
+ * disponibilidad) cada vez que se guarda o elimina un recurso, una imagen, un
+ * item de inventario, una reserva, un día de cabaña o un bloque horario.
+ */
+@Component
+public class VersionRecursoEntityListener {
+
+    @Autowired
+    @Lazy
+    private VersionRecursosService versionRecursos;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void alCambiar(Object entidad) {
+        versionRecursos.registrarCambio(recursoId(entidad));
+    }
+
+    private static Long recursoId(Object entidad) {
+        if (entidad instanceof Recurso recurso) {
+            return recurso.getId();
+        } else if (entidad instanceof RecursoImagen imagen) {
+            return imagen.getRecurso() != null ? imagen.getRecurso().getId() : null;
+        } else if (entidad instanceof ItemsInventario item) {
+            return item.getRecurso() != null ? item.getRecurso().getId() : null;
+        } else if (entidad instanceof Reserva reserva) {
+            return reserva.getRecurso() != null ? reserva.getRecurso().getId() : null;
+        } else if (entidad instanceof DisponibilidadCabana dia) {
+            return dia.getCabana() != null ? dia.getCabana().getId() : null;
+        } else if (entidad instanceof BloqueHorario bloque) {
+            return bloque.getServicio() != null ? bloque.getServicio().getId() : null;
+        }
+        return null;
+    }
+}
@@ -12,6 +12,7 @@ import com.bms.reserva_servicio_backend.models.Cabana;
 import com.bms.reserva_servicio_backend.models.ItemReservado;
 import com.bms.reserva_servicio_backend.models.PaqueteReserva;
 import com.bms.reserva_servicio_backend.models.Recurso;
+import com.bms.reserva_servicio_backend.models.RecursoImagen;
 import com.bms.reserva_servicio_backend.models.Reserva;
 import com.bms.reserva_servicio_backend.models.ServicioEntretencion;
 import com.bms.reserva_servicio_backend.response.ItemReservadoResponse;
@@ -141,10 +142,9 @@ public class ReservaMapper {
     
     private RecursoResponse toRecursoResponse(Recurso recurso) {
         // Obtener imagen principal
-        String imagenPrincipal = recurso.getImagenes().stream()
+        RecursoImagen imagenPrincipal = recurso.getImagenes().stream()
             .filter(img -> img.getEsPrincipal())
             .findFirst()
-            .map(img -> img.getUrl())
             .orElse(null);
 
         RecursoResponse.RecursoResponseBuilder builder = RecursoResponse.builder()
@@ -154,7 +154,8 @@ public class ReservaMapper {
             .estado(recurso.getEstado() != null ? recurso.getEstado().name() : null)
             .precioPorUnidad(recurso.getPrecioPorUnidad())
             .imagenes(recurso.getImagenes())
-            .imagenPrincipalUrl(imagenPrincipal);
+            .imagenPrincipalUrl(imagenPrincipal != null ? imagenPrincipal.getUrl() : null)
+            .imagenPrincipalMiniaturaUrl(imagenPrincipal != null ? imagenPrincipal.getUrlListado() : null);
 
         if (recurso instanceof Cabana) {
             Cabana cabana = (Cabana) recurso;
@@ -0,0 +1,39 @@
+package com.bms.reserva_servicio_backend.models;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Marca de agua de una auditoría incremental: hasta dónde se revisaron los
+ * datos en la última ejecución exitosa. La siguiente ejecución solo revisa lo
+ * modificado después de la marca.
+ */
+@Entity
+@Table(name = "auditoria_marcas")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditoriaMarca {
+
+    @Id
+    @Column(length = 50)
+    private String nombre;
+
+    // Inicio de la última ejecución exitosa (comparada con last_modified_date)
+    @Column(name = "marca_fecha", nullable = false)
+    private LocalDateTime marcaFecha;
+
+    // Mayor id de items_reservados revisado (la tabla no tiene last_modified_date)
+    @Column(name = "marca_item_reservado_id", nullable = false)
+    private Long marcaItemReservadoId;
+
+    @Column(name = "actualizada_en", nullable = false)
+    private LocalDateTime actualizadaEn;
+}
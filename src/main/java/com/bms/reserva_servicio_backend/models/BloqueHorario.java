@@ -3,9 +3,12 @@ package com.bms.reserva_servicio_backend.models;
 import java.time.LocalDate;
 import java.time.LocalTime;
 
+import com.bms.reserva_servicio_backend.listener.DisponibilidadEntityListener;
+import com.bms.reserva_servicio_backend.listener.VersionRecursoEntityListener;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -14,6 +17,7 @@ import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
 
 @Entity
+@EntityListeners({ DisponibilidadEntityListener.class, VersionRecursoEntityListener.class })
 @Table(name = "bloque_horario")
 public class BloqueHorario {
 
@@ -3,7 +3,11 @@ package com.bms.reserva_servicio_backend.models;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
+import com.bms.reserva_servicio_backend.listener.DisponibilidadEntityListener;
+import com.bms.reserva_servicio_backend.listener.VersionRecursoEntityListener;
+
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -12,6 +16,7 @@ import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
 
 @Entity
+@EntityListeners({ DisponibilidadEntityListener.class, VersionRecursoEntityListener.class })
 @Table(name = "disponibilidad_cabana")
 public class DisponibilidadCabana {
 
@@ -0,0 +1,51 @@
+package com.bms.reserva_servicio_backend.models;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Contador materializado del dashboard: una métrica (reservas por estado, por
+ * día, ingresos, usuarios...) en un periodo. Los totales usan el periodo
+ * 1970-01-01, los diarios el día y los mensuales el primer día del mes.
+ * Lo escribe EstadisticasDashboardService por SQL en la misma transacción que
+ * el cambio que cuenta, así es el mismo en todas las instancias.
+ */
+@Entity
+@Table(name = "estadisticas_dashboard")
+@IdClass(EstadisticaDashboard.Clave.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstadisticaDashboard {
+
+    @Id
+    @Column(length = 40)
+    private String metrica;
+
+    @Id
+    private LocalDate periodo;
+
+    @Column(nullable = false)
+    private Long cantidad;
+
+    @Column(nullable = false, precision = 38, scale = 2)
+    private BigDecimal monto;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Clave implements Serializable {
+        private String metrica;
+        private LocalDate periodo;
+    }
+}
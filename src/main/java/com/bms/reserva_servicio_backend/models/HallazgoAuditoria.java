@@ -0,0 +1,68 @@
+package com.bms.reserva_servicio_backend.models;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Problema de integridad detectado por la auditoría programada.
+ *
+ * Un hallazgo queda abierto (resueltoEn null) mientras cada ejecución lo siga
+ * detectando; la primera ejecución que ya no lo encuentra lo marca resuelto.
+ */
+@Entity
+@Table(name = "auditoria_hallazgos", indexes = {
+        @Index(name = "idx_hallazgo_tipo_entidad", columnList = "tipo, entidad_id, resuelto_en")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HallazgoAuditoria {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 40)
+    private TipoHallazgo tipo;
+
+    // Id de la fila con el problema (reserva, item reservado o item de inventario según el tipo)
+    @Column(name = "entidad_id", nullable = false)
+    private Long entidadId;
+
+    @Column(length = 500)
+    private String detalle;
+
+    @Column(name = "primera_deteccion", nullable = false)
+    private LocalDateTime primeraDeteccion;
+
+    @Column(name = "ultima_deteccion", nullable = false)
+    private LocalDateTime ultimaDeteccion;
+
+    @Column(name = "resuelto_en")
+    private LocalDateTime resueltoEn;
+
+    /**
+     * Tipos de problema que revisa la auditoría
+     */
+    public enum TipoHallazgo {
+        ITEM_RECURSO_INCORRECTO,  // Item reservado de otro recurso (entidad: items_reservados)
+        STOCK_INCONSISTENTE,      // Stock disponible distinto del esperado (entidad: items_inventario)
+        RESERVA_SIN_USUARIO,      // (entidad: reservas)
+        RESERVA_SIN_RECURSO,      // (entidad: reservas)
+        ITEM_RESERVADO_HUERFANO,  // Sin reserva o sin item de inventario (entidad: items_reservados)
+        FECHAS_INCORRECTAS        // Fin antes del inicio o vencida sin completar (entidad: reservas)
+    }
+}
@@ -1,14 +1,20 @@
 package com.bms.reserva_servicio_backend.models;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import com.bms.reserva_servicio_backend.enums.EstadoItem;
+import com.bms.reserva_servicio_backend.listener.VersionRecursoEntityListener;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
@@ -18,6 +24,8 @@ import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 import jakarta.persistence.Version; // Import @Version
 import jakarta.validation.constraints.DecimalMin;
@@ -26,12 +34,15 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 
 @Entity
+@EntityListeners(VersionRecursoEntityListener.class)
 @Table(name = "items_inventario", indexes = {
     @Index(name = "idx_item_recurso", columnList = "recurso_id"),
     @Index(name = "idx_item_categoria", columnList = "categoria"),
     @Index(name = "idx_item_estado", columnList = "estadoItem"),
-    @Index(name = "idx_item_reservable", columnList = "esReservable")
+    @Index(name = "idx_item_reservable", columnList = "esReservable"),
+    @Index(name = "idx_item_ultima_modificacion", columnList = "ultima_modificacion")
 })
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "catalogo.item")
 public class ItemsInventario {
 
     @Id
@@ -81,6 +92,17 @@ public class ItemsInventario {
     @OneToMany(mappedBy = "item")
     private List<ItemReservado> reservas = new ArrayList<>();
 
+    // Marca de agua de la auditoría incremental. Los UPDATE de stock por SQL no la
+    // tocan: esos cambios quedan en movimientos_inventario
+    @Column(name = "ultima_modificacion")
+    private LocalDateTime ultimaModificacion;
+
+    @PrePersist
+    @PreUpdate
+    protected void onModificar() {
+        ultimaModificacion = LocalDateTime.now();
+    }
+
     public Long getId() {
         return id;
     }
@@ -169,6 +191,10 @@ public class ItemsInventario {
         this.reservas = reservas;
     }
 
+    public LocalDateTime getUltimaModificacion() {
+        return ultimaModificacion;
+    }
+
     @Override
     public String toString() {
         return "ItemsInventario [id=" + id + ", recurso=" + recurso + ", nombre=" + nombre + ", categoria=" + categoria
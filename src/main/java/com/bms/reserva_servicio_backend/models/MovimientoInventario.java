@@ -10,6 +10,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrePersist;
@@ -24,7 +25,9 @@ import lombok.NoArgsConstructor;
  * Mantiene un historial de entradas, salidas y devoluciones de items
  */
 @Entity
-@Table(name = "movimientos_inventario")
+@Table(name = "movimientos_inventario", indexes = {
+        @Index(name = "idx_movimiento_fecha", columnList = "fecha_movimiento")
+})
 @Data
 @Builder
 @NoArgsConstructor
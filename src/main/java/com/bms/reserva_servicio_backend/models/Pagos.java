@@ -7,13 +7,16 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
 import lombok.EqualsAndHashCode;
 
 @Entity
-@Table(name = "pagos")
+@Table(name = "pagos", indexes = {
+        @Index(name = "idx_pago_estado_fecha", columnList = "estado, fechaPago")
+})
 @EqualsAndHashCode(callSuper = true)
 public class Pagos extends Auditable {
 
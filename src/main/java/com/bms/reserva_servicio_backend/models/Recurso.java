@@ -4,7 +4,11 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import com.bms.reserva_servicio_backend.enums.EstadoRecurso;
+import com.bms.reserva_servicio_backend.listener.VersionRecursoEntityListener;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 
@@ -13,6 +17,7 @@ import jakarta.persistence.Column;
 import jakarta.persistence.DiscriminatorColumn;
 import jakarta.persistence.DiscriminatorType;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
@@ -29,6 +34,7 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 
 @Entity
+@EntityListeners(VersionRecursoEntityListener.class)
 @Table(name = "recursos", indexes = {
     @Index(name = "idx_recurso_estado", columnList = "estado"),
     @Index(name = "idx_recurso_tipo", columnList = "tipo_recurso"),
@@ -36,6 +42,7 @@ import jakarta.validation.constraints.Size;
 })
 @Inheritance(strategy = InheritanceType.JOINED)
 @DiscriminatorColumn(name = "tipo_recurso", discriminatorType = DiscriminatorType.STRING)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "catalogo.recurso")
 public abstract class Recurso {
 
     @Id
@@ -63,10 +70,12 @@ public abstract class Recurso {
 
     @JsonIgnoreProperties("recurso")
     @OneToMany(mappedBy = "recurso", cascade = CascadeType.ALL)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "catalogo.recurso.inventario")
     private List<ItemsInventario> inventario = new ArrayList<>();
 
     @JsonManagedReference
     @OneToMany(mappedBy = "recurso", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "catalogo.recurso.imagenes")
     private List<RecursoImagen> imagenes = new ArrayList<>();
 
     public Long getId() {
@@ -2,11 +2,16 @@ package com.bms.reserva_servicio_backend.models;
 
 import java.time.LocalDateTime;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrePersist;
@@ -17,10 +22,16 @@ import lombok.Data;
 import lombok.ToString;
 import lombok.NoArgsConstructor;
 
+import com.bms.reserva_servicio_backend.listener.VersionRecursoEntityListener;
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 @Entity
-@Table(name = "recursos_imagenes")
+@EntityListeners(VersionRecursoEntityListener.class)
+@Table(name = "recursos_imagenes", indexes = {
+        @Index(name = "idx_imagen_hash", columnList = "hash_contenido")
+})
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "catalogo.imagen")
 @Data
 @Builder
 @NoArgsConstructor
@@ -40,6 +51,19 @@ public class RecursoImagen {
     @Column(nullable = false, length = 500)
     private String url;
 
+    // Variantes redimensionadas; null hasta que se generan (o si el formato no se puede decodificar)
+    @Column(name = "url_miniatura", length = 500)
+    private String urlMiniatura;
+
+    @Column(name = "url_media", length = 500)
+    private String urlMedia;
+
+    @Column(name = "url_completa", length = 500)
+    private String urlCompleta;
+
+    @Column(name = "hash_contenido", length = 64)
+    private String hashContenido; // SHA-256 del archivo original, también su nombre en disco
+
     @Column(length = 255)
     private String nombre; // Nombre original del archivo
 
@@ -57,6 +81,14 @@ public class RecursoImagen {
     @Column(name = "fecha_subida")
     private LocalDateTime fechaSubida;
 
+    /**
+     * URL para tarjetas y listados: la miniatura si ya existe, si no el original
+     */
+    @JsonIgnore
+    public String getUrlListado() {
+        return urlMiniatura != null ? urlMiniatura : url;
+    }
+
     @PrePersist
     protected void onCreate() {
         if (fechaSubida == null) {
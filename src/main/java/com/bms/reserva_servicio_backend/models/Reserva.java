@@ -7,11 +7,14 @@ import java.util.List;
 
 import com.bms.reserva_servicio_backend.enums.EstadoReserva;
 import com.bms.reserva_servicio_backend.enums.TipoReserva;
+import com.bms.reserva_servicio_backend.listener.DisponibilidadEntityListener;
+import com.bms.reserva_servicio_backend.listener.VersionRecursoEntityListener;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
@@ -29,12 +32,16 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 
 @Entity
+@EntityListeners({ DisponibilidadEntityListener.class, VersionRecursoEntityListener.class })
 @Table(name = "reservas", indexes = {
         @Index(name = "idx_reserva_fechas", columnList = "fechaInicio, fechaFin"),
         @Index(name = "idx_reserva_estado", columnList = "estado"),
         @Index(name = "idx_reserva_recurso", columnList = "recurso_id"),
         @Index(name = "idx_reserva_user", columnList = "user_id"),
-        @Index(name = "idx_reserva_paquete", columnList = "paquete_id")
+        @Index(name = "idx_reserva_paquete", columnList = "paquete_id"),
+        @Index(name = "idx_reserva_fecha_reserva", columnList = "fechaReserva, id"),
+        @Index(name = "idx_reserva_estado_fecha_reserva", columnList = "estado, fechaReserva"),
+        @Index(name = "idx_reserva_last_modified", columnList = "last_modified_date")
 })
 @Data
 @EqualsAndHashCode(callSuper = true)
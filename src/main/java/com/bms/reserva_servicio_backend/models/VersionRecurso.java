@@ -0,0 +1,30 @@
+package com.bms.reserva_servicio_backend.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Contador de cambios confirmados de un recurso (y de sus imágenes, items,
+ * reservas, días y bloques). Las ETag de los endpoints públicos se derivan de
+ * esta tabla, así son las mismas en todas las instancias y tras un reinicio.
+ * Lo escribe VersionRecursosService por SQL al confirmar cada transacción.
+ */
+@Entity
+@Table(name = "recursos_version")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VersionRecurso {
+
+    @Id
+    @Column(name = "recurso_id")
+    private Long recursoId;
+
+    @Column(nullable = false)
+    private Long version;
+}
@@ -0,0 +1,10 @@
+package com.bms.reserva_servicio_backend.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.bms.reserva_servicio_backend.models.AuditoriaMarca;
+
+@Repository
+public interface AuditoriaMarcaRepository extends JpaRepository<AuditoriaMarca, String> {
+}
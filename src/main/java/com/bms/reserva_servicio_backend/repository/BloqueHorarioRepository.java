@@ -2,14 +2,20 @@ package com.bms.reserva_servicio_backend.repository;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import com.bms.reserva_servicio_backend.models.BloqueHorario;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
 public interface BloqueHorarioRepository extends JpaRepository<BloqueHorario, Long> {
 
     @Query("SELECT b FROM BloqueHorario b WHERE b.servicio.id = :servicioId " +
@@ -45,4 +51,44 @@ public interface BloqueHorarioRepository extends JpaRepository<BloqueHorario, Lo
             @Param("fecha") LocalDate fecha,
             @Param("horaInicio") LocalTime horaInicio,
             @Param("horaFin") LocalTime horaFin);
-}
\ No newline at end of file
+
+    // Carga del índice de disponibilidad en memoria
+    @Query("SELECT b.id, b.servicio.id, b.fecha, b.horaInicio, b.horaFin FROM BloqueHorario b " +
+            "WHERE b.disponible = false AND b.fecha >= :desde")
+    List<Object[]> findBloqueosDesde(@Param("desde") LocalDate desde);
+
+    @Query("SELECT b.servicio.id, b.fecha, b.horaInicio, b.horaFin FROM BloqueHorario b " +
+            "WHERE b.servicio.id IN :servicioIds AND b.fecha BETWEEN :fechaInicio AND :fechaFin")
+    List<Object[]> findHorariosEnRango(
+            @Param("servicioIds") Collection<Long> servicioIds,
+            @Param("fechaInicio") LocalDate fechaInicio,
+            @Param("fechaFin") LocalDate fechaFin);
+
+    // Bloques que se traslapan con el horario, bloqueados con FOR UPDATE SKIP LOCKED
+    // (timeout -2): las filas que otra transacción ya tiene bloqueadas no se devuelven
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT b FROM BloqueHorario b WHERE b.servicio.id = :servicioId " +
+            "AND b.fecha = :fecha AND b.horaInicio < :horaFin AND b.horaFin > :horaInicio " +
+            "ORDER BY b.horaInicio")
+    List<BloqueHorario> findBloquesParaReclamar(
+            @Param("servicioId") Long servicioId,
+            @Param("fecha") LocalDate fecha,
+            @Param("horaInicio") LocalTime horaInicio,
+            @Param("horaFin") LocalTime horaFin);
+
+    @Query("SELECT COUNT(b) FROM BloqueHorario b WHERE b.servicio.id = :servicioId " +
+            "AND b.fecha = :fecha AND b.horaInicio < :horaFin AND b.horaFin > :horaInicio")
+    long countBloquesTraslapados(
+            @Param("servicioId") Long servicioId,
+            @Param("fecha") LocalDate fecha,
+            @Param("horaInicio") LocalTime horaInicio,
+            @Param("horaFin") LocalTime horaFin);
+
+    // Bloques retenidos por reservas (motivo RESERVADO) de varios servicios y fechas
+    @Query("SELECT b FROM BloqueHorario b WHERE b.servicio.id IN :servicioIds " +
+            "AND b.fecha IN :fechas AND b.disponible = false AND b.motivoNoDisponible = 'RESERVADO'")
+    List<BloqueHorario> findReservadosEnServicios(
+            @Param("servicioIds") Collection<Long> servicioIds,
+            @Param("fechas") Collection<LocalDate> fechas);
+}
@@ -1,8 +1,11 @@
 package com.bms.reserva_servicio_backend.repository;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -27,4 +30,35 @@ public interface CabanaRepository extends JpaRepository<Cabana, Long> {
     List<Cabana> findCabanasDisponiblesEnPeriodo(
             @Param("inicio") LocalDateTime inicio,
             @Param("fin") LocalDateTime fin);
+
+    // Cabañas DISPONIBLE sin reservas activas ni días bloqueados en el rango (anti-join)
+    String FILTRO_DISPONIBLES_EN_RANGO = "FROM Cabana c " +
+            "WHERE c.estado = com.bms.reserva_servicio_backend.enums.EstadoRecurso.DISPONIBLE " +
+            "AND (:capacidad IS NULL OR c.capacidadPersonas >= :capacidad) " +
+            "AND (:tipoCabana IS NULL OR c.tipoCabana = :tipoCabana) " +
+            "AND NOT EXISTS (SELECT 1 FROM Reserva r WHERE r.recurso.id = c.id " +
+            "AND r.estado IN (com.bms.reserva_servicio_backend.enums.EstadoReserva.CONFIRMADA, com.bms.reserva_servicio_backend.enums.EstadoReserva.EN_CURSO) " +
+            "AND r.fechaInicio <= :fin AND r.fechaFin >= :inicio) " +
+            "AND NOT EXISTS (SELECT 1 FROM DisponibilidadCabana d WHERE d.cabana.id = c.id " +
+            "AND d.disponible = false AND d.fecha BETWEEN :fechaInicio AND :fechaFin)";
+
+    @Query(value = "SELECT c " + FILTRO_DISPONIBLES_EN_RANGO,
+            countQuery = "SELECT COUNT(c) " + FILTRO_DISPONIBLES_EN_RANGO)
+    Page<Cabana> buscarDisponiblesEnRango(
+            @Param("fechaInicio") LocalDate fechaInicio,
+            @Param("fechaFin") LocalDate fechaFin,
+            @Param("inicio") LocalDateTime inicio,
+            @Param("fin") LocalDateTime fin,
+            @Param("capacidad") Integer capacidad,
+            @Param("tipoCabana") String tipoCabana,
+            Pageable pageable);
+
+    // Cabañas sin reservas no canceladas que se traslapen con [desde, hasta)
+    @Query("SELECT COUNT(c) FROM Cabana c WHERE NOT EXISTS (SELECT 1 FROM Reserva r " +
+            "WHERE r.recurso.id = c.id " +
+            "AND r.estado <> com.bms.reserva_servicio_backend.enums.EstadoReserva.CANCELADA " +
+            "AND r.fechaInicio < :hasta AND r.fechaFin > :desde)")
+    long contarSinReservasActivasEntre(
+            @Param("desde") LocalDateTime desde,
+            @Param("hasta") LocalDateTime hasta);
 }
@@ -1,6 +1,7 @@
 package com.bms.reserva_servicio_backend.repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,4 +21,25 @@ public interface DisponibilidadCabanaRepository extends JpaRepository<Disponibil
             @Param("fechaFin") LocalDate fechaFin);
 
     Optional<DisponibilidadCabana> findByCabanaIdAndFecha(Long cabanaId, LocalDate fecha);
+
+    // Carga del índice de disponibilidad en memoria
+    @Query("SELECT d.id, d.cabana.id, d.fecha FROM DisponibilidadCabana d " +
+            "WHERE d.disponible = false AND d.fecha >= :desde")
+    List<Object[]> findBloqueosDesde(@Param("desde") LocalDate desde);
+
+    @Query("SELECT d.fecha FROM DisponibilidadCabana d WHERE d.cabana.id = :cabanaId " +
+            "AND d.disponible = false AND d.fecha BETWEEN :fechaInicio AND :fechaFin")
+    List<LocalDate> findFechasNoDisponibles(
+            @Param("cabanaId") Long cabanaId,
+            @Param("fechaInicio") LocalDate fechaInicio,
+            @Param("fechaFin") LocalDate fechaFin);
+
+    // Días retenidos por reservas (motivo RESERVADA) de varias cabañas en un rango
+    @Query("SELECT d FROM DisponibilidadCabana d WHERE d.cabana.id IN :cabanaIds " +
+            "AND d.fecha BETWEEN :fechaInicio AND :fechaFin " +
+            "AND d.disponible = false AND d.motivoNoDisponible = 'RESERVADA'")
+    List<DisponibilidadCabana> findReservadasEnCabanas(
+            @Param("cabanaIds") Collection<Long> cabanaIds,
+            @Param("fechaInicio") LocalDate fechaInicio,
+            @Param("fechaFin") LocalDate fechaFin);
 }
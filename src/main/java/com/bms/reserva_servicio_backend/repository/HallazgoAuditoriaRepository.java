@@ -0,0 +1,23 @@
+package com.bms.reserva_servicio_backend.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.bms.reserva_servicio_backend.models.HallazgoAuditoria;
+import com.bms.reserva_servicio_backend.models.HallazgoAuditoria.TipoHallazgo;
+
+@Repository
+public interface HallazgoAuditoriaRepository extends JpaRepository<HallazgoAuditoria, Long> {
+
+    /**
+     * Hallazgos abiertos
+     */
+    List<HallazgoAuditoria> findByResueltoEnIsNullOrderByTipoAscEntidadIdAsc();
+
+    /**
+     * Hallazgos abiertos de un tipo
+     */
+    List<HallazgoAuditoria> findByTipoAndResueltoEnIsNullOrderByEntidadIdAsc(TipoHallazgo tipo);
+}
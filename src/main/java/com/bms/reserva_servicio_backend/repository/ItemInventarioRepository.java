@@ -17,4 +17,8 @@ public interface ItemInventarioRepository extends JpaRepository<ItemsInventario,
     @Query("SELECT i FROM ItemsInventario i WHERE i.categoria = :categoria " +
            "AND i.esReservable = true AND i.cantidadDisponible > 0")
     List<ItemsInventario> findDisponiblesPorCategoria(@Param("categoria") String categoria);
-}
\ No newline at end of file
+
+    // [itemId, cantidadDisponible, recursoId]
+    @Query("SELECT i.id, i.cantidadDisponible, i.recurso.id FROM ItemsInventario i WHERE i.id IN :ids")
+    List<Object[]> findStockDisponible(@Param("ids") List<Long> ids);
+}
@@ -14,6 +14,11 @@ public interface ItemReservadoRepository extends JpaRepository<ItemReservado, Lo
 
         List<ItemReservado> findByReservaId(Long reservaId);
 
+        // Items de varias reservas en una consulta: [reservaId, itemId, cantidad]
+        @Query("SELECT ir.reserva.id, ir.item.id, ir.cantidad FROM ItemReservado ir " +
+                        "WHERE ir.reserva.id IN :reservaIds ORDER BY ir.reserva.id")
+        List<Object[]> findCantidadesPorReservas(@Param("reservaIds") List<Long> reservaIds);
+
         @Query("SELECT COALESCE(SUM(ir.cantidad), 0) FROM ItemReservado ir " +
                         "WHERE ir.item.id = :itemId " +
                         "AND ir.reserva.estado IN (com.bms.reserva_servicio_backend.enums.EstadoReserva.CONFIRMADA, " +
@@ -1,5 +1,6 @@
 package com.bms.reserva_servicio_backend.repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -21,4 +22,16 @@ public interface PagoRepository extends JpaRepository<Pagos, Long> {
             @Param("estado") String estado,
             @Param("fechaInicio") LocalDateTime fechaInicio,
             @Param("fechaFin") LocalDateTime fechaFin);
-}
\ No newline at end of file
+
+    @Query("SELECT COALESCE(SUM(p.monto), 0) FROM Pagos p WHERE p.estado = :estado")
+    BigDecimal sumarMontoPorEstado(@Param("estado") String estado);
+
+    // Montos agrupados por día: [fecha, suma]
+    @Query("SELECT CAST(p.fechaPago AS LocalDate), SUM(p.monto) FROM Pagos p " +
+            "WHERE p.estado = :estado AND p.fechaPago >= :desde AND p.fechaPago < :hasta " +
+            "GROUP BY CAST(p.fechaPago AS LocalDate)")
+    List<Object[]> sumarMontoPorDia(
+            @Param("estado") String estado,
+            @Param("desde") LocalDateTime desde,
+            @Param("hasta") LocalDateTime hasta);
+}
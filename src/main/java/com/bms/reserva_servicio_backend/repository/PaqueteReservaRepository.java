@@ -1,6 +1,7 @@
 package com.bms.reserva_servicio_backend.repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -27,4 +28,9 @@ public interface PaqueteReservaRepository extends JpaRepository<PaqueteReserva,
         List<PaqueteReserva> findByEstadoAndFechaCreacionBefore(
                         @Param("estado") EstadoPaquete estado,
                         @Param("fecha") LocalDateTime fecha);
-}
\ No newline at end of file
+
+        // Inicializa las reservas de varios paquetes (con usuario y recurso) en una consulta
+        @Query("SELECT DISTINCT p FROM PaqueteReserva p LEFT JOIN FETCH p.user LEFT JOIN FETCH p.reservas r " +
+                        "LEFT JOIN FETCH r.user LEFT JOIN FETCH r.recurso WHERE p.id IN :ids")
+        List<PaqueteReserva> cargarReservas(@Param("ids") Collection<Long> ids);
+}
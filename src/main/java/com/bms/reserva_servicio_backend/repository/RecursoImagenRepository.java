@@ -1,5 +1,6 @@
 package com.bms.reserva_servicio_backend.repository;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -15,4 +16,12 @@ public interface RecursoImagenRepository extends JpaRepository<RecursoImagen, Lo
     RecursoImagen findByRecursoIdAndEsPrincipalTrue(Long recursoId);
 
     void deleteByRecursoId(Long recursoId);
+
+    // Imágenes con el mismo contenido y variantes ya generadas (deduplicación)
+    List<RecursoImagen> findByHashContenidoInAndUrlMiniaturaIsNotNull(Collection<String> hashes);
+
+    // Imágenes de un contenido que aún esperan sus variantes
+    List<RecursoImagen> findByHashContenidoAndUrlMiniaturaIsNull(String hashContenido);
+
+    long countByHashContenido(String hashContenido);
 }
@@ -1,11 +1,18 @@
 package com.bms.reserva_servicio_backend.repository;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.bms.reserva_servicio_backend.models.Recurso;
 
 public interface RecursoRepository extends JpaRepository<Recurso, Long> {
     List<Recurso> findByEstado(String estado);
+
+    // Inicializa las imágenes de varios recursos en una consulta
+    @Query("SELECT DISTINCT r FROM Recurso r LEFT JOIN FETCH r.imagenes WHERE r.id IN :ids")
+    List<Recurso> cargarImagenes(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
@@ -2,15 +2,24 @@ package com.bms.reserva_servicio_backend.repository;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import com.bms.reserva_servicio_backend.enums.EstadoReserva;
 import com.bms.reserva_servicio_backend.enums.TipoReserva;
 import com.bms.reserva_servicio_backend.models.Reserva;
+import com.bms.reserva_servicio_backend.response.ReservaListadoResponse;
+
 
 public interface ReservaRepository extends JpaRepository<Reserva, Long> {
         List<Reserva> findByUserId(Long userId);
@@ -19,6 +28,39 @@ public interface ReservaRepository extends JpaRepository<Reserva, Long> {
 
         List<Reserva> findByEstado(EstadoReserva estado);
 
+        // Lecturas para ReservaMapper: user, recurso y paquete en la misma consulta.
+        // Las colecciones se inicializan aparte con cargarItemsReservados y afines.
+        @EntityGraph(attributePaths = { "user", "recurso", "paquete", "paquete.user" })
+        @Query("SELECT r FROM Reserva r WHERE r.id = :id")
+        Optional<Reserva> findDetalleById(@Param("id") Long id);
+
+        @EntityGraph(attributePaths = { "user", "recurso", "paquete", "paquete.user" })
+        @Query("SELECT r FROM Reserva r WHERE r.user.id = :userId")
+        List<Reserva> findDetalleByUserId(@Param("userId") Long userId);
+
+        @EntityGraph(attributePaths = { "user", "recurso", "paquete", "paquete.user" })
+        @Query("SELECT r FROM Reserva r WHERE r.estado = :estado")
+        List<Reserva> findDetalleByEstado(@Param("estado") EstadoReserva estado);
+
+        @EntityGraph(attributePaths = { "user", "recurso", "paquete", "paquete.user" })
+        @Query(value = "SELECT r FROM Reserva r WHERE r.estado = :estado",
+                        countQuery = "SELECT COUNT(r) FROM Reserva r WHERE r.estado = :estado")
+        Page<Reserva> findDetalleByEstado(@Param("estado") EstadoReserva estado, Pageable pageable);
+
+        @EntityGraph(attributePaths = { "user", "recurso", "paquete", "paquete.user" })
+        @Query("SELECT r FROM Reserva r")
+        List<Reserva> findAllDetalle();
+
+        // Solo asociaciones a uno en el grafo: el LIMIT se aplica en SQL, no en memoria
+        @EntityGraph(attributePaths = { "user", "recurso", "paquete", "paquete.user" })
+        @Query(value = "SELECT r FROM Reserva r", countQuery = "SELECT COUNT(r) FROM Reserva r")
+        Page<Reserva> findAllDetalle(Pageable pageable);
+
+        // Inicializa itemsReservados (con su item de inventario) de varias reservas en una consulta
+        @Query("SELECT DISTINCT r FROM Reserva r LEFT JOIN FETCH r.itemsReservados ir " +
+                        "LEFT JOIN FETCH ir.item i LEFT JOIN FETCH i.recurso WHERE r.id IN :ids")
+        List<Reserva> cargarItemsReservados(@Param("ids") Collection<Long> ids);
+
         @Query("SELECT r FROM Reserva r WHERE r.recurso.id = :recursoId " +
                         "AND r.estado IN (com.bms.reserva_servicio_backend.enums.EstadoReserva.CONFIRMADA, com.bms.reserva_servicio_backend.enums.EstadoReserva.EN_CURSO) " +
                         "AND ((r.fechaInicio BETWEEN :inicio AND :fin) " +
@@ -70,4 +112,120 @@ public interface ReservaRepository extends JpaRepository<Reserva, Long> {
                         @Param("estado") EstadoReserva estado,
                         @Param("fechaInicio") LocalDateTime fechaInicio);
 
+        // Candidatos del scheduler paginados por id (solo ids, sin cargar entidades)
+        @Query("SELECT r.id FROM Reserva r WHERE r.estado IN :estados AND r.fechaFin < :fechaFin " +
+                        "AND r.id > :desdeId ORDER BY r.id")
+        List<Long> findIdsFinalizadasDesde(
+                        @Param("estados") List<EstadoReserva> estados,
+                        @Param("fechaFin") LocalDateTime fechaFin,
+                        @Param("desdeId") Long desdeId,
+                        Limit limite);
+
+        @Query("SELECT r.id FROM Reserva r WHERE r.estado = :estado AND r.fechaInicio < :ahora " +
+                        "AND r.fechaFin > :ahora AND r.id > :desdeId ORDER BY r.id")
+        List<Long> findIdsParaIniciarDesde(
+                        @Param("estado") EstadoReserva estado,
+                        @Param("ahora") LocalDateTime ahora,
+                        @Param("desdeId") Long desdeId,
+                        Limit limite);
+
+        // Bloquea las filas del lote que siguen en alguno de los estados: [id, estado, user_id]
+        @Query(value = "SELECT id, estado, user_id FROM reservas " +
+                        "WHERE id IN (:ids) AND estado IN (:estados) FOR UPDATE", nativeQuery = true)
+        List<Object[]> bloquearParaTransicion(
+                        @Param("ids") List<Long> ids,
+                        @Param("estados") List<String> estados);
+
+        // Retenciones PENDIENTE_PAGO vencidas (índice estado + fechaReserva), paginadas por id
+        @Query("SELECT r.id FROM Reserva r WHERE r.estado = :estado AND r.fechaReserva < :antesDe " +
+                        "AND r.id > :desdeId ORDER BY r.id")
+        List<Long> findIdsRetenidasAntesDe(
+                        @Param("estado") EstadoReserva estado,
+                        @Param("antesDe") LocalDateTime antesDe,
+                        @Param("desdeId") Long desdeId,
+                        Limit limite);
+
+        // Recursos de un lote, para tomar sus locks de BloqueoRecursoService antes que las filas
+        @Query("SELECT DISTINCT r.recurso.id FROM Reserva r WHERE r.id IN :ids")
+        List<Long> findRecursoIdsByIdIn(@Param("ids") List<Long> ids);
+
+        // Reservas del lote (ya bloqueadas con bloquearParaTransicion) con usuario, recurso y paquete
+        @Query("SELECT r FROM Reserva r JOIN FETCH r.user JOIN FETCH r.recurso " +
+                        "LEFT JOIN FETCH r.paquete p LEFT JOIN FETCH p.user WHERE r.id IN :ids")
+        List<Reserva> findParaExpirar(@Param("ids") List<Long> ids);
+
+        // UPDATE masivo: no pasa por los entity listeners, el llamador actualiza índice y contadores
+        @Modifying(flushAutomatically = true, clearAutomatically = true)
+        @Query("UPDATE Reserva r SET r.estado = :estado, r.version = r.version + 1, " +
+                        "r.lastModifiedDate = :fecha WHERE r.id IN :ids")
+        int actualizarEstadoEnLote(
+                        @Param("ids") List<Long> ids,
+                        @Param("estado") EstadoReserva estado,
+                        @Param("fecha") LocalDateTime fecha);
+
+        // Carga del índice de disponibilidad en memoria
+        @Query("SELECT r.id, r.recurso.id, r.estado, r.fechaInicio, r.fechaFin FROM Reserva r " +
+                        "WHERE r.estado IN (com.bms.reserva_servicio_backend.enums.EstadoReserva.CONFIRMADA, com.bms.reserva_servicio_backend.enums.EstadoReserva.EN_CURSO) " +
+                        "AND r.fechaFin >= :desde")
+        List<Object[]> findIntervalosActivosDesde(@Param("desde") LocalDateTime desde);
+
+        // Total de reservas históricas por recurso, en una sola consulta
+        @Query("SELECT r.recurso.id, COUNT(r) FROM Reserva r WHERE r.recurso.id IN :recursoIds GROUP BY r.recurso.id")
+        List<Object[]> contarPorRecursos(@Param("recursoIds") List<Long> recursoIds);
+
+        // Listado paginado por cursor (fechaReserva, id) con filtros opcionales
+        String FILTROS_LISTADO = "WHERE (:estado IS NULL OR r.estado = :estado) " +
+                        "AND (:tipo IS NULL OR r.tipoReserva = :tipo) " +
+                        "AND (:recursoId IS NULL OR r.recurso.id = :recursoId) " +
+                        "AND (:userId IS NULL OR r.user.id = :userId) " +
+                        "AND (:desde IS NULL OR r.fechaInicio >= :desde) " +
+                        "AND (:hasta IS NULL OR r.fechaInicio < :hasta) ";
+
+        @Query("SELECT new com.bms.reserva_servicio_backend.response.ReservaListadoResponse(" +
+                        "r.id, r.tipoReserva, r.estado, r.fechaReserva, r.fechaInicio, r.fechaFin, r.precioTotal, " +
+                        "u.id, u.nombres, u.apellidos, u.username, u.email, rec.id, rec.nombre, p.id) " +
+                        "FROM Reserva r JOIN r.user u JOIN r.recurso rec LEFT JOIN r.paquete p " +
+                        FILTROS_LISTADO +
+                        "AND (:cursorFecha IS NULL OR r.fechaReserva < :cursorFecha " +
+                        "OR (r.fechaReserva = :cursorFecha AND r.id < :cursorId)) " +
+                        "ORDER BY r.fechaReserva DESC, r.id DESC")
+        List<ReservaListadoResponse> buscarListado(
+                        @Param("estado") EstadoReserva estado,
+                        @Param("tipo") TipoReserva tipo,
+                        @Param("recursoId") Long recursoId,
+                        @Param("userId") Long userId,
+                        @Param("desde") LocalDateTime desde,
+                        @Param("hasta") LocalDateTime hasta,
+                        @Param("cursorFecha") LocalDateTime cursorFecha,
+                        @Param("cursorId") Long cursorId,
+                        Limit limite);
+
+        @Query("SELECT COUNT(r) FROM Reserva r " + FILTROS_LISTADO)
+        long contarListado(
+                        @Param("estado") EstadoReserva estado,
+                        @Param("tipo") TipoReserva tipo,
+                        @Param("recursoId") Long recursoId,
+                        @Param("userId") Long userId,
+                        @Param("desde") LocalDateTime desde,
+                        @Param("hasta") LocalDateTime hasta);
+
+        // Estimación de filas según las estadísticas de InnoDB (no recorre la tabla)
+        @Query(value = "SELECT TABLE_ROWS FROM information_schema.TABLES " +
+                        "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'reservas'", nativeQuery = true)
+        Long estimarTotalReservas();
+
+        // Agregados para el dashboard
+        @Query("SELECT r.estado, COUNT(r) FROM Reserva r GROUP BY r.estado")
+        List<Object[]> contarPorEstado();
+
+        @Query("SELECT CAST(r.fechaReserva AS LocalDate), COUNT(r) FROM Reserva r " +
+                        "WHERE r.fechaReserva >= :desde AND r.fechaReserva < :hasta " +
+                        "GROUP BY CAST(r.fechaReserva AS LocalDate)")
+        List<Object[]> contarPorDiaDeReserva(
+                        @Param("desde") LocalDateTime desde,
+                        @Param("hasta") LocalDateTime hasta);
+
+        @Query("SELECT r FROM Reserva r LEFT JOIN FETCH r.user LEFT JOIN FETCH r.recurso " +
+                        "LEFT JOIN FETCH r.paquete ORDER BY r.fechaReserva DESC, r.id DESC")
+        List<Reserva> findRecientes(Limit limite);
 }
@@ -1,9 +1,13 @@
 package com.bms.reserva_servicio_backend.repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.bms.reserva_servicio_backend.models.User;
 
@@ -18,6 +22,17 @@ public interface UserRepository extends JpaRepository<User,Long> {
     boolean existsByEmail(String email);
     boolean existsByDocumento(String documento);
 
+    // Conteos para el dashboard
+    long countByEnabledTrue();
+
+    @Query("SELECT CAST(u.fechaRegistro AS LocalDate), COUNT(u) FROM User u " +
+            "WHERE u.fechaRegistro >= :desde GROUP BY CAST(u.fechaRegistro AS LocalDate)")
+    List<Object[]> contarRegistrosPorDia(@Param("desde") LocalDateTime desde);
+
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password WHERE u.username = :username")
+    int actualizarPassword(@Param("username") String username, @Param("password") String password);
+
 
 
 
@@ -0,0 +1,112 @@
+package com.bms.reserva_servicio_backend.request;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Generación masiva de bloques horarios: servicios × rango de fechas × plantilla semanal
+ */
+public class GenerarBloquesRangoRequest {
+
+    @NotEmpty(message = "Debe indicar al menos un servicio")
+    private List<Long> servicioIds = new ArrayList<>();
+
+    @NotNull(message = "La fecha de inicio es obligatoria")
+    private LocalDate fechaInicio;
+
+    @NotNull(message = "La fecha de fin es obligatoria")
+    private LocalDate fechaFin;
+
+    @NotNull(message = "La duración del bloque es obligatoria")
+    @Min(value = 15, message = "La duración mínima es 15 minutos")
+    private Integer duracionBloqueMinutos;
+
+    // Plantilla semanal: horario por día de la semana. Los días que no aparecen no se generan
+    @NotEmpty(message = "La plantilla semanal debe tener al menos un día")
+    @Valid
+    private List<HorarioDia> plantilla = new ArrayList<>();
+
+    public List<Long> getServicioIds() {
+        return servicioIds;
+    }
+
+    public void setServicioIds(List<Long> servicioIds) {
+        this.servicioIds = servicioIds;
+    }
+
+    public LocalDate getFechaInicio() {
+        return fechaInicio;
+    }
+
+    public void setFechaInicio(LocalDate fechaInicio) {
+        this.fechaInicio = fechaInicio;
+    }
+
+    public LocalDate getFechaFin() {
+        return fechaFin;
+    }
+
+    public void setFechaFin(LocalDate fechaFin) {
+        this.fechaFin = fechaFin;
+    }
+
+    public Integer getDuracionBloqueMinutos() {
+        return duracionBloqueMinutos;
+    }
+
+    public void setDuracionBloqueMinutos(Integer duracionBloqueMinutos) {
+        this.duracionBloqueMinutos = duracionBloqueMinutos;
+    }
+
+    public List<HorarioDia> getPlantilla() {
+        return plantilla;
+    }
+
+    public void setPlantilla(List<HorarioDia> plantilla) {
+        this.plantilla = plantilla;
+    }
+
+    public static class HorarioDia {
+
+        @NotNull(message = "El día de la semana es obligatorio")
+        private DayOfWeek diaSemana;
+
+        @NotNull(message = "La hora de apertura es obligatoria")
+        private LocalTime horaApertura;
+
+        @NotNull(message = "La hora de cierre es obligatoria")
+        private LocalTime horaCierre;
+
+        public DayOfWeek getDiaSemana() {
+            return diaSemana;
+        }
+
+        public void setDiaSemana(DayOfWeek diaSemana) {
+            this.diaSemana = diaSemana;
+        }
+
+        public LocalTime getHoraApertura() {
+            return horaApertura;
+        }
+
+        public void setHoraApertura(LocalTime horaApertura) {
+            this.horaApertura = horaApertura;
+        }
+
+        public LocalTime getHoraCierre() {
+            return horaCierre;
+        }
+
+        public void setHoraCierre(LocalTime horaCierre) {
+            this.horaCierre = horaCierre;
+        }
+    }
+}
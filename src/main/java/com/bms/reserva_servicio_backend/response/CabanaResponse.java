@@ -38,5 +38,6 @@ public class CabanaResponse {
     // Imágenes
     private List<RecursoImagen> imagenes;
     private String imagenPrincipalUrl;
+    private String imagenPrincipalMiniaturaUrl; // Miniatura para tarjetas; el original si aún no existe
 
 }
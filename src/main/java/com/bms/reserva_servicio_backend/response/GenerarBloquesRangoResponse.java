@@ -0,0 +1,34 @@
+package com.bms.reserva_servicio_backend.response;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resultado de la generación masiva de bloques horarios
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GenerarBloquesRangoResponse {
+    private Integer bloquesCreados;
+    private Integer bloquesDuplicados;
+    private Integer diasProcesados;
+    private List<ResumenDia> detallePorDia;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ResumenDia {
+        private Long servicioId;
+        private LocalDate fecha;
+        private Integer creados;
+        private Integer duplicados;
+    }
+}
@@ -0,0 +1,25 @@
+package com.bms.reserva_servicio_backend.response;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Página de resultados con paginación por cursor (keyset)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaCursorResponse<T> {
+
+    private List<T> contenido;
+    private String siguienteCursor;   // null si no hay más resultados
+    private Boolean hayMas;
+    private Long totalEstimado;       // Solo se calcula en la primera página
+    private Boolean totalExacto;      // false cuando es una estimación de las estadísticas de MySQL
+
+}
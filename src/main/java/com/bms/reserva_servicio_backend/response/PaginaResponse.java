@@ -0,0 +1,22 @@
+package com.bms.reserva_servicio_backend.response;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaResponse<T> {
+
+    private List<T> contenido;
+    private Integer pagina;
+    private Integer tamano;
+    private Long totalElementos;
+    private Integer totalPaginas;
+
+}
@@ -38,4 +38,5 @@ public class RecursoResponse {
     // Imágenes
     private List<RecursoImagen> imagenes;
     private String imagenPrincipalUrl;
+    private String imagenPrincipalMiniaturaUrl; // Miniatura para tarjetas; el original si aún no existe
 }
@@ -0,0 +1,59 @@
+package com.bms.reserva_servicio_backend.response;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import com.bms.reserva_servicio_backend.enums.EstadoReserva;
+import com.bms.reserva_servicio_backend.enums.TipoReserva;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Fila del listado paginado de reservas (proyección directa desde la consulta,
+ * sin cargar items ni paquete)
+ */
+@Data
+@NoArgsConstructor
+public class ReservaListadoResponse {
+
+    private Long id;
+    private String tipoReserva;
+    private String estado;
+
+    private LocalDateTime fechaReserva;
+    private LocalDateTime fechaInicio;
+    private LocalDateTime fechaFin;
+
+    private BigDecimal precioTotal;
+
+    private Long userId;
+    private String nombreUsuario;
+    private String emailUsuario;
+
+    private Long recursoId;
+    private String nombreRecurso;
+
+    private Long paqueteId;
+
+    // Usado por la expresión constructora de ReservaRepository.buscarListado
+    public ReservaListadoResponse(Long id, TipoReserva tipoReserva, EstadoReserva estado,
+            LocalDateTime fechaReserva, LocalDateTime fechaInicio, LocalDateTime fechaFin,
+            BigDecimal precioTotal, Long userId, String nombres, String apellidos, String username,
+            String emailUsuario, Long recursoId, String nombreRecurso, Long paqueteId) {
+        this.id = id;
+        this.tipoReserva = tipoReserva != null ? tipoReserva.name() : null;
+        this.estado = estado != null ? estado.name() : null;
+        this.fechaReserva = fechaReserva;
+        this.fechaInicio = fechaInicio;
+        this.fechaFin = fechaFin;
+        this.precioTotal = precioTotal;
+        this.userId = userId;
+        this.nombreUsuario = nombres != null && apellidos != null ? nombres + " " + apellidos
+                : nombres != null ? nombres : username;
+        this.emailUsuario = emailUsuario;
+        this.recursoId = recursoId;
+        this.nombreRecurso = nombreRecurso;
+        this.paqueteId = paqueteId;
+    }
+}
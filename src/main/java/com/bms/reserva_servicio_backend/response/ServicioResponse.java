@@ -42,5 +42,6 @@ public class ServicioResponse {
     // Imágenes
     private List<RecursoImagen> imagenes;
     private String imagenPrincipalUrl;
+    private String imagenPrincipalMiniaturaUrl; // Miniatura para tarjetas; el original si aún no existe
 
 }
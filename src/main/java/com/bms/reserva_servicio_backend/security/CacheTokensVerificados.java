@@ -0,0 +1,67 @@
+package com.bms.reserva_servicio_backend.security;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+/**
+ * Tokens JWT ya verificados, para no repetir la verificación de firma y el
+ * parseo de claims en cada request del mismo token.
+ *
+ * La clave es la firma del token (último segmento), pero una entrada solo se usa
+ * si el token completo coincide, así una firma válida no sirve con otro payload.
+ * Se guardan el usuario y los roles, no la Authentication: cada request recibe
+ * una nueva, que puede modificar sin afectar a las demás. Las entradas vencen
+ * con la expiración del token; al llenarse se descarta la usada hace más tiempo.
+ */
+public class CacheTokensVerificados {
+
+    private final Map<String, Entrada> entradas;
+
+    public CacheTokensVerificados(int maxEntradas) {
+        // Orden de acceso: la primera entrada es la menos usada
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> eldest) {
+                return size() > maxEntradas;
+            }
+        };
+    }
+
+    /**
+     * Nueva Authentication del token si ya fue verificado y no expiró; null si no
+     */
+    public Authentication obtener(String token) {
+        String firma = firma(token);
+        Entrada entrada;
+        synchronized (entradas) {
+            entrada = entradas.get(firma);
+            if (entrada == null || !entrada.token.equals(token)) {
+                return null;
+            }
+            if (entrada.expiraEn <= System.currentTimeMillis()) {
+                entradas.remove(firma);
+                return null;
+            }
+        }
+        return UsernamePasswordAuthenticationToken.authenticated(entrada.usuario, null, entrada.authorities);
+    }
+
+    public void guardar(String token, String usuario, List<GrantedAuthority> authorities, long expiraEn) {
+        Entrada entrada = new Entrada(token, usuario, List.copyOf(authorities), expiraEn);
+        synchronized (entradas) {
+            entradas.put(firma(token), entrada);
+        }
+    }
+
+    private static String firma(String token) {
+        return token.substring(token.lastIndexOf('.') + 1);
+    }
+
+    private record Entrada(String token, String usuario, List<GrantedAuthority> authorities, long expiraEn) {
+    }
+}
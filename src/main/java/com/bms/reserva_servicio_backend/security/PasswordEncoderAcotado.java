@@ -0,0 +1,126 @@
+package com.bms.reserva_servicio_backend.security;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.bms.reserva_servicio_backend.exception.VerificacionSaturadaException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * PasswordEncoder que calcula los hashes en un pool propio y acotado, para que
+ * una ráfaga de logins no ocupe la CPU de los hilos de request.
+ *
+ * Si la cola del pool está llena, o la espera supera el máximo configurado, se
+ * lanza VerificacionSaturadaException sin calcular el hash (el login responde
+ * 429). La actualización de hashes antiguos solo se pide cuando la cola está
+ * vacía, así un login válido no se rechaza por recodificar la contraseña.
+ *
+ * Métricas: auth.password.hash (tag "operacion": verificar, codificar; con
+ * percentiles), auth.password.cola, auth.password.activos y
+ * auth.password.rechazos.
+ */
+public class PasswordEncoderAcotado implements PasswordEncoder, AutoCloseable {
+
+    private final PasswordEncoder delegado;
+    private final ThreadPoolExecutor executor;
+    private final long esperaMaximaMs;
+
+    private final Timer tiempoVerificar;
+    private final Timer tiempoCodificar;
+    private final Counter rechazos;
+
+    public PasswordEncoderAcotado(PasswordEncoder delegado, int hilos, int capacidadCola, long esperaMaximaMs,
+            MeterRegistry meterRegistry) {
+        this.delegado = delegado;
+        this.esperaMaximaMs = esperaMaximaMs;
+
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadCola), r -> {
+                    Thread hilo = new Thread(r, "password-" + contador.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        this.tiempoVerificar = temporizador(meterRegistry, "verificar");
+        this.tiempoCodificar = temporizador(meterRegistry, "codificar");
+        this.rechazos = Counter.builder("auth.password.rechazos")
+                .description("Verificaciones rechazadas por pool saturado")
+                .register(meterRegistry);
+        Gauge.builder("auth.password.cola", executor, e -> e.getQueue().size())
+                .description("Hashes esperando un hilo libre")
+                .register(meterRegistry);
+        Gauge.builder("auth.password.activos", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Hashes en cálculo")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return ejecutar(() -> tiempoCodificar.record(() -> delegado.encode(rawPassword)));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return ejecutar(() -> tiempoVerificar.record(() -> delegado.matches(rawPassword, encodedPassword)));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return executor.getQueue().isEmpty() && delegado.upgradeEncoding(encodedPassword);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private <T> T ejecutar(Callable<T> tarea) {
+        Future<T> futuro;
+        try {
+            futuro = executor.submit(tarea);
+        } catch (RejectedExecutionException e) {
+            rechazos.increment();
+            throw new VerificacionSaturadaException("Demasiadas solicitudes de autenticación, intente nuevamente");
+        }
+
+        try {
+            return futuro.get(esperaMaximaMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            futuro.cancel(false);
+            rechazos.increment();
+            throw new VerificacionSaturadaException("Demasiadas solicitudes de autenticación, intente nuevamente");
+        } catch (InterruptedException e) {
+            futuro.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new VerificacionSaturadaException("Verificación de contraseña interrumpida");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static Timer temporizador(MeterRegistry meterRegistry, String operacion) {
+        return Timer.builder("auth.password.hash")
+                .description("Tiempo de cálculo del hash de contraseña")
+                .tag("operacion", operacion)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
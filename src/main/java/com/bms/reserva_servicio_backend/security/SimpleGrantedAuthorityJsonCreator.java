@@ -1,12 +0,0 @@
-package com.bms.reserva_servicio_backend.security;
-
-import com.fasterxml.jackson.annotation.JsonCreator;
-import com.fasterxml.jackson.annotation.JsonProperty;
-
-public abstract class SimpleGrantedAuthorityJsonCreator {
-
-    @JsonCreator
-    public SimpleGrantedAuthorityJsonCreator(@JsonProperty("authority") String role) {
-    }
-
-}
@@ -0,0 +1,31 @@
+package com.bms.reserva_servicio_backend.security;
+
+import java.util.Collection;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+/**
+ * Principal del login con el id y el email del usuario cargado por
+ * JpaUsersDetailsService, para no volver a consultarlo al emitir el token.
+ */
+public class UsuarioAutenticado extends User {
+
+    private final Long id;
+    private final String email;
+
+    public UsuarioAutenticado(Long id, String email, String username, String password, boolean enabled,
+            Collection<? extends GrantedAuthority> authorities) {
+        super(username, password, enabled, true, true, true, authorities);
+        this.id = id;
+        this.email = email;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+}
@@ -15,7 +15,10 @@ import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import com.bms.reserva_servicio_backend.exception.VerificacionSaturadaException;
 import com.bms.reserva_servicio_backend.models.User;
+import com.bms.reserva_servicio_backend.security.UsuarioAutenticado;
+import com.bms.reserva_servicio_backend.service.RegistroUltimoAccesoService;
 import com.bms.reserva_servicio_backend.service.UserService;
 import com.fasterxml.jackson.core.exc.StreamReadException;
 import com.fasterxml.jackson.databind.DatabindException;
@@ -31,12 +34,17 @@ import static com.bms.reserva_servicio_backend.security.TokenJWTConfig.*;
 
 public class JwtAuthenticationFilter extends UsernamePasswordAuthenticationFilter {
 
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     private AuthenticationManager authenticationManager;
     private UserService userService;
+    private RegistroUltimoAccesoService registroUltimoAcceso;
 
-    public JwtAuthenticationFilter(AuthenticationManager authenticationManager, UserService userService) {
+    public JwtAuthenticationFilter(AuthenticationManager authenticationManager, UserService userService,
+            RegistroUltimoAccesoService registroUltimoAcceso) {
         this.authenticationManager = authenticationManager;
         this.userService = userService;
+        this.registroUltimoAcceso = registroUltimoAcceso;
     }
 
     @Override
@@ -48,7 +56,7 @@ public class JwtAuthenticationFilter extends UsernamePasswordAuthenticationFilte
         String password = null;
 
         try {
-            user = new ObjectMapper().readValue(request.getInputStream(), User.class);
+            user = MAPPER.readValue(request.getInputStream(), User.class);
             username = user.getUsername();
             password = user.getPassword();
         } catch (StreamReadException e) {
@@ -74,28 +82,31 @@ public class JwtAuthenticationFilter extends UsernamePasswordAuthenticationFilte
         String username = userDetails.getUsername();
         Collection<? extends GrantedAuthority> roles = authResult.getAuthorities();
 
-        // Obtener el usuario completo desde la base de datos para tener el ID y email
-        User appUser = null;
-        try {
-            appUser = userService.findByUsername(username);
-        } catch (Exception e) {
-            System.err.println("Error al obtener usuario: " + e.getMessage());
+        // El id y el email vienen del usuario ya cargado por JpaUsersDetailsService
+        Long userId = null;
+        String email = username;
+        if (userDetails instanceof UsuarioAutenticado autenticado) {
+            userId = autenticado.getId();
+            email = autenticado.getEmail() != null ? autenticado.getEmail() : username;
+        } else {
+            try {
+                User appUser = userService.findByUsername(username);
+                userId = appUser.getId();
+                email = appUser.getEmail();
+            } catch (Exception e) {
+                // El token se emite igual, sin id y con el username como email
+                logger.warn("No se pudo obtener el usuario " + username + " para el token: " + e.getMessage(), e);
+            }
         }
 
-        // Actualizar último acceso del usuario
-        try {
-            userService.updateUltimoAcceso(username);
-        } catch (Exception e) {
-            // Log error pero no interrumpir el login
-            System.err.println("Error al actualizar último acceso: " + e.getMessage());
-        }
+        // El último acceso se guarda en diferido, fuera del login
+        registroUltimoAcceso.registrar(userId);
 
         // Construir los claims del token con toda la información necesaria
         Claims claims = Jwts.claims()
-                .add("authorities", new ObjectMapper().writeValueAsString(roles))
                 .add("username", username)
-                .add("userId", appUser != null ? appUser.getId() : null)
-                .add("email", appUser != null ? appUser.getEmail() : username)
+                .add("userId", userId)
+                .add("email", email)
                 .add("roles", roles.stream()
                         .map(GrantedAuthority::getAuthority)
                         .toArray(String[]::new))
@@ -114,11 +125,11 @@ public class JwtAuthenticationFilter extends UsernamePasswordAuthenticationFilte
         Map<String, Object> body = new HashMap<>();
         body.put("token", token);
         body.put("username", username);
-        body.put("userId", appUser != null ? appUser.getId() : null);
-        body.put("email", appUser != null ? appUser.getEmail() : username);
+        body.put("userId", userId);
+        body.put("email", email);
         body.put("message", String.format("Hola %s, has iniciado sesión con éxito", username));
 
-        response.getWriter().write(new ObjectMapper().writeValueAsString(body));
+        response.getWriter().write(MAPPER.writeValueAsString(body));
         response.setStatus(200);
         response.setContentType(CONTENT_TYPE_JSON);
 
@@ -127,10 +138,20 @@ public class JwtAuthenticationFilter extends UsernamePasswordAuthenticationFilte
     @Override
     protected void unsuccessfulAuthentication(HttpServletRequest request, HttpServletResponse response,
             AuthenticationException failed) throws IOException, ServletException {
+        if (failed instanceof VerificacionSaturadaException) {
+            Map<String, String> body = new HashMap<>();
+            body.put("message", failed.getMessage());
+            response.getWriter().write(MAPPER.writeValueAsString(body));
+            response.setStatus(429);
+            response.setHeader("Retry-After", "1");
+            response.setContentType(CONTENT_TYPE_JSON);
+            return;
+        }
+
         Map<String, String> body = new HashMap<>();
         body.put("message", "Error de autenticación: username o password incorrecto");
         body.put("error", failed.getMessage());
-        response.getWriter().write(new ObjectMapper().writeValueAsString(body));
+        response.getWriter().write(MAPPER.writeValueAsString(body));
         response.setStatus(401);
         response.setContentType(CONTENT_TYPE_JSON);
 
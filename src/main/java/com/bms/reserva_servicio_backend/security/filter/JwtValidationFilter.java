@@ -3,31 +3,51 @@ package com.bms.reserva_servicio_backend.security.filter;
 import static com.bms.reserva_servicio_backend.security.TokenJWTConfig.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 
-import com.bms.reserva_servicio_backend.security.SimpleGrantedAuthorityJsonCreator;
+import com.bms.reserva_servicio_backend.security.CacheTokensVerificados;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.lang.Arrays;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
+/**
+ * Valida el token JWT de cada request.
+ *
+ * El parser y el ObjectMapper se comparten entre requests, los roles vienen como
+ * arreglo de strings en el claim "roles" y los tokens ya verificados se guardan
+ * en CacheTokensVerificados hasta su expiración, así un mismo token no vuelve a
+ * verificar la firma ni a parsear los claims en cada request. El benchmark
+ * JwtValidacionBenchmark (perfil benchmark) mide ambos caminos.
+ */
 public class JwtValidationFilter extends BasicAuthenticationFilter {
 
+    private static final int MAX_TOKENS_EN_CACHE = 10_000;
+
+    private static final JwtParser PARSER = Jwts.parser().verifyWith(SECRET_KEY).build();
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final CacheTokensVerificados tokensVerificados = new CacheTokensVerificados(MAX_TOKENS_EN_CACHE);
+
     public JwtValidationFilter(AuthenticationManager authenticationManager) {
         super(authenticationManager);
     }
@@ -41,34 +61,46 @@ public class JwtValidationFilter extends BasicAuthenticationFilter {
             chain.doFilter(request, response);
             return;
         }
-        String token = header.replace(PREFIX_TOKEN, "");
-        try {
-            Claims claims = Jwts.parser()
-                    .verifyWith(SECRET_KEY).build().parseSignedClaims(token).getPayload();
-            String username = claims.getSubject();
-            Object authoritiesClaims = claims.get("authorities");
-
-            Collection<? extends GrantedAuthority> authorities = Arrays.asList(new ObjectMapper()
-                    .addMixIn(SimpleGrantedAuthority.class, SimpleGrantedAuthorityJsonCreator.class)
-                    .readValue(authoritiesClaims.toString().getBytes(), SimpleGrantedAuthority[].class));
-            UsernamePasswordAuthenticationToken uAuthenticationToken = new UsernamePasswordAuthenticationToken(username,
-                    null, authorities);
-
-            SecurityContextHolder.getContext().setAuthentication(uAuthenticationToken);
-
-            chain.doFilter(request, response);
+        String token = header.substring(PREFIX_TOKEN.length());
+
+        Authentication autenticacion = tokensVerificados.obtener(token);
+        if (autenticacion == null) {
+            try {
+                Claims claims = PARSER.parseSignedClaims(token).getPayload();
+                List<GrantedAuthority> authorities = authorities(claims);
+                autenticacion = UsernamePasswordAuthenticationToken.authenticated(claims.getSubject(), null,
+                        authorities);
+                if (claims.getExpiration() != null) {
+                    tokensVerificados.guardar(token, claims.getSubject(), authorities,
+                            claims.getExpiration().getTime());
+                }
+            } catch (JwtException e) {
+                Map<String, String> body = new HashMap<>();
+                body.put("error", e.getMessage());
+                body.put("message", "El token JWT es inválido o ha expirado");
+
+                response.getWriter().write(MAPPER.writeValueAsString(body));
+                response.setStatus(401);
+                response.setContentType(CONTENT_TYPE_JSON);
+                return;
+            }
+        }
 
-        } catch (JwtException e) {
-            Map<String, String> body = new HashMap<>();
-            body.put("error", e.getMessage());
-            body.put("message", "El token JWT es inválido o ha expirado");
+        SecurityContextHolder.getContext().setAuthentication(autenticacion);
 
-            response.getWriter().write(new ObjectMapper().writeValueAsString(body));
-            response.setStatus(401);
-            response.setContentType(CONTENT_TYPE_JSON);
+        chain.doFilter(request, response);
+    }
 
+    private static List<GrantedAuthority> authorities(Claims claims) {
+        Object roles = claims.get("roles");
+        if (!(roles instanceof Collection<?> lista)) {
+            return List.of();
         }
-
+        List<GrantedAuthority> authorities = new ArrayList<>(lista.size());
+        for (Object rol : lista) {
+            authorities.add(new SimpleGrantedAuthority(rol.toString()));
+        }
+        return Collections.unmodifiableList(authorities);
     }
 
 }
@@ -1,33 +1,191 @@
 package com.bms.reserva_servicio_backend.service;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bms.reserva_servicio_backend.models.AuditoriaMarca;
+import com.bms.reserva_servicio_backend.models.HallazgoAuditoria.TipoHallazgo;
+import com.bms.reserva_servicio_backend.repository.AuditoriaMarcaRepository;
 
 /**
  * Servicio para ejecutar auditorías programadas del sistema
  * - Verifica integridad de datos
  * - Detecta problemas de stock
  * - Identifica items en recursos incorrectos
+ *
+ * Las auditorías son incrementales: con la marca de agua guardada en
+ * auditoria_marcas solo se revisan las reservas modificadas desde la última
+ * ejecución (last_modified_date), los items reservados nuevos (por id, la
+ * tabla no tiene fecha de modificación), los items de inventario editados
+ * (ultima_modificacion) o tocados por esas reservas o por movimientos de
+ * inventario, y las entidades con hallazgos todavía abiertos. La marca retrocede unos minutos (solape) para no perder
+ * filas de transacciones que seguían abiertas al tomarla.
+ *
+ * Los problemas se guardan en auditoria_hallazgos: se abren al detectarse y se
+ * marcan resueltos cuando una ejecución ya no los encuentra. La auditoría
+ * completa (sin marca) se ejecuta a pedido y, como red de seguridad para lo
+ * que no deja rastro en las marcas, semanalmente (app.auditoria.completa.cron).
+ *
+ * La auditoría rápida revisa solo items en recursos incorrectos y stock, con
+ * su propia marca.
  */
 @Service
 public class AuditoriaSchedulerService {
 
     private static final Logger logger = LoggerFactory.getLogger(AuditoriaSchedulerService.class);
 
+    private static final String MARCA = "integridad";
+    private static final String MARCA_RAPIDA = "integridad-rapida";
+
+    private static final Set<TipoHallazgo> TIPOS_RAPIDA =
+            EnumSet.of(TipoHallazgo.ITEM_RECURSO_INCORRECTO, TipoHallazgo.STOCK_INCONSISTENTE);
+
+    private static final int LARGO_DETALLE = 500;
+
+    private static final String SQL_ITEMS_INCORRECTOS = """
+            SELECT ir.id AS entidad_id, ir.reserva_id, ii.nombre AS item_nombre,
+                   rec_item.nombre AS recurso_item, rec_reserva.nombre AS recurso_reserva
+            FROM items_reservados ir
+            JOIN items_inventario ii ON ir.item_id = ii.id
+            JOIN reservas r ON ir.reserva_id = r.id
+            JOIN recursos rec_reserva ON r.recurso_id = rec_reserva.id
+            JOIN recursos rec_item ON ii.recurso_id = rec_item.id
+            WHERE ii.recurso_id <> r.recurso_id
+            """;
+
+    private static final String SQL_RESERVAS_SIN_USUARIO =
+            "SELECT r.id AS entidad_id FROM reservas r WHERE r.user_id IS NULL";
+
+    private static final String SQL_RESERVAS_SIN_RECURSO =
+            "SELECT r.id AS entidad_id FROM reservas r WHERE r.recurso_id IS NULL";
+
+    private static final String SQL_ITEMS_HUERFANOS = """
+            SELECT ir.id AS entidad_id, ir.reserva_id, ir.item_id
+            FROM items_reservados ir
+            WHERE (NOT EXISTS (SELECT 1 FROM reservas r WHERE r.id = ir.reserva_id)
+                OR NOT EXISTS (SELECT 1 FROM items_inventario ii WHERE ii.id = ir.item_id))
+            """;
+
+    private static final String SQL_FECHAS_INCORRECTAS = """
+            SELECT r.id AS entidad_id, r.estado, r.fecha_inicio, r.fecha_fin,
+                   CASE WHEN r.fecha_fin < r.fecha_inicio THEN 'FIN_ANTES_DE_INICIO'
+                        ELSE 'DEBERIA_ESTAR_COMPLETADA' END AS validacion
+            FROM reservas r
+            WHERE r.estado NOT IN ('CANCELADA')
+            AND (
+                r.fecha_fin < r.fecha_inicio
+                OR (r.fecha_fin < NOW() AND r.estado NOT IN ('COMPLETADA', 'CANCELADA'))
+            )
+            """;
+
+    // Items de inventario cuyo stock pudo cambiar desde la marca
+    private static final String SQL_ITEMS_STOCK_MODIFICADOS = """
+            SELECT ir.item_id FROM items_reservados ir
+            JOIN reservas r ON r.id = ir.reserva_id
+            WHERE r.last_modified_date > :desde
+            UNION
+            SELECT ir.item_id FROM items_reservados ir WHERE ir.id > :desdeItemReservado
+            UNION
+            SELECT m.item_id FROM movimientos_inventario m WHERE m.fecha_movimiento > :desde
+            UNION
+            SELECT ii.id FROM items_inventario ii WHERE ii.ultima_modificacion > :desde
+            UNION
+            SELECT h.entidad_id FROM auditoria_hallazgos h WHERE h.tipo = :tipo AND h.resuelto_en IS NULL
+            """;
+
+    private static final String FILTRO_RESERVA_MODIFICADA = "r.last_modified_date > :desde";
+    private static final String FILTRO_ITEM_RESERVADO_NUEVO = "ir.id > :desdeItemReservado";
+    // Items de inventario editados (p. ej. movidos a otro recurso)
+    private static final String FILTRO_ITEM_MODIFICADO = "ii.ultima_modificacion > :desde";
+    // Reservas que vencieron desde la marca sin haber sido modificadas
+    private static final String FILTRO_RESERVA_VENCIDA = "r.fecha_fin > :desde";
+
+    private static final String SQL_ABIERTOS =
+            "SELECT entidad_id FROM auditoria_hallazgos WHERE tipo = :tipo AND resuelto_en IS NULL";
+
+    private static final String SQL_ACTUALIZAR_HALLAZGO = "UPDATE auditoria_hallazgos "
+            + "SET ultima_deteccion = :fecha, detalle = :detalle "
+            + "WHERE tipo = :tipo AND entidad_id = :entidadId AND resuelto_en IS NULL";
+
+    private static final String SQL_INSERTAR_HALLAZGO = "INSERT INTO auditoria_hallazgos "
+            + "(tipo, entidad_id, detalle, primera_deteccion, ultima_deteccion) "
+            + "VALUES (:tipo, :entidadId, :detalle, :fecha, :fecha)";
+
+    // Todo hallazgo abierto entra en el alcance: si esta ejecución no lo detectó, ya no existe
+    private static final String SQL_RESOLVER_HALLAZGOS = "UPDATE auditoria_hallazgos SET resuelto_en = :fecha "
+            + "WHERE tipo = :tipo AND resuelto_en IS NULL AND ultima_deteccion < :fecha";
+
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Autowired
+    private AuditoriaStockService auditoriaStock;
+
+    @Autowired
+    private AuditoriaMarcaRepository marcaRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.auditoria.solape-minutos:10}")
+    private long solapeMinutos;
+
+    private final ReentrantLock enEjecucion = new ReentrantLock();
+
+    /**
+     * Resultado de una ejecución: hallazgos abiertos por tipo después de la
+     * ejecución y cuántos se resolvieron
+     *
+     * @param desde marca usada (con el solape), o null si fue completa
+     */
+    public record ResultadoAuditoria(boolean completa, LocalDateTime desde, Map<TipoHallazgo, Integer> detectados,
+            int resueltos) {
+
+        public int totalDetectados() {
+            return detectados.values().stream().mapToInt(Integer::intValue).sum();
+        }
+    }
+
+    /**
+     * Qué filas revisar: todas, o las modificadas después de la marca
+     */
+    private record Alcance(boolean completa, LocalDateTime desde, long desdeItemReservado) {
+    }
+
+    private record Deteccion(Long entidadId, String detalle) {
+    }
+
     /**
-     * Auditoría completa que se ejecuta diariamente a las 2 AM
+     * Auditoría incremental que se ejecuta diariamente a las 2 AM
      */
     @Scheduled(cron = "0 0 2 * * *")
     public void auditoriaDiaria() {
@@ -37,19 +195,9 @@ public class AuditoriaSchedulerService {
         logger.info("==========================================");
 
         try {
-            // 1. Auditar items en recursos incorrectos
-            auditarItemsIncorrectos();
-
-            // 2. Auditar stock inconsistente
-            auditarStockInconsistente();
-
-            // 3. Auditar integridad referencial
-            auditarIntegridadReferencial();
-
-            // 4. Auditar reservas con fechas incorrectas
-            auditarFechasIncorrectas();
-
-            logger.info("AUDITORÍA DIARIA COMPLETADA EXITOSAMENTE");
+            ResultadoAuditoria resultado = ejecutar(false);
+            logger.info("AUDITORÍA DIARIA COMPLETADA EXITOSAMENTE: {} hallazgos abiertos, {} resueltos",
+                    resultado.totalDetectados(), resultado.resueltos());
 
         } catch (Exception e) {
             logger.error("ERROR EN AUDITORÍA DIARIA: {}", e.getMessage(), e);
@@ -58,6 +206,18 @@ public class AuditoriaSchedulerService {
         logger.info("==========================================\n");
     }
 
+    /**
+     * Auditoría completa periódica, por defecto los domingos a las 4 AM
+     */
+    @Scheduled(cron = "${app.auditoria.completa.cron:0 0 4 * * SUN}")
+    public void auditoriaCompletaProgramada() {
+        try {
+            ejecutar(true);
+        } catch (Exception e) {
+            logger.error("Error en auditoría completa: {}", e.getMessage(), e);
+        }
+    }
+
     /**
      * Auditoría rápida cada 6 horas para detectar problemas críticos
      */
@@ -66,9 +226,10 @@ public class AuditoriaSchedulerService {
         logger.info("Ejecutando auditoría rápida...");
 
         try {
-            // Solo verificar problemas críticos
-            int itemsIncorrectos = contarItemsIncorrectos();
-            int stockInconsistente = contarStockInconsistente();
+            // Incremental y solo los chequeos críticos, con su propia marca
+            ResultadoAuditoria resultado = ejecutar(MARCA_RAPIDA, false, TIPOS_RAPIDA);
+            int itemsIncorrectos = resultado.detectados().getOrDefault(TipoHallazgo.ITEM_RECURSO_INCORRECTO, 0);
+            int stockInconsistente = resultado.detectados().getOrDefault(TipoHallazgo.STOCK_INCONSISTENTE, 0);
 
             if (itemsIncorrectos > 0 || stockInconsistente > 0) {
                 logger.warn("PROBLEMAS DETECTADOS:");
@@ -89,185 +250,207 @@ public class AuditoriaSchedulerService {
         }
     }
 
-    private void auditarItemsIncorrectos() {
-        logger.info("Auditando items en recursos incorrectos...");
-
-        String sql = """
-            SELECT COUNT(*) FROM items_reservados ir
-            JOIN items_inventario ii ON ir.item_id = ii.id
-            JOIN reservas r ON ir.reserva_id = r.id
-            WHERE ii.recurso_id != r.recurso_id
-            """;
+    /**
+     * Ejecutar las auditorías de integridad y registrar los hallazgos
+     *
+     * @param completa revisar todas las filas en lugar de solo las modificadas
+     *                 desde la última ejecución (sin marca previa siempre es completa)
+     * @throws IllegalStateException si ya hay una ejecución en curso
+     */
+    public ResultadoAuditoria ejecutar(boolean completa) {
+        return ejecutar(MARCA, completa, EnumSet.allOf(TipoHallazgo.class));
+    }
 
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class);
-
-        if (count != null && count > 0) {
-            logger.error("CRÍTICO: {} items asociados a recursos incorrectos", count);
-
-            // Obtener detalles
-            String sqlDetalle = """
-                SELECT
-                    ir.id as item_reservado_id,
-                    ir.reserva_id,
-                    ii.nombre as item_nombre,
-                    r_recurso.nombre as recurso_reserva,
-                    i_recurso.nombre as recurso_item
-                FROM items_reservados ir
-                JOIN items_inventario ii ON ir.item_id = ii.id
-                JOIN reservas r ON ir.reserva_id = r.id
-                JOIN recursos r_recurso ON r.recurso_id = r_recurso.id
-                JOIN recursos i_recurso ON ii.recurso_id = i_recurso.id
-                WHERE ii.recurso_id != r.recurso_id
-                LIMIT 5
-                """;
-
-            List<Map<String, Object>> detalles = jdbcTemplate.queryForList(sqlDetalle);
-            for (Map<String, Object> detalle : detalles) {
-                logger.error("  Item '{}' de '{}' en reserva de '{}'",
-                           detalle.get("item_nombre"),
-                           detalle.get("recurso_item"),
-                           detalle.get("recurso_reserva"));
+    private ResultadoAuditoria ejecutar(String nombreMarca, boolean completa, Set<TipoHallazgo> tipos) {
+        if (!enEjecucion.tryLock()) {
+            throw new IllegalStateException("Ya hay una auditoría de integridad en ejecución");
+        }
+        try {
+            // La nueva marca se toma antes de leer: lo modificado durante la ejecución entra en la siguiente
+            LocalDateTime inicio = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+            Long ultimoItemReservado = jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(MAX(id), 0) FROM items_reservados", Long.class);
+
+            Alcance alcance = completa ? null : marcaRepository.findById(nombreMarca)
+                    .map(m -> new Alcance(false, m.getMarcaFecha().minusMinutes(solapeMinutos),
+                            m.getMarcaItemReservadoId()))
+                    .orElse(null);
+            if (alcance == null) {
+                alcance = new Alcance(true, null, 0);
             }
-        } else {
-            logger.info("No hay items en recursos incorrectos");
+            logger.info("Auditoría de integridad '{}' {}", nombreMarca, alcance.completa() ? "completa"
+                    : "incremental desde " + alcance.desde() + " (item reservado > " + alcance.desdeItemReservado() + ")");
+
+            Map<TipoHallazgo, Integer> detectados = new EnumMap<>(TipoHallazgo.class);
+            int resueltos = 0;
+            // EnumSet itera en el orden de declaración de los tipos
+            for (TipoHallazgo tipo : tipos) {
+                resueltos += registrar(tipo, auditar(tipo, alcance), inicio, detectados);
+            }
+
+            // Solo se avanza la marca si todas las auditorías terminaron
+            marcaRepository.save(new AuditoriaMarca(nombreMarca, inicio, ultimoItemReservado, LocalDateTime.now()));
+
+            return new ResultadoAuditoria(alcance.completa(), alcance.desde(), detectados, resueltos);
+        } finally {
+            enEjecucion.unlock();
         }
     }
 
-    private void auditarStockInconsistente() {
-        logger.info("Auditando consistencia de stock...");
+    private List<Deteccion> auditar(TipoHallazgo tipo, Alcance alcance) {
+        return switch (tipo) {
+            case ITEM_RECURSO_INCORRECTO -> auditarItemsIncorrectos(alcance);
+            case STOCK_INCONSISTENTE -> auditarStockInconsistente(alcance);
+            case RESERVA_SIN_USUARIO -> auditarReservasSinUsuario(alcance);
+            case RESERVA_SIN_RECURSO -> auditarReservasSinRecurso(alcance);
+            case ITEM_RESERVADO_HUERFANO -> auditarItemsHuerfanos(alcance);
+            case FECHAS_INCORRECTAS -> auditarFechasIncorrectas(alcance);
+        };
+    }
 
-        String sql = """
-            SELECT COUNT(*) FROM items_inventario ii
-            WHERE ii.cantidad_disponible != (
-                ii.cantidad_total - (
-                    SELECT COALESCE(SUM(ir.cantidad), 0)
-                    FROM items_reservados ir
-                    JOIN reservas r ON ir.reserva_id = r.id
-                    WHERE ir.item_id = ii.id
-                    AND r.estado IN ('PENDIENTE', 'CONFIRMADA', 'EN_CURSO')
-                )
-            )
-            """;
+    private List<Deteccion> auditarItemsIncorrectos(Alcance alcance) {
+        logger.info("Auditando items en recursos incorrectos...");
 
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class);
-
-        if (count != null && count > 0) {
-            logger.error("CRÍTICO: {} items con stock inconsistente", count);
-
-            // Obtener detalles
-            String sqlDetalle = """
-                SELECT
-                    ii.id,
-                    ii.nombre,
-                    ii.cantidad_disponible as stock_registrado,
-                    ii.cantidad_total - COALESCE((
-                        SELECT SUM(ir.cantidad)
-                        FROM items_reservados ir
-                        JOIN reservas r ON ir.reserva_id = r.id
-                        WHERE ir.item_id = ii.id
-                        AND r.estado IN ('PENDIENTE', 'CONFIRMADA', 'EN_CURSO')
-                    ), 0) as stock_esperado
-                FROM items_inventario ii
-                WHERE ii.cantidad_disponible != (
-                    ii.cantidad_total - COALESCE((
-                        SELECT SUM(ir.cantidad)
-                        FROM items_reservados ir
-                        JOIN reservas r ON ir.reserva_id = r.id
-                        WHERE ir.item_id = ii.id
-                        AND r.estado IN ('PENDIENTE', 'CONFIRMADA', 'EN_CURSO')
-                    ), 0)
-                )
-                LIMIT 5
-                """;
-
-            List<Map<String, Object>> detalles = jdbcTemplate.queryForList(sqlDetalle);
-            for (Map<String, Object> detalle : detalles) {
-                logger.error("  Item '{}': Stock registrado = {}, esperado = {}",
-                           detalle.get("nombre"),
-                           detalle.get("stock_registrado"),
-                           detalle.get("stock_esperado"));
-            }
+        return consultar(SQL_ITEMS_INCORRECTOS, alcance, TipoHallazgo.ITEM_RECURSO_INCORRECTO,
+                FILTRO_RESERVA_MODIFICADA, FILTRO_ITEM_RESERVADO_NUEVO, FILTRO_ITEM_MODIFICADO,
+                filtroAbiertos("ir.id")).stream()
+                .map(fila -> new Deteccion(id(fila), String.format("Item '%s' de '%s' en reserva %s de '%s'",
+                        fila.get("item_nombre"), fila.get("recurso_item"), fila.get("reserva_id"),
+                        fila.get("recurso_reserva"))))
+                .toList();
+    }
+
+    private List<Deteccion> auditarStockInconsistente(Alcance alcance) {
+        logger.info("Auditando consistencia de stock...");
+
+        List<Map<String, Object>> inconsistentes;
+        if (alcance.completa()) {
+            inconsistentes = auditoriaStock.detalleInconsistencias(null);
         } else {
-            logger.info("Stock de todos los items es consistente");
+            List<Long> itemIds = namedJdbcTemplate.queryForList(SQL_ITEMS_STOCK_MODIFICADOS,
+                    parametros(alcance, TipoHallazgo.STOCK_INCONSISTENTE), Long.class);
+            inconsistentes = auditoriaStock.inconsistenciasEntre(itemIds);
         }
+        return inconsistentes.stream()
+                .map(fila -> new Deteccion(((Number) fila.get("id")).longValue(),
+                        String.format("Item '%s' de '%s': stock registrado = %s, esperado = %s",
+                                fila.get("nombre"), fila.get("recurso"), fila.get("stock_actual"),
+                                fila.get("stock_esperado"))))
+                .toList();
     }
 
-    private void auditarIntegridadReferencial() {
+    private List<Deteccion> auditarReservasSinUsuario(Alcance alcance) {
         logger.info("Auditando integridad referencial...");
 
-        boolean hayProblemas = false;
-
-        // Reservas sin usuario
-        Integer reservasSinUsuario = jdbcTemplate.queryForObject(
-            "SELECT COUNT(*) FROM reservas WHERE user_id IS NULL",
-            Integer.class
-        );
-        if (reservasSinUsuario != null && reservasSinUsuario > 0) {
-            logger.error("{} reservas sin usuario", reservasSinUsuario);
-            hayProblemas = true;
-        }
+        return consultar(SQL_RESERVAS_SIN_USUARIO, alcance, TipoHallazgo.RESERVA_SIN_USUARIO,
+                FILTRO_RESERVA_MODIFICADA, filtroAbiertos("r.id")).stream()
+                .map(fila -> new Deteccion(id(fila), "Reserva " + id(fila) + " sin usuario"))
+                .toList();
+    }
 
-        // Items reservados huérfanos
-        Integer itemsHuerfanos = jdbcTemplate.queryForObject(
-            "SELECT COUNT(*) FROM items_reservados ir WHERE NOT EXISTS (SELECT 1 FROM reservas r WHERE r.id = ir.reserva_id)",
-            Integer.class
-        );
-        if (itemsHuerfanos != null && itemsHuerfanos > 0) {
-            logger.error("{} items reservados huérfanos", itemsHuerfanos);
-            hayProblemas = true;
-        }
+    private List<Deteccion> auditarReservasSinRecurso(Alcance alcance) {
+        return consultar(SQL_RESERVAS_SIN_RECURSO, alcance, TipoHallazgo.RESERVA_SIN_RECURSO,
+                FILTRO_RESERVA_MODIFICADA, filtroAbiertos("r.id")).stream()
+                .map(fila -> new Deteccion(id(fila), "Reserva " + id(fila) + " sin recurso"))
+                .toList();
+    }
 
-        if (!hayProblemas) {
-            logger.info("Integridad referencial correcta");
-        }
+    /**
+     * Las claves foráneas impiden que un item reservado existente quede huérfano
+     * después: basta con revisar los nuevos
+     */
+    private List<Deteccion> auditarItemsHuerfanos(Alcance alcance) {
+        return consultar(SQL_ITEMS_HUERFANOS, alcance, TipoHallazgo.ITEM_RESERVADO_HUERFANO,
+                FILTRO_ITEM_RESERVADO_NUEVO, filtroAbiertos("ir.id")).stream()
+                .map(fila -> new Deteccion(id(fila), String.format(
+                        "Item reservado %s huérfano (reserva %s, item %s)", id(fila), fila.get("reserva_id"),
+                        fila.get("item_id"))))
+                .toList();
     }
 
-    private void auditarFechasIncorrectas() {
+    private List<Deteccion> auditarFechasIncorrectas(Alcance alcance) {
         logger.info("Auditando fechas de reservas...");
 
-        String sql = """
-            SELECT COUNT(*) FROM reservas
-            WHERE estado NOT IN ('CANCELADA')
-            AND (
-                fecha_fin < fecha_inicio
-                OR (fecha_fin < NOW() AND estado NOT IN ('COMPLETADA', 'CANCELADA'))
-            )
-            """;
+        return consultar(SQL_FECHAS_INCORRECTAS, alcance, TipoHallazgo.FECHAS_INCORRECTAS,
+                FILTRO_RESERVA_MODIFICADA, FILTRO_RESERVA_VENCIDA, filtroAbiertos("r.id")).stream()
+                .map(fila -> new Deteccion(id(fila), String.format("Reserva %s (%s) del %s al %s: %s",
+                        id(fila), fila.get("estado"), fila.get("fecha_inicio"), fila.get("fecha_fin"),
+                        fila.get("validacion"))))
+                .toList();
+    }
 
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class);
+    /**
+     * Completa: la consulta tal cual. Incremental: la unión de la consulta
+     * restringida por cada filtro, para que cada rama use su propio índice.
+     */
+    private List<Map<String, Object>> consultar(String sql, Alcance alcance, TipoHallazgo tipo, String... filtros) {
+        String base = sql.strip();
+        String consulta = alcance.completa() ? base
+                : Arrays.stream(filtros)
+                        .map(filtro -> base + " AND " + filtro)
+                        .collect(Collectors.joining("\nUNION\n"));
+        return namedJdbcTemplate.queryForList(consulta, parametros(alcance, tipo));
+    }
 
-        if (count != null && count > 0) {
-            logger.error("{} reservas con fechas incorrectas", count);
-        } else {
-            logger.info("Todas las fechas son correctas");
+    /**
+     * Abre los hallazgos nuevos, actualiza los que siguen abiertos y resuelve
+     * los que ya no se detectan, en una sola transacción por tipo
+     *
+     * @return hallazgos resueltos
+     */
+    private int registrar(TipoHallazgo tipo, List<Deteccion> detecciones, LocalDateTime fecha,
+            Map<TipoHallazgo, Integer> detectados) {
+        // Las ramas del UNION y el solape pueden repetir filas
+        Map<Long, Deteccion> porEntidad = detecciones.stream()
+                .collect(Collectors.toMap(Deteccion::entidadId, Function.identity(), (a, b) -> a, LinkedHashMap::new));
+        detectados.put(tipo, porEntidad.size());
+
+        if (!porEntidad.isEmpty()) {
+            logger.error("{}: {} hallazgos", tipo, porEntidad.size());
+            porEntidad.values().stream().limit(5).forEach(d -> logger.error("  {}", d.detalle()));
         }
+
+        Integer resueltos = new TransactionTemplate(transactionManager).execute(status -> {
+            MapSqlParameterSource parametrosTipo = new MapSqlParameterSource("tipo", tipo.name())
+                    .addValue("fecha", Timestamp.valueOf(fecha));
+            Set<Long> abiertos = new HashSet<>(namedJdbcTemplate.queryForList(SQL_ABIERTOS, parametrosTipo, Long.class));
+
+            List<MapSqlParameterSource> actualizar = new ArrayList<>();
+            List<MapSqlParameterSource> insertar = new ArrayList<>();
+            for (Deteccion deteccion : porEntidad.values()) {
+                MapSqlParameterSource fila = new MapSqlParameterSource("tipo", tipo.name())
+                        .addValue("entidadId", deteccion.entidadId())
+                        .addValue("detalle", recortar(deteccion.detalle()))
+                        .addValue("fecha", Timestamp.valueOf(fecha));
+                (abiertos.contains(deteccion.entidadId()) ? actualizar : insertar).add(fila);
+            }
+            if (!actualizar.isEmpty()) {
+                namedJdbcTemplate.batchUpdate(SQL_ACTUALIZAR_HALLAZGO, actualizar.toArray(MapSqlParameterSource[]::new));
+            }
+            if (!insertar.isEmpty()) {
+                namedJdbcTemplate.batchUpdate(SQL_INSERTAR_HALLAZGO, insertar.toArray(MapSqlParameterSource[]::new));
+            }
+            return namedJdbcTemplate.update(SQL_RESOLVER_HALLAZGOS, parametrosTipo);
+        });
+        return resueltos != null ? resueltos : 0;
     }
 
-    private int contarItemsIncorrectos() {
-        String sql = """
-            SELECT COUNT(*) FROM items_reservados ir
-            JOIN items_inventario ii ON ir.item_id = ii.id
-            JOIN reservas r ON ir.reserva_id = r.id
-            WHERE ii.recurso_id != r.recurso_id
-            """;
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class);
-        return count != null ? count : 0;
+    private static String filtroAbiertos(String columna) {
+        return columna + " IN (SELECT h.entidad_id FROM auditoria_hallazgos h "
+                + "WHERE h.tipo = :tipo AND h.resuelto_en IS NULL)";
     }
 
-    private int contarStockInconsistente() {
-        String sql = """
-            SELECT COUNT(*) FROM items_inventario ii
-            WHERE ii.cantidad_disponible != (
-                ii.cantidad_total - (
-                    SELECT COALESCE(SUM(ir.cantidad), 0)
-                    FROM items_reservados ir
-                    JOIN reservas r ON ir.reserva_id = r.id
-                    WHERE ir.item_id = ii.id
-                    AND r.estado IN ('PENDIENTE', 'CONFIRMADA', 'EN_CURSO')
-                )
-            )
-            """;
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class);
-        return count != null ? count : 0;
+    private static MapSqlParameterSource parametros(Alcance alcance, TipoHallazgo tipo) {
+        return new MapSqlParameterSource("tipo", tipo.name())
+                .addValue("desde", alcance.desde() != null ? Timestamp.valueOf(alcance.desde()) : null)
+                .addValue("desdeItemReservado", alcance.desdeItemReservado());
+    }
+
+    private static Long id(Map<String, Object> fila) {
+        return ((Number) fila.get("entidad_id")).longValue();
+    }
+
+    private static String recortar(String detalle) {
+        return detalle.length() <= LARGO_DETALLE ? detalle : detalle.substring(0, LARGO_DETALLE);
     }
 }
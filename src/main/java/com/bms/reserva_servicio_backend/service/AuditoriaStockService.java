@@ -0,0 +1,289 @@
+package com.bms.reserva_servicio_backend.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bms.reserva_servicio_backend.enums.EstadoReserva;
+import com.bms.reserva_servicio_backend.models.MovimientoInventario.TipoMovimiento;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Auditoría y corrección del stock disponible de los items de inventario.
+ *
+ * El stock esperado de un item es cantidad_total menos lo reservado por
+ * reservas que todavía retienen stock (desde PENDIENTE_PAGO hasta EN_CURSO).
+ * Lo reservado se calcula una sola vez para todos los items con un join
+ * agrupado (tabla derivada) en lugar de una subconsulta por item.
+ *
+ * La corrección procesa los items inconsistentes por lotes, cada uno en su
+ * propia transacción READ COMMITTED: bloquea las filas del lote, recalcula lo
+ * reservado de esos items, actualiza solo los que siguen desfasados y registra
+ * un movimiento AJUSTE_POSITIVO / AJUSTE_NEGATIVO por cada uno. El agregado
+ * completo se calcula una vez por corrección: de él salen los inconsistentes,
+ * y con lo recalculado en cada lote se actualiza para la verificación y el
+ * detalle final. Métrica: inventario.auditoria.corregidos.
+ */
+@Service
+public class AuditoriaStockService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditoriaStockService.class);
+
+    // Estados en los que la reserva mantiene descontado el stock de sus items
+    private static final List<String> ESTADOS_CON_STOCK = List.of(EstadoReserva.PENDIENTE_PAGO.name(),
+            EstadoReserva.PENDIENTE.name(), EstadoReserva.CONFIRMADA.name(), EstadoReserva.EN_CURSO.name());
+
+    private static final String RESERVADO_POR_ITEM = """
+            SELECT ir.item_id, SUM(ir.cantidad) AS reservado
+            FROM items_reservados ir
+            JOIN reservas r ON r.id = ir.reserva_id
+            WHERE r.estado IN (:estados)
+            GROUP BY ir.item_id
+            """;
+
+    private static final String SQL_STOCK_POR_ITEM = """
+            SELECT ii.id, ii.nombre, rec.nombre AS recurso, ii.cantidad_total,
+                   ii.cantidad_disponible AS stock_actual,
+                   COALESCE(rs.reservado, 0) AS cantidad_reservada,
+                   ii.cantidad_total - COALESCE(rs.reservado, 0) AS stock_esperado
+            FROM items_inventario ii
+            JOIN recursos rec ON rec.id = ii.recurso_id
+            LEFT JOIN (""" + RESERVADO_POR_ITEM + """
+            ) rs ON rs.item_id = ii.id
+            """;
+
+    private static final String CONDICION_INCONSISTENTE =
+            " WHERE ii.cantidad_disponible <> ii.cantidad_total - COALESCE(rs.reservado, 0)";
+
+    private static final String SQL_BLOQUEAR_LOTE = "SELECT id, recurso_id, cantidad_total, cantidad_disponible "
+            + "FROM items_inventario WHERE id IN (:ids) ORDER BY id FOR UPDATE";
+
+    private static final String SQL_RESERVADO_LOTE = """
+            SELECT ir.item_id, SUM(ir.cantidad) AS reservado
+            FROM items_reservados ir
+            JOIN reservas r ON r.id = ir.reserva_id
+            WHERE ir.item_id IN (:ids) AND r.estado IN (:estados)
+            GROUP BY ir.item_id
+            """;
+
+    private static final String SQL_INCONSISTENTES_LOTE = """
+            SELECT ii.id, ii.nombre, rec.nombre AS recurso, ii.cantidad_total,
+                   ii.cantidad_disponible AS stock_actual,
+                   COALESCE(rs.reservado, 0) AS cantidad_reservada,
+                   ii.cantidad_total - COALESCE(rs.reservado, 0) AS stock_esperado
+            FROM items_inventario ii
+            JOIN recursos rec ON rec.id = ii.recurso_id
+            LEFT JOIN (""" + SQL_RESERVADO_LOTE + """
+            ) rs ON rs.item_id = ii.id
+            WHERE ii.id IN (:ids)
+              AND ii.cantidad_disponible <> ii.cantidad_total - COALESCE(rs.reservado, 0)
+            ORDER BY ii.id
+            """;
+
+    private static final String SQL_ACTUALIZAR = "UPDATE items_inventario "
+            + "SET cantidad_disponible = :disponible, version = version + 1 WHERE id = :id";
+
+    private static final String SQL_INSERTAR_MOVIMIENTO = "INSERT INTO movimientos_inventario "
+            + "(item_id, tipo_movimiento, cantidad, fecha_movimiento, observaciones, stock_anterior, stock_posterior) "
+            + "VALUES (:itemId, :tipo, :cantidad, :fecha, :observaciones, :anterior, :posterior)";
+
+    private static final String OBSERVACION_AJUSTE = "Corrección de stock por auditoría";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final StockService stockService;
+    private final VersionRecursosService versionRecursos;
+    private final TransactionTemplate transactionTemplate;
+    private final int tamanoLote;
+    private final Counter corregidos;
+
+    /**
+     * Resultado de una corrección, con el stock de todos los items al terminar
+     */
+    public record ResultadoCorreccion(int inconsistentesAntes, int corregidos, int inconsistentesDespues,
+            List<Map<String, Object>> stockPorItem) {
+    }
+
+    public AuditoriaStockService(NamedParameterJdbcTemplate jdbcTemplate, StockService stockService,
+            VersionRecursosService versionRecursos, PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${app.inventario.auditoria.tamano-lote:200}") int tamanoLote) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.stockService = stockService;
+        this.versionRecursos = versionRecursos;
+        this.tamanoLote = tamanoLote;
+
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+
+        this.corregidos = Counter.builder("inventario.auditoria.corregidos")
+                .description("Items con stock disponible corregido por la auditoría")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Items inconsistentes con su stock actual, lo reservado y el stock esperado
+     *
+     * @param limite máximo de filas, o null para todas
+     */
+    public List<Map<String, Object>> detalleInconsistencias(Integer limite) {
+        String sql = SQL_STOCK_POR_ITEM + CONDICION_INCONSISTENTE + " ORDER BY ii.id";
+        MapSqlParameterSource parametros = parametrosEstados();
+        if (limite != null) {
+            sql += " LIMIT :limite";
+            parametros.addValue("limite", limite);
+        }
+        return jdbcTemplate.queryForList(sql, parametros);
+    }
+
+    /**
+     * Igual que detalleInconsistencias(null) pero solo entre los items indicados
+     * (auditoría incremental). Lo reservado se suma solo para esos items, por lotes.
+     */
+    public List<Map<String, Object>> inconsistenciasEntre(Collection<Long> itemIds) {
+        List<Long> ids = new ArrayList<>(itemIds);
+        List<Map<String, Object>> inconsistentes = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += tamanoLote) {
+            MapSqlParameterSource parametros = parametrosEstados()
+                    .addValue("ids", ids.subList(i, Math.min(i + tamanoLote, ids.size())));
+            inconsistentes.addAll(jdbcTemplate.queryForList(SQL_INCONSISTENTES_LOTE, parametros));
+        }
+        return inconsistentes;
+    }
+
+    /**
+     * Stock actual, reservado y esperado de todos los items
+     */
+    public List<Map<String, Object>> stockPorItem() {
+        return jdbcTemplate.queryForList(SQL_STOCK_POR_ITEM + " ORDER BY ii.id", parametrosEstados());
+    }
+
+    /**
+     * Corregir el stock disponible de todos los items inconsistentes, por lotes.
+     *
+     * El agregado de stock esperado se calcula una sola vez. Los items de cada
+     * lote se recalculan bajo lock y esos valores reemplazan sus filas, así la
+     * verificación y el detalle devuelto salen del mismo resultado sin volver a
+     * agregar todas las reservas.
+     */
+    public ResultadoCorreccion corregir() {
+        List<Map<String, Object>> stock = stockPorItem();
+        Map<Long, Map<String, Object>> filaPorItem = new HashMap<>();
+        List<Long> ids = new ArrayList<>();
+        for (Map<String, Object> fila : stock) {
+            Long id = ((Number) fila.get("id")).longValue();
+            filaPorItem.put(id, fila);
+            if (inconsistente(fila)) {
+                ids.add(id);
+            }
+        }
+
+        int total = 0;
+        for (int i = 0; i < ids.size(); i += tamanoLote) {
+            List<Long> lote = ids.subList(i, Math.min(i + tamanoLote, ids.size()));
+            Map<Long, int[]> recalculados = transactionTemplate.execute(status -> corregirLote(lote));
+            if (recalculados == null) {
+                continue;
+            }
+            for (Map.Entry<Long, int[]> item : recalculados.entrySet()) {
+                int[] valores = item.getValue();
+                Map<String, Object> fila = filaPorItem.get(item.getKey());
+                fila.put("cantidad_total", valores[0]);
+                fila.put("stock_actual", valores[1]);
+                fila.put("cantidad_reservada", valores[2]);
+                fila.put("stock_esperado", valores[0] - valores[2]);
+                if (valores[3] != 0) {
+                    total++;
+                }
+            }
+        }
+
+        int despues = (int) stock.stream().filter(AuditoriaStockService::inconsistente).count();
+        if (total > 0) {
+            logger.info("Auditoría de stock: {} items corregidos, {} inconsistentes después", total, despues);
+        }
+        return new ResultadoCorreccion(ids.size(), total, despues, stock);
+    }
+
+    private static boolean inconsistente(Map<String, Object> fila) {
+        return ((Number) fila.get("stock_actual")).longValue() != ((Number) fila.get("stock_esperado")).longValue();
+    }
+
+    /**
+     * Bloquea los items del lote (las reservas en curso sobre ellos terminan
+     * antes o esperan a este lote), recalcula lo reservado y corrige los que
+     * siguen desfasados
+     *
+     * @return itemId -> {cantidad_total, stock disponible final, reservado,
+     *         1 si se corrigió o 0}
+     */
+    private Map<Long, int[]> corregirLote(List<Long> ids) {
+        MapSqlParameterSource parametros = parametrosEstados().addValue("ids", ids);
+
+        List<Object[]> items = jdbcTemplate.query(SQL_BLOQUEAR_LOTE, parametros, (rs, n) -> new Object[] {
+                rs.getLong("id"), rs.getLong("recurso_id"), rs.getInt("cantidad_total"),
+                rs.getInt("cantidad_disponible") });
+
+        Map<Long, Integer> reservado = new HashMap<>();
+        jdbcTemplate.query(SQL_RESERVADO_LOTE, parametros, rs -> {
+            reservado.put(rs.getLong("item_id"), rs.getInt("reservado"));
+        });
+
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        List<MapSqlParameterSource> actualizaciones = new ArrayList<>();
+        List<MapSqlParameterSource> movimientos = new ArrayList<>();
+        List<Long> corregidosLote = new ArrayList<>();
+        Map<Long, int[]> recalculados = new HashMap<>();
+        for (Object[] item : items) {
+            Long id = (Long) item[0];
+            int anterior = (Integer) item[3];
+            int reservadoItem = reservado.getOrDefault(id, 0);
+            int esperado = (Integer) item[2] - reservadoItem;
+            recalculados.put(id, new int[] { (Integer) item[2], esperado, reservadoItem,
+                    anterior == esperado ? 0 : 1 });
+            if (anterior == esperado) {
+                continue;
+            }
+            actualizaciones.add(new MapSqlParameterSource("id", id).addValue("disponible", esperado));
+            movimientos.add(new MapSqlParameterSource("itemId", id)
+                    .addValue("tipo", (esperado > anterior ? TipoMovimiento.AJUSTE_POSITIVO
+                            : TipoMovimiento.AJUSTE_NEGATIVO).name())
+                    .addValue("cantidad", Math.abs(esperado - anterior))
+                    .addValue("fecha", ahora)
+                    .addValue("observaciones", OBSERVACION_AJUSTE)
+                    .addValue("anterior", anterior)
+                    .addValue("posterior", esperado));
+            corregidosLote.add(id);
+            versionRecursos.registrarCambio((Long) item[1]);
+        }
+
+        if (corregidosLote.isEmpty()) {
+            return recalculados;
+        }
+        jdbcTemplate.batchUpdate(SQL_ACTUALIZAR, actualizaciones.toArray(MapSqlParameterSource[]::new));
+        jdbcTemplate.batchUpdate(SQL_INSERTAR_MOVIMIENTO, movimientos.toArray(MapSqlParameterSource[]::new));
+        stockService.desalojarDeCache(corregidosLote);
+        corregidos.increment(corregidosLote.size());
+        return recalculados;
+    }
+
+    private static MapSqlParameterSource parametrosEstados() {
+        return new MapSqlParameterSource("estados", ESTADOS_CON_STOCK);
+    }
+}
@@ -0,0 +1,160 @@
+package com.bms.reserva_servicio_backend.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Bloqueos en memoria por recurso (striped locks) para las secciones
+ * verificar-y-reservar de cabañas y servicios.
+ *
+ * Cada recurso se asigna a una franja (stripe) según su ID: reservas de
+ * recursos distintos avanzan en paralelo y las del mismo recurso se serializan
+ * dentro de la JVM. El bloqueo se mantiene hasta que termina la transacción
+ * actual (commit o rollback), para que la siguiente reserva vea los datos ya
+ * confirmados; por eso solo se puede tomar dentro de una transacción.
+ *
+ * Un paquete bloquea todos sus recursos de una vez, con las franjas ordenadas
+ * y sin repetir: dos paquetes que comparten recursos no pueden esperarse en
+ * orden cruzado.
+ *
+ * Métricas: reservas.bloqueo.espera (tiempo de espera), reservas.bloqueo.contencion
+ * (adquisiciones que tuvieron que esperar), reservas.bloqueo.timeout y
+ * reservas.bloqueo.en_cola, todas con el tag "franja".
+ */
+@Service
+public class BloqueoRecursoService {
+
+    private final ReentrantLock[] franjas;
+    private final Timer[] tiemposEspera;
+    private final Counter[] contenciones;
+    private final Counter[] timeouts;
+    private final long timeoutMs;
+
+    public BloqueoRecursoService(MeterRegistry meterRegistry,
+            @Value("${app.reservas.bloqueo.franjas:64}") int cantidadFranjas,
+            @Value("${app.reservas.bloqueo.timeout-ms:5000}") long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+        this.franjas = new ReentrantLock[cantidadFranjas];
+        this.tiemposEspera = new Timer[cantidadFranjas];
+        this.contenciones = new Counter[cantidadFranjas];
+        this.timeouts = new Counter[cantidadFranjas];
+
+        for (int i = 0; i < cantidadFranjas; i++) {
+            String franja = String.valueOf(i);
+            ReentrantLock lock = new ReentrantLock();
+            franjas[i] = lock;
+            tiemposEspera[i] = Timer.builder("reservas.bloqueo.espera")
+                    .description("Tiempo de espera para adquirir el bloqueo de un recurso")
+                    .tag("franja", franja)
+                    .register(meterRegistry);
+            contenciones[i] = Counter.builder("reservas.bloqueo.contencion")
+                    .description("Adquisiciones que encontraron el bloqueo ocupado")
+                    .tag("franja", franja)
+                    .register(meterRegistry);
+            timeouts[i] = Counter.builder("reservas.bloqueo.timeout")
+                    .description("Adquisiciones que superaron el tiempo máximo de espera")
+                    .tag("franja", franja)
+                    .register(meterRegistry);
+            Gauge.builder("reservas.bloqueo.en_cola", lock, ReentrantLock::getQueueLength)
+                    .description("Hilos esperando el bloqueo")
+                    .tag("franja", franja)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Adquirir el bloqueo del recurso hasta el fin de la transacción actual
+     *
+     * @throws IllegalStateException sin transacción activa (el bloqueo nunca se
+     *                               liberaría) o si se agota la espera
+     */
+    public void bloquearHastaFinDeTransaccion(Long recursoId) {
+        bloquearHastaFinDeTransaccion(List.of(recursoId));
+    }
+
+    /**
+     * Adquirir los bloqueos de varios recursos hasta el fin de la transacción
+     * actual. Los bloqueos son reentrantes: las reservas del paquete que vuelven
+     * a bloquear su recurso no esperan.
+     */
+    public void bloquearHastaFinDeTransaccion(Collection<Long> recursoIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("El bloqueo de recursos requiere una transacción activa");
+        }
+
+        int[] indices = recursoIds.stream()
+                .filter(Objects::nonNull)
+                .mapToInt(this::franja)
+                .distinct()
+                .sorted()
+                .toArray();
+
+        int adquiridos = 0;
+        try {
+            for (int indice : indices) {
+                adquirir(indice);
+                adquiridos++;
+            }
+        } catch (RuntimeException e) {
+            liberar(indices, adquiridos);
+            throw e;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                liberar(indices, indices.length);
+            }
+        });
+    }
+
+    private void liberar(int[] indices, int cantidad) {
+        for (int i = cantidad - 1; i >= 0; i--) {
+            franjas[indices[i]].unlock();
+        }
+    }
+
+    private void adquirir(int indice) {
+        ReentrantLock lock = franjas[indice];
+
+        // Camino rápido sin contención
+        if (lock.tryLock()) {
+            tiemposEspera[indice].record(0, TimeUnit.NANOSECONDS);
+            return;
+        }
+
+        contenciones[indice].increment();
+        long inicio = System.nanoTime();
+        boolean adquirido;
+        try {
+            adquirido = lock.tryLock(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reserva interrumpida mientras esperaba el recurso");
+        } finally {
+            tiemposEspera[indice].record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        }
+
+        if (!adquirido) {
+            timeouts[indice].increment();
+            throw new IllegalStateException("El recurso está siendo reservado por otro usuario, intente nuevamente");
+        }
+    }
+
+    private int franja(Long recursoId) {
+        return Math.floorMod(Long.hashCode(recursoId), franjas.length);
+    }
+}
@@ -6,6 +6,7 @@ import java.util.List;
 import com.bms.reserva_servicio_backend.models.Cabana;
 import com.bms.reserva_servicio_backend.request.CabanaRequest;
 import com.bms.reserva_servicio_backend.response.CabanaResponse;
+import com.bms.reserva_servicio_backend.response.PaginaResponse;
 import com.bms.reserva_servicio_backend.response.SuccessResponse;
 
 public interface CabanaService {
@@ -30,6 +31,13 @@ public interface CabanaService {
      */
     List<CabanaResponse> obtenerDisponibles(LocalDate fechaInicio, LocalDate fechaFin);
 
+    /**
+     * Buscar cabañas libres en un rango de fechas, filtradas por capacidad y tipo,
+     * paginadas y ordenadas por precio
+     */
+    PaginaResponse<CabanaResponse> buscarDisponibles(LocalDate fechaInicio, LocalDate fechaFin,
+            Integer capacidad, String tipoCabana, int pagina, int tamano, boolean precioDescendente);
+
     /**
      * Obtener cabaña por ID
      */
@@ -0,0 +1,249 @@
+package com.bms.reserva_servicio_backend.service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bms.reserva_servicio_backend.repository.DisponibilidadCabanaRepository;
+
+/**
+ * Calendario de ocupación por cabaña y año en forma de bitmap (un bit por día).
+ *
+ * Refleja los días de disponibilidad_cabana con disponible = false. Cada año se
+ * carga con una sola consulta la primera vez que se usa y luego se mantiene con
+ * DisponibilidadEntityListener después de cada commit. Las consultas de rango
+ * se resuelven con operaciones sobre palabras de 64 bits.
+ *
+ * La carga usa una transacción nueva de solo lectura (no la vista de la
+ * transacción que consulta, que puede ser anterior a cambios ya confirmados) y
+ * se hace fuera del mapa, sin bloquear otras claves. Si un día de la misma
+ * franja cambia mientras se carga, el calendario no se guarda.
+ *
+ * Solo se guardan en memoria los años cercanos al actual (del anterior a dos
+ * más adelante), con un máximo de app.disponibilidad.calendario.max-anios
+ * calendarios (se descarta el usado hace más tiempo). Los demás años se leen
+ * de la base de datos en cada consulta. Los rangos consultados no pueden
+ * superar app.disponibilidad.calendario.rango-maximo-dias.
+ */
+@Service
+public class CalendarioOcupacionService {
+
+    private static final int FRANJAS_CAMBIOS = 64;
+
+    @Autowired
+    private DisponibilidadCabanaRepository disponibilidadCabanaRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.disponibilidad.calendario.rango-maximo-dias:731}")
+    private long rangoMaximoDias;
+
+    @Value("${app.disponibilidad.calendario.max-anios:5000}")
+    private int maxCalendarios;
+
+    private final Map<String, CalendarioAnual> calendarios = new ConcurrentHashMap<>();
+
+    // Cambios por franja de claves: una carga se descarta si su franja cambió mientras tanto
+    private final AtomicLongArray cambios = new AtomicLongArray(FRANJAS_CAMBIOS);
+
+    // Orden de uso de las claves de calendarios, para descartar la menos usada
+    private final LinkedHashMap<String, Boolean> usoReciente = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> mayor) {
+            if (size() > maxCalendarios) {
+                calendarios.remove(mayor.getKey());
+                return true;
+            }
+            return false;
+        }
+    };
+
+    /**
+     * Verificar si la cabaña tiene algún día no disponible en el rango (inclusive)
+     */
+    public boolean hayOcupacion(Long cabanaId, LocalDate fechaInicio, LocalDate fechaFin) {
+        validarRango(fechaInicio, fechaFin);
+        for (int anio = fechaInicio.getYear(); anio <= fechaFin.getYear(); anio++) {
+            CalendarioAnual calendario = obtenerCalendario(cabanaId, anio);
+            int desde = anio == fechaInicio.getYear() ? fechaInicio.getDayOfYear() - 1 : 0;
+            int hasta = anio == fechaFin.getYear() ? fechaFin.getDayOfYear() - 1 : calendario.ultimoDia();
+            if (calendario.hayOcupacion(desde, hasta)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Obtener los días no disponibles de la cabaña en el rango, ordenados
+     */
+    public List<LocalDate> obtenerDiasOcupados(Long cabanaId, LocalDate fechaInicio, LocalDate fechaFin) {
+        validarRango(fechaInicio, fechaFin);
+        List<LocalDate> dias = new ArrayList<>();
+        for (int anio = fechaInicio.getYear(); anio <= fechaFin.getYear(); anio++) {
+            CalendarioAnual calendario = obtenerCalendario(cabanaId, anio);
+            int desde = anio == fechaInicio.getYear() ? fechaInicio.getDayOfYear() - 1 : 0;
+            int hasta = anio == fechaFin.getYear() ? fechaFin.getDayOfYear() - 1 : calendario.ultimoDia();
+            LocalDate primerDia = LocalDate.ofYearDay(anio, 1);
+            calendario.recorrerOcupados(desde, hasta, dia -> dias.add(primerDia.plusDays(dia)));
+        }
+        return dias;
+    }
+
+    /**
+     * Actualizar un día del calendario. Si el año aún no está cargado no se hace
+     * nada: al cargarlo se leerá el estado ya confirmado en la base de datos.
+     */
+    public void marcarDia(Long cabanaId, LocalDate fecha, boolean ocupado) {
+        int dia = fecha.getDayOfYear() - 1;
+        String clave = clave(cabanaId, fecha.getYear());
+        // Antes de aplicar: una carga en curso de esta clave ya no se guarda
+        cambios.incrementAndGet(franja(clave));
+        calendarios.computeIfPresent(clave, (k, calendario) -> {
+            if (ocupado) {
+                calendario.marcarRango(dia, dia);
+            } else {
+                calendario.limpiarRango(dia, dia);
+            }
+            return calendario;
+        });
+    }
+
+    /**
+     * @throws IllegalArgumentException si el rango está invertido o es demasiado largo
+     */
+    private void validarRango(LocalDate fechaInicio, LocalDate fechaFin) {
+        if (fechaFin.isBefore(fechaInicio)) {
+            throw new IllegalArgumentException("La fecha de fin debe ser posterior a la fecha de inicio");
+        }
+        if (ChronoUnit.DAYS.between(fechaInicio, fechaFin) >= rangoMaximoDias) {
+            throw new IllegalArgumentException("El rango de fechas no puede superar " + rangoMaximoDias + " días");
+        }
+    }
+
+    private CalendarioAnual obtenerCalendario(Long cabanaId, int anio) {
+        int anioActual = LocalDate.now().getYear();
+        if (anio < anioActual - 1 || anio > anioActual + 2) {
+            return cargar(cabanaId, anio);
+        }
+
+        String clave = clave(cabanaId, anio);
+        CalendarioAnual calendario = calendarios.get(clave);
+        if (calendario == null) {
+            int franja = franja(clave);
+            long cambiosAntes = cambios.get(franja);
+            CalendarioAnual cargado = cargar(cabanaId, anio);
+            CalendarioAnual existente = calendarios.putIfAbsent(clave, cargado);
+            calendario = existente != null ? existente : cargado;
+            // Un cambio durante la carga pudo no llegar al calendario guardado:
+            // se quita y la próxima consulta vuelve a cargar
+            if (existente == null && cambios.get(franja) != cambiosAntes) {
+                calendarios.remove(clave, cargado);
+            }
+        }
+        synchronized (usoReciente) {
+            usoReciente.put(clave, Boolean.TRUE);
+        }
+        return calendario;
+    }
+
+    private CalendarioAnual cargar(Long cabanaId, int anio) {
+        LocalDate inicio = LocalDate.ofYearDay(anio, 1);
+        LocalDate fin = inicio.withDayOfYear(inicio.lengthOfYear());
+
+        TransactionTemplate lectura = new TransactionTemplate(transactionManager);
+        lectura.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        lectura.setReadOnly(true);
+        List<LocalDate> noDisponibles = lectura.execute(
+                status -> disponibilidadCabanaRepository.findFechasNoDisponibles(cabanaId, inicio, fin));
+
+        CalendarioAnual calendario = new CalendarioAnual(inicio.lengthOfYear());
+        for (LocalDate fecha : noDisponibles) {
+            int dia = fecha.getDayOfYear() - 1;
+            calendario.marcarRango(dia, dia);
+        }
+        return calendario;
+    }
+
+    private static int franja(String clave) {
+        return Math.floorMod(clave.hashCode(), FRANJAS_CAMBIOS);
+    }
+
+    private static String clave(Long cabanaId, int anio) {
+        return cabanaId + ":" + anio;
+    }
+
+    /**
+     * Bitmap de un año: el bit i corresponde al día i + 1 del año
+     */
+    private static final class CalendarioAnual {
+
+        private final int dias;
+        private final long[] bits;
+
+        private CalendarioAnual(int dias) {
+            this.dias = dias;
+            this.bits = new long[(dias + 63) / 64];
+        }
+
+        int ultimoDia() {
+            return dias - 1;
+        }
+
+        synchronized void marcarRango(int desde, int hasta) {
+            for (int palabra = desde >>> 6; palabra <= hasta >>> 6; palabra++) {
+                bits[palabra] |= mascara(palabra, desde, hasta);
+            }
+        }
+
+        synchronized void limpiarRango(int desde, int hasta) {
+            for (int palabra = desde >>> 6; palabra <= hasta >>> 6; palabra++) {
+                bits[palabra] &= ~mascara(palabra, desde, hasta);
+            }
+        }
+
+        synchronized boolean hayOcupacion(int desde, int hasta) {
+            for (int palabra = desde >>> 6; palabra <= hasta >>> 6; palabra++) {
+                if ((bits[palabra] & mascara(palabra, desde, hasta)) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        synchronized void recorrerOcupados(int desde, int hasta, IntConsumer accion) {
+            for (int palabra = desde >>> 6; palabra <= hasta >>> 6; palabra++) {
+                long ocupados = bits[palabra] & mascara(palabra, desde, hasta);
+                while (ocupados != 0) {
+                    accion.accept((palabra << 6) + Long.numberOfTrailingZeros(ocupados));
+                    ocupados &= ocupados - 1;
+                }
+            }
+        }
+
+        /**
+         * Máscara de los bits de la palabra que caen dentro de [desde, hasta]
+         */
+        private static long mascara(int palabra, int desde, int hasta) {
+            int inicioPalabra = palabra << 6;
+            int bitDesde = Math.max(desde - inicioPalabra, 0);
+            int bitHasta = Math.min(hasta - inicioPalabra, 63);
+            long hastaMascara = bitHasta == 63 ? -1L : (1L << (bitHasta + 1)) - 1;
+            return hastaMascara & (-1L << bitDesde);
+        }
+    }
+}
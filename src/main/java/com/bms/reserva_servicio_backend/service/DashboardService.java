@@ -3,36 +3,47 @@ package com.bms.reserva_servicio_backend.service;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.bms.reserva_servicio_backend.enums.EstadoReserva;
 import com.bms.reserva_servicio_backend.models.Cabana;
-import com.bms.reserva_servicio_backend.models.Pagos;
 import com.bms.reserva_servicio_backend.models.Reserva;
-import com.bms.reserva_servicio_backend.models.User;
 import com.bms.reserva_servicio_backend.repository.CabanaRepository;
-import com.bms.reserva_servicio_backend.repository.PagoRepository;
 import com.bms.reserva_servicio_backend.repository.ReservaRepository;
 import com.bms.reserva_servicio_backend.repository.ServicioEntretencionRepository;
-import com.bms.reserva_servicio_backend.repository.UserRepository;
 import com.bms.reserva_servicio_backend.response.DashboardStatsResponse;
 import com.bms.reserva_servicio_backend.response.DashboardStatsResponse.IngresosPorMesDTO;
 import com.bms.reserva_servicio_backend.response.DashboardStatsResponse.ReservaResumeResponse;
 import com.bms.reserva_servicio_backend.response.DashboardStatsResponse.ReservasPorDiaDTO;
-
+import com.bms.reserva_servicio_backend.service.EstadisticasDashboardService.Contadores;
+
+/**
+ * Estadísticas del dashboard de administración.
+ *
+ * Los totales históricos (reservas por estado y por día, ingresos, usuarios) se
+ * leen en una consulta de los contadores materializados de
+ * EstadisticasDashboardService; solo la ocupación de hoy y las reservas
+ * recientes se consultan en cada llamada.
+ */
 @Service
 @Transactional(readOnly = true)
 public class DashboardService {
 
+    private static final int DIAS_GRAFICO_RESERVAS = 7;
+    private static final int MESES_GRAFICO_INGRESOS = 6;
+    private static final int RESERVAS_RECIENTES = 10;
+
     @Autowired
-    private UserRepository userRepository;
+    private EstadisticasDashboardService estadisticas;
 
     @Autowired
     private ReservaRepository reservaRepository;
@@ -43,38 +54,41 @@ public class DashboardService {
     @Autowired
     private ServicioEntretencionRepository servicioRepository;
 
-    @Autowired
-    private PagoRepository pagoRepository;
-
     public DashboardStatsResponse obtenerEstadisticas() {
         DashboardStatsResponse stats = new DashboardStatsResponse();
+        LocalDate hoy = LocalDate.now();
+        LocalDate inicioUsuariosNuevos = hoy.minusMonths(1).plusDays(1);
+        // Los días del último mes cubren también el gráfico de 7 días
+        Contadores contadores = estadisticas.leer(inicioUsuariosNuevos,
+                YearMonth.from(hoy).minusMonths(MESES_GRAFICO_INGRESOS - 1));
 
         // Estadísticas de usuarios
-        stats.setTotalUsuarios(userRepository.count());
-        stats.setUsuariosActivos(contarUsuariosActivos());
-        stats.setUsuariosNuevos(contarUsuariosNuevos());
+        stats.setTotalUsuarios(contadores.totalUsuarios());
+        stats.setUsuariosActivos(contadores.usuariosActivos());
+        stats.setUsuariosNuevos(contadores.usuariosNuevosDesde(inicioUsuariosNuevos));
 
         // Estadísticas de reservas
-        stats.setTotalReservas(reservaRepository.count());
-        stats.setReservasPendientes(contarReservasPorEstado(EstadoReserva.PENDIENTE));
-        stats.setReservasConfirmadas(contarReservasPorEstado(EstadoReserva.CONFIRMADA));
-        stats.setReservasCanceladas(contarReservasPorEstado(EstadoReserva.CANCELADA));
-        stats.setReservasCompletadas(contarReservasPorEstado(EstadoReserva.COMPLETADA));
-        stats.setReservasEnCurso(contarReservasPorEstado(EstadoReserva.EN_CURSO));
-
-        // Estadísticas de recursos
+        stats.setTotalReservas(contadores.totalReservas());
+        stats.setReservasPendientes(contadores.reservasPorEstado(EstadoReserva.PENDIENTE));
+        stats.setReservasConfirmadas(contadores.reservasPorEstado(EstadoReserva.CONFIRMADA));
+        stats.setReservasCanceladas(contadores.reservasPorEstado(EstadoReserva.CANCELADA));
+        stats.setReservasCompletadas(contadores.reservasPorEstado(EstadoReserva.COMPLETADA));
+        stats.setReservasEnCurso(contadores.reservasPorEstado(EstadoReserva.EN_CURSO));
+
+        // Estadísticas de recursos (la ocupación depende de la hora, se consulta siempre)
+        LocalDateTime ahora = LocalDateTime.now();
         stats.setTotalCabanas(cabanaRepository.count());
-        stats.setCabanasDisponibles(contarCabanasDisponibles());
+        stats.setCabanasDisponibles(cabanaRepository.contarSinReservasActivasEntre(ahora, ahora.plusDays(1)));
         stats.setTotalServicios(servicioRepository.count());
 
         // Estadísticas de ingresos
-        stats.setIngresosMes(calcularIngresosMes());
-        stats.setIngresosHoy(calcularIngresosHoy());
-        stats.setIngresosTotales(calcularIngresosTotales());
+        stats.setIngresosHoy(contadores.ingresosDelDia(hoy));
+        stats.setIngresosMes(contadores.ingresosDelMes(YearMonth.from(hoy)));
+        stats.setIngresosTotales(contadores.ingresosTotales());
 
         // Datos para gráficos
-        stats.setReservasPorDia(obtenerReservasPorDia());
-        stats.setIngresosPorMes(obtenerIngresosPorMes());
+        stats.setReservasPorDia(obtenerReservasPorDia(contadores, hoy));
+        stats.setIngresosPorMes(obtenerIngresosPorMes(contadores, hoy));
 
         // Reservas recientes
         stats.setReservasRecientes(obtenerReservasRecientes());
@@ -82,122 +96,32 @@ public class DashboardService {
         return stats;
     }
 
-    private Long contarUsuariosActivos() {
-        List<User> usuarios = userRepository.findAll();
-        return usuarios.stream()
-                .filter(User::isEnabled)
-                .count();
-    }
-
-    private Long contarUsuariosNuevos() {
-        LocalDateTime unMesAtras = LocalDateTime.now().minusMonths(1);
-        List<User> usuarios = userRepository.findAll();
-        return usuarios.stream()
-                .filter(u -> u.getFechaRegistro() != null && u.getFechaRegistro().isAfter(unMesAtras))
-                .count();
-    }
-
-    private Long contarReservasPorEstado(EstadoReserva estado) {
-        return reservaRepository.findByEstado(estado).stream().count();
-    }
-
-    private Long contarCabanasDisponibles() {
-        // Contar cabañas que no tienen reservas activas para hoy
-        LocalDateTime hoy = LocalDateTime.now();
-        List<Cabana> cabanas = cabanaRepository.findAll();
-
-        return cabanas.stream()
-                .filter(cabana -> {
-                    // Verificar si la cabaña está disponible
-                    List<Reserva> reservasActivas = reservaRepository.findAll().stream()
-                            .filter(r -> r.getRecurso() != null &&
-                                       r.getRecurso().getId().equals(cabana.getId()) &&
-                                       r.getFechaInicio().isBefore(hoy.plusDays(1)) &&
-                                       r.getFechaFin().isAfter(hoy) &&
-                                       r.getEstado() != EstadoReserva.CANCELADA)
-                            .collect(Collectors.toList());
-                    return reservasActivas.isEmpty();
-                })
-                .count();
-    }
-
-    private BigDecimal calcularIngresosMes() {
-        LocalDateTime inicioMes = LocalDateTime.now().withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0);
-        LocalDateTime finMes = LocalDateTime.now().withHour(23).withMinute(59).withSecond(59);
-
-        List<Pagos> pagos = pagoRepository.findPagosPorPeriodoYEstado(
-                "COMPLETADO", inicioMes, finMes);
-
-        return pagos.stream()
-                .map(Pagos::getMonto)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
-
-    private BigDecimal calcularIngresosHoy() {
-        LocalDateTime inicioHoy = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0);
-        LocalDateTime finHoy = LocalDateTime.now().withHour(23).withMinute(59).withSecond(59);
-
-        List<Pagos> pagos = pagoRepository.findPagosPorPeriodoYEstado(
-                "COMPLETADO", inicioHoy, finHoy);
-
-        return pagos.stream()
-                .map(Pagos::getMonto)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
-
-    private BigDecimal calcularIngresosTotales() {
-        List<Pagos> pagos = pagoRepository.findAll();
-        return pagos.stream()
-                .filter(p -> "COMPLETADO".equals(p.getEstado()))
-                .map(Pagos::getMonto)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
-
-    private List<ReservasPorDiaDTO> obtenerReservasPorDia() {
+    private List<ReservasPorDiaDTO> obtenerReservasPorDia(Contadores contadores, LocalDate hoy) {
         List<ReservasPorDiaDTO> resultado = new ArrayList<>();
-        LocalDate hoy = LocalDate.now();
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
         // Últimos 7 días
-        for (int i = 6; i >= 0; i--) {
+        for (int i = DIAS_GRAFICO_RESERVAS - 1; i >= 0; i--) {
             LocalDate fecha = hoy.minusDays(i);
-            LocalDateTime inicio = fecha.atStartOfDay();
-            LocalDateTime fin = fecha.atTime(23, 59, 59);
-
-            long cantidad = reservaRepository.findAll().stream()
-                    .filter(r -> r.getFechaReserva() != null &&
-                               !r.getFechaReserva().isBefore(inicio) &&
-                               !r.getFechaReserva().isAfter(fin))
-                    .count();
-
             resultado.add(ReservasPorDiaDTO.builder()
                     .fecha(fecha.format(formatter))
-                    .cantidad(cantidad)
+                    .cantidad(contadores.reservasDelDia(fecha))
                     .build());
         }
 
         return resultado;
     }
 
-    private List<IngresosPorMesDTO> obtenerIngresosPorMes() {
+    private List<IngresosPorMesDTO> obtenerIngresosPorMes(Contadores contadores, LocalDate hoy) {
         List<IngresosPorMesDTO> resultado = new ArrayList<>();
-        LocalDate hoy = LocalDate.now();
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM");
 
         // Últimos 6 meses
-        for (int i = 5; i >= 0; i--) {
-            LocalDate mesActual = hoy.minusMonths(i);
-            LocalDateTime inicio = mesActual.withDayOfMonth(1).atStartOfDay();
-            LocalDateTime fin = mesActual.withDayOfMonth(mesActual.lengthOfMonth()).atTime(23, 59, 59);
-
-            BigDecimal monto = pagoRepository.findPagosPorPeriodoYEstado("COMPLETADO", inicio, fin)
-                    .stream()
-                    .map(Pagos::getMonto)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
+        for (int i = MESES_GRAFICO_INGRESOS - 1; i >= 0; i--) {
+            YearMonth mes = YearMonth.from(hoy).minusMonths(i);
             resultado.add(IngresosPorMesDTO.builder()
-                    .mes(mesActual.format(formatter))
-                    .monto(monto)
+                    .mes(mes.format(formatter))
+                    .monto(contadores.ingresosDelMes(mes))
                     .build());
         }
 
@@ -205,15 +129,7 @@ public class DashboardService {
     }
 
     private List<ReservaResumeResponse> obtenerReservasRecientes() {
-        List<Reserva> reservas = reservaRepository.findAll();
-
-        return reservas.stream()
-                .sorted((a, b) -> {
-                    LocalDateTime fechaA = a.getFechaReserva() != null ? a.getFechaReserva() : a.getFechaInicio();
-                    LocalDateTime fechaB = b.getFechaReserva() != null ? b.getFechaReserva() : b.getFechaInicio();
-                    return fechaB.compareTo(fechaA);
-                })
-                .limit(10)
+        return reservaRepository.findRecientes(Limit.of(RESERVAS_RECIENTES)).stream()
                 .map(this::mapToReservaResume)
                 .collect(Collectors.toList());
     }
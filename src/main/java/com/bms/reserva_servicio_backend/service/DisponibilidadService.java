@@ -1,16 +1,30 @@
 package com.bms.reserva_servicio_backend.service;
 
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Time;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.bms.reserva_servicio_backend.enums.TipoReserva;
 import com.bms.reserva_servicio_backend.models.BloqueHorario;
 import com.bms.reserva_servicio_backend.models.Cabana;
 import com.bms.reserva_servicio_backend.models.DisponibilidadCabana;
@@ -21,6 +35,8 @@ import com.bms.reserva_servicio_backend.repository.CabanaRepository;
 import com.bms.reserva_servicio_backend.repository.DisponibilidadCabanaRepository;
 import com.bms.reserva_servicio_backend.repository.ReservaRepository;
 import com.bms.reserva_servicio_backend.repository.ServicioEntretencionRepository;
+import com.bms.reserva_servicio_backend.request.GenerarBloquesRangoRequest;
+import com.bms.reserva_servicio_backend.response.GenerarBloquesRangoResponse;
 
 import jakarta.persistence.EntityNotFoundException;
 
@@ -28,6 +44,11 @@ import jakarta.persistence.EntityNotFoundException;
 @Transactional
 public class DisponibilidadService {
 
+    private static final int MAX_DIAS_GENERACION = 366;
+    private static final int TAMANO_LOTE_INSERCION = 500;
+    private static final String SQL_INSERTAR_BLOQUE = "INSERT INTO bloque_horario "
+            + "(servicio_id, fecha, hora_inicio, hora_fin, disponible) VALUES (?, ?, ?, ?, ?)";
+
     @Autowired
     private ReservaRepository reservaRepository;
 
@@ -42,6 +63,18 @@ public class DisponibilidadService {
     @Autowired
     private ServicioEntretencionRepository servicioRepository;
 
+    @Autowired
+    private IndiceDisponibilidadService indiceDisponibilidad;
+
+    @Autowired
+    private CalendarioOcupacionService calendarioOcupacion;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private VersionRecursosService versionRecursos;
+
     public boolean validarDisponibilidadCabana(Long cabanaId, LocalDate fechaInicio, LocalDate fechaFin) {
         Cabana cabana = cabanaRepository.findById(cabanaId).orElseThrow(
                 () -> new EntityNotFoundException("Cabaña no encontrada"));
@@ -49,21 +82,21 @@ public class DisponibilidadService {
         if ("FUERA_SERVICIO".equals(cabana.getEstado())) {
             return false;
         }
-        // Verificar bloqueos manuales en la tabla de disponibilidad
-        List<DisponibilidadCabana> bloqueos = disponibilidadCabanaRepository.findByRangoFechas(cabanaId, fechaInicio,
-                fechaFin);
 
-        boolean hayBloqueos = bloqueos.stream()
-                .anyMatch(d -> !d.getDisponible());
+        LocalDateTime inicio = fechaInicio.atStartOfDay();
+        LocalDateTime fin = fechaFin.atTime(23, 59);
 
-        if (hayBloqueos) {
+        // Bloqueos y reservas activas desde el índice en memoria
+        if (indiceDisponibilidad.cubre(inicio)) {
+            return !indiceDisponibilidad.hayConflicto(cabanaId, inicio, fin);
+        }
+
+        // Verificar bloqueos manuales en el calendario de ocupación
+        if (calendarioOcupacion.hayOcupacion(cabanaId, fechaInicio, fechaFin)) {
             return false;
         }
 
         // Verificar reservas existentes
-        LocalDateTime inicio = fechaInicio.atStartOfDay();
-        LocalDateTime fin = fechaFin.atTime(23, 59);
-
         List<Reserva> conflictos = reservaRepository
                 .findReservasEnConflicto(cabanaId, inicio, fin);
 
@@ -84,6 +117,15 @@ public class DisponibilidadService {
             return false;
 
         }
+
+        LocalDateTime inicio = fecha.atTime(horaInicio);
+        LocalDateTime fin = fecha.atTime(horaFin);
+
+        // Bloques no disponibles y reservas activas desde el índice en memoria
+        if (indiceDisponibilidad.cubre(inicio)) {
+            return !indiceDisponibilidad.hayConflicto(servicioId, inicio, fin);
+        }
+
         // Verificar bloques horarios
         List<BloqueHorario> bloquesEnRango = bloqueHorarioRepository
                 .findBloquesEnRango(servicioId, fecha, horaInicio, horaFin);
@@ -98,9 +140,6 @@ public class DisponibilidadService {
         }
 
         // Verificar reservas existentes
-        LocalDateTime inicio = fecha.atTime(horaInicio);
-        LocalDateTime fin = fecha.atTime(horaFin);
-
         List<Reserva> conflictos = reservaRepository
                 .findReservasEnConflicto(servicioId, inicio, fin);
 
@@ -120,28 +159,75 @@ public class DisponibilidadService {
 
     public void bloquearFechasCabana(Long cabanaId, LocalDate fechaInicio,
             LocalDate fechaFin) {
-        LocalDate fechaActual = fechaInicio;
+        Cabana cabana = cabanaRepository.findById(cabanaId)
+                .orElseThrow(() -> new EntityNotFoundException("Cabaña no encontrada"));
 
-        while (!fechaActual.isAfter(fechaFin)) {
-            final LocalDate fecha = fechaActual;
+        marcarFechasNoDisponibles(cabana, fechaInicio, fechaFin, "RESERVADA", false, null);
+    }
 
-            DisponibilidadCabana disponibilidad = disponibilidadCabanaRepository
-                    .findByCabanaIdAndFecha(cabanaId, fecha)
-                    .orElseGet(() -> {
-                        DisponibilidadCabana nueva = new DisponibilidadCabana();
-                        nueva.setCabana(cabanaRepository.findById(cabanaId).orElseThrow());
-                        nueva.setFecha(fecha);
-                        return nueva;
-                    });
+    /**
+     * Bloquear fechas de cabaña manualmente (mantenimiento, evento, precio especial)
+     */
+    public void bloquearFechasCabanaManual(Long cabanaId, LocalDate fechaInicio, LocalDate fechaFin,
+            String motivo, BigDecimal precioEspecial) {
+        Cabana cabana = cabanaRepository.findById(cabanaId)
+                .orElseThrow(() -> new EntityNotFoundException("Cabaña no encontrada"));
 
-            disponibilidad.setDisponible(false);
-            disponibilidad.setMotivoNoDisponible("RESERVADA");
-            disponibilidadCabanaRepository.save(disponibilidad);
+        marcarFechasNoDisponibles(cabana, fechaInicio, fechaFin,
+                motivo != null ? motivo : "BLOQUEO_MANUAL", true, precioEspecial);
+    }
 
-            fechaActual = fechaActual.plusDays(1);
+    /**
+     * Desbloquear fechas de cabaña bloqueadas manualmente (no libera reservas)
+     */
+    public void desbloquearFechasCabana(Long cabanaId, LocalDate fechaInicio, LocalDate fechaFin) {
+        List<DisponibilidadCabana> desbloqueadas = disponibilidadCabanaRepository
+                .findByRangoFechas(cabanaId, fechaInicio, fechaFin).stream()
+                .filter(d -> d.getMotivoNoDisponible() != null
+                        && !"RESERVADA".equals(d.getMotivoNoDisponible()))
+                .collect(Collectors.toList());
+
+        for (DisponibilidadCabana disp : desbloqueadas) {
+            disp.setDisponible(true);
+            disp.setMotivoNoDisponible(null);
+            disp.setPrecioEspecial(null);
+        }
+        disponibilidadCabanaRepository.saveAll(desbloqueadas);
+    }
 
+    /**
+     * Marcar un rango de días como no disponibles leyendo las filas existentes
+     * en una sola consulta en lugar de una por día
+     *
+     * @param asignarPrecio reemplazar el precio especial (también por null); las
+     *                      reservas conservan el precio especial existente
+     */
+    private void marcarFechasNoDisponibles(Cabana cabana, LocalDate fechaInicio, LocalDate fechaFin,
+            String motivo, boolean asignarPrecio, BigDecimal precioEspecial) {
+        Map<LocalDate, DisponibilidadCabana> existentes = new HashMap<>();
+        for (DisponibilidadCabana d : disponibilidadCabanaRepository
+                .findByRangoFechas(cabana.getId(), fechaInicio, fechaFin)) {
+            existentes.put(d.getFecha(), d);
         }
 
+        List<DisponibilidadCabana> cambios = new ArrayList<>();
+        for (LocalDate fecha = fechaInicio; !fecha.isAfter(fechaFin); fecha = fecha.plusDays(1)) {
+            DisponibilidadCabana disponibilidad = existentes.get(fecha);
+            if (disponibilidad == null) {
+                disponibilidad = new DisponibilidadCabana();
+                disponibilidad.setCabana(cabana);
+                disponibilidad.setFecha(fecha);
+            }
+
+            disponibilidad.setDisponible(false);
+            disponibilidad.setMotivoNoDisponible(motivo);
+            if (asignarPrecio) {
+                disponibilidad.setPrecioEspecial(precioEspecial);
+            }
+            cambios.add(disponibilidad);
+        }
+
+        disponibilidadCabanaRepository.saveAll(cambios);
     }
 
     /**
@@ -160,6 +246,39 @@ public class DisponibilidadService {
         }
     }
 
+    /**
+     * Reclamar los bloques horarios de una reserva de servicio de forma segura ante concurrencia.
+     * Bloquea las filas con SELECT ... FOR UPDATE SKIP LOCKED y las marca como RESERVADO
+     * dentro de la misma transacción. Si otra transacción ya tiene alguno de los bloques
+     * bloqueado, o alguno no está disponible, falla de inmediato sin esperar.
+     */
+    public void reclamarBloquesHorario(Long servicioId, LocalDate fecha,
+            LocalTime horaInicio, LocalTime horaFin) {
+
+        List<BloqueHorario> bloques = bloqueHorarioRepository
+                .findBloquesParaReclamar(servicioId, fecha, horaInicio, horaFin);
+
+        long totalBloques = bloqueHorarioRepository
+                .countBloquesTraslapados(servicioId, fecha, horaInicio, horaFin);
+
+        if (bloques.size() < totalBloques) {
+            throw new IllegalStateException("El horario solicitado está siendo reservado por otro usuario");
+        }
+
+        boolean hayNoDisponibles = bloques.stream()
+                .anyMatch(b -> !Boolean.TRUE.equals(b.getDisponible()));
+
+        if (hayNoDisponibles) {
+            throw new IllegalStateException("Servicio no disponible en el horario solicitado");
+        }
+
+        for (BloqueHorario bloque : bloques) {
+            bloque.setDisponible(false);
+            bloque.setMotivoNoDisponible("RESERVADO");
+        }
+        bloqueHorarioRepository.saveAll(bloques);
+    }
+
     /**
      * Liberar recurso cuando se cancela una reserva
      */
@@ -182,13 +301,15 @@ public class DisponibilidadService {
         List<DisponibilidadCabana> disponibilidades = disponibilidadCabanaRepository
                 .findByRangoFechas(cabanaId, fechaInicio, fechaFin);
 
+        List<DisponibilidadCabana> liberadas = new ArrayList<>();
         for (DisponibilidadCabana disp : disponibilidades) {
             if ("RESERVADA".equals(disp.getMotivoNoDisponible())) {
                 disp.setDisponible(true);
                 disp.setMotivoNoDisponible(null);
-                disponibilidadCabanaRepository.save(disp);
+                liberadas.add(disp);
             }
         }
+        disponibilidadCabanaRepository.saveAll(liberadas);
     }
 
     private void liberarBloqueHorario(Long servicioId, LocalDate fecha,
@@ -205,6 +326,84 @@ public class DisponibilidadService {
         }
     }
 
+    /**
+     * Liberar en lote los días RESERVADA de varias reservas de cabaña: una sola
+     * consulta para todas las cabañas y un saveAll con los días que caen dentro
+     * del rango de alguna de las reservas.
+     *
+     * @return cantidad de días liberados
+     */
+    public int liberarFechasDeReservas(List<Reserva> reservas) {
+        Map<Long, List<Reserva>> porCabana = new HashMap<>();
+        LocalDate desde = null;
+        LocalDate hasta = null;
+        for (Reserva reserva : reservas) {
+            if (reserva.getTipoReserva() != TipoReserva.CABANA_DIA) {
+                continue;
+            }
+            porCabana.computeIfAbsent(reserva.getRecurso().getId(), id -> new ArrayList<>()).add(reserva);
+            LocalDate inicio = reserva.getFechaInicio().toLocalDate();
+            LocalDate fin = reserva.getFechaFin().toLocalDate();
+            desde = desde == null || inicio.isBefore(desde) ? inicio : desde;
+            hasta = hasta == null || fin.isAfter(hasta) ? fin : hasta;
+        }
+        if (porCabana.isEmpty()) {
+            return 0;
+        }
+
+        List<DisponibilidadCabana> liberadas = new ArrayList<>();
+        for (DisponibilidadCabana dia : disponibilidadCabanaRepository
+                .findReservadasEnCabanas(porCabana.keySet(), desde, hasta)) {
+            boolean retenido = porCabana.get(dia.getCabana().getId()).stream()
+                    .anyMatch(r -> !dia.getFecha().isBefore(r.getFechaInicio().toLocalDate())
+                            && !dia.getFecha().isAfter(r.getFechaFin().toLocalDate()));
+            if (retenido) {
+                dia.setDisponible(true);
+                dia.setMotivoNoDisponible(null);
+                liberadas.add(dia);
+            }
+        }
+        disponibilidadCabanaRepository.saveAll(liberadas);
+        return liberadas.size();
+    }
+
+    /**
+     * Liberar en lote los bloques RESERVADO de varias reservas de servicio: una
+     * sola consulta por servicios y fechas, y un saveAll con los bloques que se
+     * traslapan con el horario de alguna de las reservas.
+     *
+     * @return cantidad de bloques liberados
+     */
+    public int liberarBloquesDeReservas(List<Reserva> reservas) {
+        Map<Long, List<Reserva>> porServicio = new HashMap<>();
+        Set<LocalDate> fechas = new HashSet<>();
+        for (Reserva reserva : reservas) {
+            if (reserva.getTipoReserva() != TipoReserva.SERVICIO_BLOQUE) {
+                continue;
+            }
+            porServicio.computeIfAbsent(reserva.getRecurso().getId(), id -> new ArrayList<>()).add(reserva);
+            fechas.add(reserva.getFechaInicio().toLocalDate());
+        }
+        if (porServicio.isEmpty()) {
+            return 0;
+        }
+
+        List<BloqueHorario> liberados = new ArrayList<>();
+        for (BloqueHorario bloque : bloqueHorarioRepository.findReservadosEnServicios(porServicio.keySet(), fechas)) {
+            boolean retenido = porServicio.get(bloque.getServicio().getId()).stream()
+                    .anyMatch(r -> bloque.getFecha().equals(r.getFechaInicio().toLocalDate())
+                            && bloque.getHoraInicio().isBefore(r.getFechaFin().toLocalTime())
+                            && bloque.getHoraFin().isAfter(r.getFechaInicio().toLocalTime()));
+            if (retenido) {
+                bloque.setDisponible(true);
+                bloque.setMotivoNoDisponible(null);
+                liberados.add(bloque);
+            }
+        }
+        bloqueHorarioRepository.saveAll(liberados);
+        return liberados.size();
+    }
+
     /**
      * Generar bloques horarios para un servicio (útil para inicialización)
      * Retorna un Map con estadísticas de la operación
@@ -274,6 +473,117 @@ public class DisponibilidadService {
         return resultado;
     }
 
+    /**
+     * Generar bloques horarios para varios servicios en un rango de fechas según
+     * una plantilla semanal. Lee los bloques existentes en una sola consulta y
+     * crea los nuevos con inserciones JDBC en lote.
+     */
+    public GenerarBloquesRangoResponse generarBloquesHorariosEnRango(GenerarBloquesRangoRequest request) {
+        LocalDate fechaInicio = request.getFechaInicio();
+        LocalDate fechaFin = request.getFechaFin();
+        Integer duracion = request.getDuracionBloqueMinutos();
+
+        if (fechaFin.isBefore(fechaInicio)) {
+            throw new IllegalArgumentException("La fecha de fin no puede ser anterior a la fecha de inicio");
+        }
+        if (ChronoUnit.DAYS.between(fechaInicio, fechaFin) >= MAX_DIAS_GENERACION) {
+            throw new IllegalArgumentException("El rango no puede superar " + MAX_DIAS_GENERACION + " días");
+        }
+
+        Map<DayOfWeek, GenerarBloquesRangoRequest.HorarioDia> plantilla = new EnumMap<>(DayOfWeek.class);
+        for (GenerarBloquesRangoRequest.HorarioDia horario : request.getPlantilla()) {
+            if (!horario.getHoraApertura().isBefore(horario.getHoraCierre())) {
+                throw new IllegalArgumentException(
+                        "La hora de apertura debe ser anterior a la de cierre (" + horario.getDiaSemana() + ")");
+            }
+            plantilla.put(horario.getDiaSemana(), horario);
+        }
+
+        Set<Long> servicioIds = new LinkedHashSet<>(request.getServicioIds());
+        List<ServicioEntretencion> servicios = servicioRepository.findAllById(servicioIds);
+        if (servicios.size() != servicioIds.size()) {
+            throw new EntityNotFoundException("Uno o más servicios no existen");
+        }
+
+        // Bloques ya existentes de todos los servicios en el rango, en una sola lectura
+        Set<String> existentes = new HashSet<>();
+        for (Object[] fila : bloqueHorarioRepository.findHorariosEnRango(servicioIds, fechaInicio, fechaFin)) {
+            existentes.add(claveBloque((Long) fila[0], (LocalDate) fila[1], (LocalTime) fila[2], (LocalTime) fila[3]));
+        }
+
+        List<Object[]> nuevos = new ArrayList<>();
+        List<GenerarBloquesRangoResponse.ResumenDia> detalle = new ArrayList<>();
+        int totalCreados = 0;
+        int totalDuplicados = 0;
+
+        for (ServicioEntretencion servicio : servicios) {
+            for (LocalDate fecha = fechaInicio; !fecha.isAfter(fechaFin); fecha = fecha.plusDays(1)) {
+                GenerarBloquesRangoRequest.HorarioDia horario = plantilla.get(fecha.getDayOfWeek());
+                if (horario == null) {
+                    continue;
+                }
+
+                // Respetar los horarios configurados del servicio
+                LocalTime apertura = horario.getHoraApertura();
+                LocalTime cierre = horario.getHoraCierre();
+                if (servicio.getHoraApertura() != null && servicio.getHoraCierre() != null) {
+                    if (apertura.isBefore(servicio.getHoraApertura())) {
+                        apertura = servicio.getHoraApertura();
+                    }
+                    if (cierre.isAfter(servicio.getHoraCierre())) {
+                        cierre = servicio.getHoraCierre();
+                    }
+                }
+
+                int creados = 0;
+                int duplicados = 0;
+                LocalTime hora = apertura;
+                while (hora.isBefore(cierre)) {
+                    LocalTime horaFinBloque = hora.plusMinutes(duracion);
+                    if (horaFinBloque.isAfter(cierre) || !horaFinBloque.isAfter(hora)) {
+                        break;
+                    }
+
+                    if (existentes.add(claveBloque(servicio.getId(), fecha, hora, horaFinBloque))) {
+                        nuevos.add(new Object[] { servicio.getId(), Date.valueOf(fecha),
+                                Time.valueOf(hora), Time.valueOf(horaFinBloque), Boolean.TRUE });
+                        creados++;
+                    } else {
+                        duplicados++;
+                    }
+                    hora = horaFinBloque;
+                }
+
+                totalCreados += creados;
+                totalDuplicados += duplicados;
+                detalle.add(GenerarBloquesRangoResponse.ResumenDia.builder()
+                        .servicioId(servicio.getId())
+                        .fecha(fecha)
+                        .creados(creados)
+                        .duplicados(duplicados)
+                        .build());
+            }
+        }
+
+        for (int i = 0; i < nuevos.size(); i += TAMANO_LOTE_INSERCION) {
+            jdbcTemplate.batchUpdate(SQL_INSERTAR_BLOQUE,
+                    nuevos.subList(i, Math.min(i + TAMANO_LOTE_INSERCION, nuevos.size())));
+        }
+        // Las inserciones JDBC no pasan por los entity listeners
+        nuevos.stream().map(fila -> (Long) fila[0]).distinct().forEach(versionRecursos::registrarCambio);
+
+        return GenerarBloquesRangoResponse.builder()
+                .bloquesCreados(totalCreados)
+                .bloquesDuplicados(totalDuplicados)
+                .diasProcesados(detalle.size())
+                .detallePorDia(detalle)
+                .build();
+    }
+
+    private static String claveBloque(Long servicioId, LocalDate fecha, LocalTime horaInicio, LocalTime horaFin) {
+        return servicioId + "|" + fecha + "|" + horaInicio + "|" + horaFin;
+    }
+
     /**
      * Generar bloques horarios para un servicio (compatible con código anterior)
      * @return cantidad de bloques creados (excluye duplicados)
@@ -317,6 +627,17 @@ public class DisponibilidadService {
         return fechasReservadas.stream().distinct().collect(Collectors.toList());
     }
 
+    /**
+     * Obtener fechas ocupadas de una cabaña: días bloqueados del calendario de
+     * ocupación más los días cubiertos por reservas activas
+     */
+    public List<LocalDate> obtenerFechasOcupadas(Long cabanaId, LocalDate fechaInicio, LocalDate fechaFin) {
+        TreeSet<LocalDate> fechas = new TreeSet<>(
+                calendarioOcupacion.obtenerDiasOcupados(cabanaId, fechaInicio, fechaFin));
+        fechas.addAll(obtenerFechasReservadas(cabanaId, fechaInicio, fechaFin));
+        return new ArrayList<>(fechas);
+    }
+
     /**
      * Obtener bloques horarios por rango de fechas
      */
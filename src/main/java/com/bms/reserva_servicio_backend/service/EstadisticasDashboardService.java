@@ -0,0 +1,514 @@
+package com.bms.reserva_servicio_backend.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bms.reserva_servicio_backend.enums.EstadoReserva;
+import com.bms.reserva_servicio_backend.models.Pagos;
+import com.bms.reserva_servicio_backend.models.Reserva;
+import com.bms.reserva_servicio_backend.models.User;
+import com.bms.reserva_servicio_backend.repository.PagoRepository;
+import com.bms.reserva_servicio_backend.repository.ReservaRepository;
+import com.bms.reserva_servicio_backend.repository.UserRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Contadores materializados del dashboard, guardados en estadisticas_dashboard.
+ *
+ * Reservas por estado y por día, ingresos por día, por mes y totales, usuarios
+ * y usuarios nuevos por día. Cada cambio (creación de reserva, cambio de
+ * estado, pago, registro de usuario) suma su diferencia en la misma
+ * transacción: se acumulan y se escriben una sola vez antes del commit, en
+ * orden de clave. Si la transacción se revierte, el contador no cambia.
+ *
+ * Cada noche (y al iniciar, si la tabla está vacía) se reconstruyen desde la
+ * base de datos. La reconstrucción bloquea primero todas las filas de la tabla
+ * y después lee las tablas de origen en una sola vista REPEATABLE READ: los
+ * cambios confirmados antes están en esa vista, y los que llegan después
+ * esperan el bloqueo y se suman a los contadores reconstruidos. Cada desvío
+ * corregido se registra en el log y en la métrica
+ * dashboard.contadores.correcciones (tag "contador").
+ */
+@Service
+public class EstadisticasDashboardService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EstadisticasDashboardService.class);
+
+    private static final String ESTADO_PAGO_COMPLETADO = "COMPLETADO";
+
+    // Periodo de los totales
+    private static final LocalDate PERIODO_TOTAL = LocalDate.EPOCH;
+
+    // Cubre el gráfico de 7 días y los usuarios nuevos del último mes
+    private static final int DIAS_RETENIDOS = 40;
+    private static final int MESES_RETENIDOS = 12;
+
+    // Métricas
+    private static final String RESERVAS_ESTADO = "reservas.estado.";
+    private static final String RESERVAS_DIA = "reservas.dia";
+    private static final String INGRESOS = "ingresos";
+    private static final String INGRESOS_DIA = "ingresos.dia";
+    private static final String INGRESOS_MES = "ingresos.mes";
+    private static final String USUARIOS = "usuarios";
+    private static final String USUARIOS_ACTIVOS = "usuarios.activos";
+    private static final String USUARIOS_NUEVOS_DIA = "usuarios.nuevos.dia";
+
+    private static final String SQL_SUMAR = "INSERT INTO estadisticas_dashboard (metrica, periodo, cantidad, monto) "
+            + "VALUES (:metrica, :periodo, :cantidad, :monto) AS nuevo ON DUPLICATE KEY UPDATE "
+            + "cantidad = estadisticas_dashboard.cantidad + nuevo.cantidad, "
+            + "monto = estadisticas_dashboard.monto + nuevo.monto";
+
+    private static final String SQL_INSERTAR = "INSERT INTO estadisticas_dashboard (metrica, periodo, cantidad, monto) "
+            + "VALUES (:metrica, :periodo, :cantidad, :monto)";
+
+    private static final String SQL_BLOQUEAR = "SELECT metrica, periodo, cantidad, monto FROM estadisticas_dashboard "
+            + "ORDER BY metrica, periodo FOR UPDATE";
+
+    private static final String SQL_BORRAR = "DELETE FROM estadisticas_dashboard";
+
+    private static final String SQL_ALGUNA_FILA = "SELECT 1 FROM estadisticas_dashboard LIMIT 1";
+
+    private static final String SQL_LEER = "SELECT metrica, periodo, cantidad, monto FROM estadisticas_dashboard "
+            + "WHERE periodo = :total "
+            + "OR (metrica IN (:diarias) AND periodo >= :desdeDia) "
+            + "OR (metrica = :mensual AND periodo >= :desdeMes)";
+
+    private static final String SQL_LEER_TOTAL = "SELECT cantidad FROM estadisticas_dashboard "
+            + "WHERE metrica = :metrica AND periodo = :total";
+
+    private final ReservaRepository reservaRepository;
+    private final PagoRepository pagoRepository;
+    private final UserRepository userRepository;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate reconstruccion;
+
+    public EstadisticasDashboardService(ReservaRepository reservaRepository, PagoRepository pagoRepository,
+            UserRepository userRepository, NamedParameterJdbcTemplate jdbcTemplate, EntityManager entityManager,
+            MeterRegistry meterRegistry, PlatformTransactionManager transactionManager) {
+        this.reservaRepository = reservaRepository;
+        this.pagoRepository = pagoRepository;
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+        this.meterRegistry = meterRegistry;
+        this.reconstruccion = new TransactionTemplate(transactionManager);
+        this.reconstruccion.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    /**
+     * Primera carga: solo si la tabla está vacía (la usan todas las instancias)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarSiVacia() {
+        if (jdbcTemplate.queryForList(SQL_ALGUNA_FILA, Map.of(), Integer.class).isEmpty()) {
+            reconciliar();
+        }
+    }
+
+    /**
+     * Reconstruir todos los contadores desde la base de datos para corregir
+     * cualquier desvío
+     */
+    @Scheduled(cron = "0 15 3 * * *")
+    public void reconciliar() {
+        long inicio = System.currentTimeMillis();
+        try {
+            reconstruccion.executeWithoutResult(status -> reconstruir(LocalDate.now()));
+            logger.info("Contadores del dashboard reconciliados en {} ms", System.currentTimeMillis() - inicio);
+        } catch (RuntimeException e) {
+            logger.error("Error al reconciliar los contadores del dashboard: {}", e.getMessage(), e);
+        }
+    }
+
+    private void reconstruir(LocalDate hoy) {
+        // Primera sentencia de la transacción: la lectura con bloqueo no fija la
+        // vista, así las consultas siguientes ven todo lo confirmado hasta aquí
+        Map<Clave, Valor> anteriores = new HashMap<>();
+        jdbcTemplate.query(SQL_BLOQUEAR, Map.of(), rs -> {
+            anteriores.put(new Clave(rs.getString("metrica"), rs.getObject("periodo", LocalDate.class)),
+                    new Valor(rs.getLong("cantidad"), rs.getBigDecimal("monto")));
+        });
+
+        Cambios nuevos = new Cambios();
+        cargar(nuevos, hoy);
+
+        jdbcTemplate.update(SQL_BORRAR, Map.of());
+        jdbcTemplate.batchUpdate(SQL_INSERTAR, nuevos.parametros());
+        corregirDesvios(anteriores, nuevos.valores);
+    }
+
+    private void cargar(Cambios nuevos, LocalDate hoy) {
+        for (Object[] fila : reservaRepository.contarPorEstado()) {
+            if (fila[0] != null) {
+                nuevos.contar(RESERVAS_ESTADO + ((EstadoReserva) fila[0]).name(), PERIODO_TOTAL, (Long) fila[1]);
+            }
+        }
+
+        for (Object[] fila : reservaRepository.contarPorDiaDeReserva(
+                hoy.minusDays(DIAS_RETENIDOS).atStartOfDay(), hoy.plusDays(1).atStartOfDay())) {
+            nuevos.contar(RESERVAS_DIA, (LocalDate) fila[0], (Long) fila[1]);
+        }
+
+        LocalDateTime desdeIngresos = hoy.minusMonths(MESES_RETENIDOS - 1).withDayOfMonth(1).atStartOfDay();
+        LocalDateTime hastaIngresos = hoy.withDayOfMonth(1).plusMonths(1).atStartOfDay();
+        for (Object[] fila : pagoRepository.sumarMontoPorDia(ESTADO_PAGO_COMPLETADO, desdeIngresos, hastaIngresos)) {
+            LocalDate dia = (LocalDate) fila[0];
+            BigDecimal monto = (BigDecimal) fila[1];
+            nuevos.sumar(INGRESOS_MES, dia.withDayOfMonth(1), monto);
+            if (!dia.isBefore(hoy.minusDays(DIAS_RETENIDOS))) {
+                nuevos.sumar(INGRESOS_DIA, dia, monto);
+            }
+        }
+        nuevos.sumar(INGRESOS, PERIODO_TOTAL, pagoRepository.sumarMontoPorEstado(ESTADO_PAGO_COMPLETADO));
+
+        nuevos.contar(USUARIOS, PERIODO_TOTAL, userRepository.count());
+        nuevos.contar(USUARIOS_ACTIVOS, PERIODO_TOTAL, userRepository.countByEnabledTrue());
+        for (Object[] fila : userRepository.contarRegistrosPorDia(hoy.minusDays(DIAS_RETENIDOS).atStartOfDay())) {
+            nuevos.contar(USUARIOS_NUEVOS_DIA, (LocalDate) fila[0], (Long) fila[1]);
+        }
+    }
+
+    /**
+     * Registrar los totales que cambiaron con la reconstrucción
+     */
+    private void corregirDesvios(Map<Clave, Valor> anteriores, Map<Clave, Valor> nuevos) {
+        if (anteriores.isEmpty()) {
+            return;
+        }
+
+        Set<Clave> totales = new HashSet<>();
+        for (Clave clave : anteriores.keySet()) {
+            if (clave.periodo().equals(PERIODO_TOTAL)) {
+                totales.add(clave);
+            }
+        }
+        for (Clave clave : nuevos.keySet()) {
+            if (clave.periodo().equals(PERIODO_TOTAL)) {
+                totales.add(clave);
+            }
+        }
+
+        for (Clave clave : totales) {
+            Valor antes = anteriores.getOrDefault(clave, Valor.CERO);
+            Valor despues = nuevos.getOrDefault(clave, Valor.CERO);
+            if (antes.cantidad() != despues.cantidad() || antes.monto().compareTo(despues.monto()) != 0) {
+                String valorAntes = INGRESOS.equals(clave.metrica()) ? antes.monto().toString()
+                        : String.valueOf(antes.cantidad());
+                String valorDespues = INGRESOS.equals(clave.metrica()) ? despues.monto().toString()
+                        : String.valueOf(despues.cantidad());
+                logger.warn("Desvío corregido en {} del dashboard: {} en los contadores, {} en base de datos",
+                        clave.metrica(), valorAntes, valorDespues);
+                meterRegistry.counter("dashboard.contadores.correcciones", "contador", clave.metrica()).increment();
+            }
+        }
+    }
+
+    // ==================== ACTUALIZACIONES INCREMENTALES ====================
+
+    /**
+     * Registrar una reserva recién creada
+     */
+    public void registrarReservaCreada(Reserva reserva) {
+        EstadoReserva estado = reserva.getEstado();
+        LocalDate dia = reserva.getFechaReserva() != null ? reserva.getFechaReserva().toLocalDate() : LocalDate.now();
+
+        registrar(c -> {
+            if (estado != null) {
+                c.contar(RESERVAS_ESTADO + estado.name(), PERIODO_TOTAL, 1);
+            }
+            c.contar(RESERVAS_DIA, dia, 1);
+        });
+    }
+
+    /**
+     * Registrar el cambio de estado de una reserva existente
+     */
+    public void registrarCambioEstado(EstadoReserva anterior, EstadoReserva nuevo) {
+        registrarCambioEstado(anterior, nuevo, 1);
+    }
+
+    /**
+     * Registrar el mismo cambio de estado para varias reservas (procesos por lotes)
+     */
+    public void registrarCambioEstado(EstadoReserva anterior, EstadoReserva nuevo, long cantidad) {
+        if (anterior == nuevo || cantidad == 0) {
+            return;
+        }
+
+        registrar(c -> {
+            if (anterior != null) {
+                c.contar(RESERVAS_ESTADO + anterior.name(), PERIODO_TOTAL, -cantidad);
+            }
+            if (nuevo != null) {
+                c.contar(RESERVAS_ESTADO + nuevo.name(), PERIODO_TOTAL, cantidad);
+            }
+        });
+    }
+
+    /**
+     * Registrar un pago. Solo los pagos COMPLETADO cuentan como ingreso.
+     */
+    public void registrarPago(Pagos pago) {
+        if (!ESTADO_PAGO_COMPLETADO.equals(pago.getEstado()) || pago.getMonto() == null) {
+            return;
+        }
+
+        BigDecimal monto = pago.getMonto();
+        LocalDate dia = pago.getFechaPago() != null ? pago.getFechaPago().toLocalDate() : LocalDate.now();
+
+        registrar(c -> {
+            c.sumar(INGRESOS_DIA, dia, monto);
+            c.sumar(INGRESOS_MES, dia.withDayOfMonth(1), monto);
+            c.sumar(INGRESOS, PERIODO_TOTAL, monto);
+        });
+    }
+
+    /**
+     * Registrar un usuario recién creado
+     */
+    public void registrarUsuarioNuevo(User user) {
+        boolean habilitado = user.isEnabled();
+        LocalDate dia = user.getFechaRegistro() != null ? user.getFechaRegistro().toLocalDate() : LocalDate.now();
+
+        registrar(c -> {
+            c.contar(USUARIOS, PERIODO_TOTAL, 1);
+            if (habilitado) {
+                c.contar(USUARIOS_ACTIVOS, PERIODO_TOTAL, 1);
+            }
+            c.contar(USUARIOS_NUEVOS_DIA, dia, 1);
+        });
+    }
+
+    /**
+     * Registrar que un usuario fue habilitado o deshabilitado
+     */
+    public void registrarCambioHabilitado(boolean habilitado) {
+        registrar(c -> c.contar(USUARIOS_ACTIVOS, PERIODO_TOTAL, habilitado ? 1 : -1));
+    }
+
+    // ==================== LECTURAS ====================
+
+    /**
+     * Leer en una consulta los totales, las métricas diarias desde desdeDia y
+     * los ingresos mensuales desde desdeMes
+     */
+    public Contadores leer(LocalDate desdeDia, YearMonth desdeMes) {
+        MapSqlParameterSource parametros = new MapSqlParameterSource()
+                .addValue("total", PERIODO_TOTAL)
+                .addValue("diarias", List.of(RESERVAS_DIA, INGRESOS_DIA, USUARIOS_NUEVOS_DIA))
+                .addValue("desdeDia", desdeDia)
+                .addValue("mensual", INGRESOS_MES)
+                .addValue("desdeMes", desdeMes.atDay(1));
+
+        Map<Clave, Valor> valores = new HashMap<>();
+        jdbcTemplate.query(SQL_LEER, parametros, rs -> {
+            valores.put(new Clave(rs.getString("metrica"), rs.getObject("periodo", LocalDate.class)),
+                    new Valor(rs.getLong("cantidad"), rs.getBigDecimal("monto")));
+        });
+        return new Contadores(valores);
+    }
+
+    /**
+     * Reservas en un estado (una fila por clave primaria)
+     */
+    public long reservasPorEstado(EstadoReserva estado) {
+        List<Long> cantidad = jdbcTemplate.queryForList(SQL_LEER_TOTAL, new MapSqlParameterSource()
+                .addValue("metrica", RESERVAS_ESTADO + estado.name())
+                .addValue("total", PERIODO_TOTAL), Long.class);
+        return cantidad.isEmpty() ? 0L : cantidad.get(0);
+    }
+
+    /**
+     * Sumar los cambios antes del commit de la transacción actual, o de
+     * inmediato si no hay transacción
+     */
+    private void registrar(Consumer<Cambios> cambio) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            Cambios cambios = new Cambios();
+            cambio.accept(cambios);
+            escribir(cambios);
+            return;
+        }
+        cambio.accept(pendientes());
+    }
+
+    /**
+     * Cambios de la transacción actual. La primera vez se registra la escritura:
+     * antes del commit se hace flush (así las filas de los contadores son lo
+     * último que bloquea la transacción) y se suman todos de una vez.
+     */
+    private Cambios pendientes() {
+        Cambios pendientes = (Cambios) TransactionSynchronizationManager.getResource(this);
+        if (pendientes != null) {
+            return pendientes;
+        }
+        Cambios nuevos = new Cambios();
+        TransactionSynchronizationManager.bindResource(this, nuevos);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                if (!readOnly) {
+                    entityManager.flush();
+                    escribir(nuevos);
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(EstadisticasDashboardService.this);
+            }
+        });
+        return nuevos;
+    }
+
+    private void escribir(Cambios cambios) {
+        SqlParameterSource[] filas = cambios.parametros();
+        if (filas.length > 0) {
+            jdbcTemplate.batchUpdate(SQL_SUMAR, filas);
+        }
+    }
+
+    /**
+     * Valores leídos de estadisticas_dashboard
+     */
+    public static final class Contadores {
+
+        private final Map<Clave, Valor> valores;
+
+        private Contadores(Map<Clave, Valor> valores) {
+            this.valores = valores;
+        }
+
+        public long totalReservas() {
+            long total = 0;
+            for (EstadoReserva estado : EstadoReserva.values()) {
+                total += reservasPorEstado(estado);
+            }
+            return total;
+        }
+
+        public long reservasPorEstado(EstadoReserva estado) {
+            return cantidad(RESERVAS_ESTADO + estado.name(), PERIODO_TOTAL);
+        }
+
+        public long reservasDelDia(LocalDate dia) {
+            return cantidad(RESERVAS_DIA, dia);
+        }
+
+        public BigDecimal ingresosDelDia(LocalDate dia) {
+            return monto(INGRESOS_DIA, dia);
+        }
+
+        public BigDecimal ingresosDelMes(YearMonth mes) {
+            return monto(INGRESOS_MES, mes.atDay(1));
+        }
+
+        public BigDecimal ingresosTotales() {
+            return monto(INGRESOS, PERIODO_TOTAL);
+        }
+
+        public long totalUsuarios() {
+            return cantidad(USUARIOS, PERIODO_TOTAL);
+        }
+
+        public long usuariosActivos() {
+            return cantidad(USUARIOS_ACTIVOS, PERIODO_TOTAL);
+        }
+
+        /**
+         * Usuarios registrados desde la fecha indicada (inclusive), con resolución diaria
+         */
+        public long usuariosNuevosDesde(LocalDate desde) {
+            return valores.entrySet().stream()
+                    .filter(e -> e.getKey().metrica().equals(USUARIOS_NUEVOS_DIA)
+                            && !e.getKey().periodo().isBefore(desde))
+                    .mapToLong(e -> e.getValue().cantidad())
+                    .sum();
+        }
+
+        private long cantidad(String metrica, LocalDate periodo) {
+            return valores.getOrDefault(new Clave(metrica, periodo), Valor.CERO).cantidad();
+        }
+
+        private BigDecimal monto(String metrica, LocalDate periodo) {
+            return valores.getOrDefault(new Clave(metrica, periodo), Valor.CERO).monto();
+        }
+    }
+
+    /**
+     * Diferencias por clave, en orden de clave primaria (dos transacciones
+     * bloquean las filas en el mismo orden)
+     */
+    private static final class Cambios {
+
+        private final SortedMap<Clave, Valor> valores = new TreeMap<>(Clave.ORDEN);
+
+        void contar(String metrica, LocalDate periodo, long cantidad) {
+            valores.merge(new Clave(metrica, periodo), new Valor(cantidad, BigDecimal.ZERO), Valor::mas);
+        }
+
+        void sumar(String metrica, LocalDate periodo, BigDecimal monto) {
+            valores.merge(new Clave(metrica, periodo), new Valor(0, monto), Valor::mas);
+        }
+
+        SqlParameterSource[] parametros() {
+            return valores.entrySet().stream()
+                    .filter(e -> !e.getValue().esCero())
+                    .map(e -> new MapSqlParameterSource()
+                            .addValue("metrica", e.getKey().metrica())
+                            .addValue("periodo", e.getKey().periodo())
+                            .addValue("cantidad", e.getValue().cantidad())
+                            .addValue("monto", e.getValue().monto()))
+                    .toArray(SqlParameterSource[]::new);
+        }
+    }
+
+    // Las métricas son ASCII sin acentos: este orden coincide con el de la clave
+    // primaria, el mismo en que bloquea la reconstrucción
+    private record Clave(String metrica, LocalDate periodo) {
+        static final Comparator<Clave> ORDEN = Comparator.comparing(Clave::metrica)
+                .thenComparing(Clave::periodo);
+    }
+
+    private record Valor(long cantidad, BigDecimal monto) {
+        static final Valor CERO = new Valor(0, BigDecimal.ZERO);
+
+        Valor mas(Valor otro) {
+            return new Valor(cantidad + otro.cantidad, monto.add(otro.monto));
+        }
+
+        boolean esCero() {
+            return cantidad == 0 && monto.signum() == 0;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.bms.reserva_servicio_backend.service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bms.reserva_servicio_backend.enums.EstadoReserva;
+import com.bms.reserva_servicio_backend.models.PaqueteReserva;
+import com.bms.reserva_servicio_backend.models.Reserva;
+import com.bms.reserva_servicio_backend.repository.PaqueteReservaRepository;
+import com.bms.reserva_servicio_backend.repository.ReservaRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Expiración de reservas PENDIENTE_PAGO.
+ *
+ * Al crear una reserva se retienen sus fechas o bloques y el stock de sus items
+ * hasta que se paga. Si el pago no llega dentro del TTL configurado
+ * (app.reservas.pago.ttl-minutos) la reserva se cancela y la capacidad retenida
+ * se libera. Se procesa por lotes, cada uno en su propia transacción, tomando
+ * antes los locks de BloqueoRecursoService de sus recursos (mismo orden que una
+ * reserva nueva: primero el recurso, después las filas). Los paquetes de las
+ * reservas expiradas recalculan su estado en la misma transacción.
+ *
+ * Métricas: reservas.retencion.activas (reservas PENDIENTE_PAGO),
+ * reservas.retencion.expiradas y reservas.retencion.liberado (tag "recurso":
+ * dias_cabana, bloques_servicio, unidades_inventario).
+ */
+@Service
+public class ExpiracionReservasService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpiracionReservasService.class);
+
+    private static final String MOTIVO_EXPIRACION = "Reserva expirada: no se recibió el pago a tiempo";
+
+    private final ReservaRepository reservaRepository;
+    private final PaqueteReservaRepository paqueteRepository;
+    private final ReservaService reservaService;
+    private final BloqueoRecursoService bloqueoRecursoService;
+    private final DisponibilidadService disponibilidadService;
+    private final InventarioService inventarioService;
+    private final EstadisticasDashboardService estadisticasDashboard;
+    private final PlatformTransactionManager transactionManager;
+    private final long ttlMinutos;
+    private final int tamanoLote;
+
+    private final Counter reservasExpiradas;
+    private final Counter diasLiberados;
+    private final Counter bloquesLiberados;
+    private final Counter unidadesLiberadas;
+
+    public ExpiracionReservasService(ReservaRepository reservaRepository,
+            PaqueteReservaRepository paqueteRepository, ReservaService reservaService,
+            BloqueoRecursoService bloqueoRecursoService,
+            DisponibilidadService disponibilidadService, InventarioService inventarioService,
+            EstadisticasDashboardService estadisticasDashboard, PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${app.reservas.pago.ttl-minutos:30}") long ttlMinutos,
+            @Value("${app.reservas.scheduler.tamano-lote:500}") int tamanoLote) {
+        this.reservaRepository = reservaRepository;
+        this.paqueteRepository = paqueteRepository;
+        this.reservaService = reservaService;
+        this.bloqueoRecursoService = bloqueoRecursoService;
+        this.disponibilidadService = disponibilidadService;
+        this.inventarioService = inventarioService;
+        this.estadisticasDashboard = estadisticasDashboard;
+        this.transactionManager = transactionManager;
+        this.ttlMinutos = ttlMinutos;
+        this.tamanoLote = tamanoLote;
+
+        Gauge.builder("reservas.retencion.activas", estadisticasDashboard,
+                e -> e.reservasPorEstado(EstadoReserva.PENDIENTE_PAGO))
+                .description("Reservas PENDIENTE_PAGO que retienen capacidad")
+                .register(meterRegistry);
+        this.reservasExpiradas = Counter.builder("reservas.retencion.expiradas")
+                .description("Reservas canceladas por no recibir el pago dentro del TTL")
+                .register(meterRegistry);
+        this.diasLiberados = contadorLiberado(meterRegistry, "dias_cabana");
+        this.bloquesLiberados = contadorLiberado(meterRegistry, "bloques_servicio");
+        this.unidadesLiberadas = contadorLiberado(meterRegistry, "unidades_inventario");
+    }
+
+    /**
+     * Cancelar las reservas que llevan más del TTL en PENDIENTE_PAGO
+     */
+    @Scheduled(fixedDelayString = "${app.reservas.pago.intervalo-expiracion-ms:60000}", initialDelay = 45000)
+    public void expirarRetencionesVencidas() {
+        LocalDateTime antesDe = LocalDateTime.now().minusMinutes(ttlMinutos);
+        long desdeId = 0L;
+        int expiradas = 0;
+
+        try {
+            List<Long> ids;
+            while (!(ids = reservaRepository.findIdsRetenidasAntesDe(
+                    EstadoReserva.PENDIENTE_PAGO, antesDe, desdeId, Limit.of(tamanoLote))).isEmpty()) {
+                desdeId = ids.get(ids.size() - 1);
+                try {
+                    expiradas += expirarLote(ids);
+                } catch (Exception e) {
+                    logger.error("Error al expirar el lote de reservas hasta #{}: {}", desdeId, e.getMessage(), e);
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Error en expirarRetencionesVencidas: {}", e.getMessage(), e);
+        }
+
+        if (expiradas > 0) {
+            logger.info("{} reservas PENDIENTE_PAGO expiradas (TTL {} minutos)", expiradas, ttlMinutos);
+        }
+    }
+
+    /**
+     * Expirar un lote en una transacción: bloquea las reservas que siguen
+     * PENDIENTE_PAGO, las cancela, recalcula el estado de sus paquetes y libera
+     * días de cabaña, bloques horarios y stock de todo el lote de una vez.
+     *
+     * @return cantidad de reservas expiradas
+     */
+    public int expirarLote(List<Long> ids) {
+        int[] liberados = new int[3];
+
+        // Fuera de la transacción: el recurso de una reserva no cambia
+        List<Long> recursoIds = reservaRepository.findRecursoIdsByIdIn(ids);
+
+        List<Reserva> expiradas = new TransactionTemplate(transactionManager).execute(status -> {
+            bloqueoRecursoService.bloquearHastaFinDeTransaccion(recursoIds);
+
+            List<Long> bloqueadas = reservaRepository.bloquearParaTransicion(ids,
+                    List.of(EstadoReserva.PENDIENTE_PAGO.name())).stream()
+                    .map(fila -> ((Number) fila[0]).longValue())
+                    .toList();
+            if (bloqueadas.isEmpty()) {
+                return List.<Reserva>of();
+            }
+            List<Reserva> reservas = reservaRepository.findParaExpirar(bloqueadas);
+
+            Map<Long, Long> usuarioPorReserva = new LinkedHashMap<>();
+            Set<Long> paqueteIds = new LinkedHashSet<>();
+            for (Reserva reserva : reservas) {
+                reserva.setEstado(EstadoReserva.CANCELADA);
+                reserva.setObservaciones(MOTIVO_EXPIRACION);
+                usuarioPorReserva.put(reserva.getId(), reserva.getUser().getId());
+                if (reserva.getPaquete() != null) {
+                    paqueteIds.add(reserva.getPaquete().getId());
+                }
+            }
+            reservaRepository.saveAll(reservas);
+
+            // Una consulta para las reservas de todos los paquetes afectados
+            if (!paqueteIds.isEmpty()) {
+                for (PaqueteReserva paquete : paqueteRepository.cargarReservas(paqueteIds)) {
+                    reservaService.actualizarEstadoPaquete(paquete);
+                }
+            }
+
+            liberados[0] = disponibilidadService.liberarFechasDeReservas(reservas);
+            liberados[1] = disponibilidadService.liberarBloquesDeReservas(reservas);
+            liberados[2] = inventarioService.liberarItemsDeReservas(usuarioPorReserva);
+            estadisticasDashboard.registrarCambioEstado(EstadoReserva.PENDIENTE_PAGO, EstadoReserva.CANCELADA,
+                    reservas.size());
+            return reservas;
+        });
+
+        reservasExpiradas.increment(expiradas.size());
+        diasLiberados.increment(liberados[0]);
+        bloquesLiberados.increment(liberados[1]);
+        unidadesLiberadas.increment(liberados[2]);
+
+        return expiradas.size();
+    }
+
+    private static Counter contadorLiberado(MeterRegistry meterRegistry, String recurso) {
+        return Counter.builder("reservas.retencion.liberado")
+                .description("Capacidad liberada por reservas expiradas")
+                .tag("recurso", recurso)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,317 @@
+package com.bms.reserva_servicio_backend.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.bms.reserva_servicio_backend.enums.EstadoReserva;
+import com.bms.reserva_servicio_backend.repository.BloqueHorarioRepository;
+import com.bms.reserva_servicio_backend.repository.DisponibilidadCabanaRepository;
+import com.bms.reserva_servicio_backend.repository.ReservaRepository;
+
+/**
+ * Índice en memoria de la ocupación de cada recurso (cabañas y servicios).
+ *
+ * Guarda por recurso los intervalos que impiden reservar:
+ * - Reservas CONFIRMADA / EN_CURSO
+ * - Días de disponibilidad_cabana con disponible = false
+ * - Bloques de bloque_horario con disponible = false
+ *
+ * Se carga al iniciar la aplicación (desde hoy en adelante) y se mantiene al día
+ * con DisponibilidadEntityListener después de cada commit. Las consultas que
+ * empiezan antes del horizonte de carga deben ir a la base de datos.
+ */
+@Service
+public class IndiceDisponibilidadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndiceDisponibilidadService.class);
+
+    private static final String PREFIJO_RESERVA = "R";
+    private static final String PREFIJO_DIA_CABANA = "D";
+    private static final String PREFIJO_BLOQUE = "B";
+
+    @Autowired
+    private ReservaRepository reservaRepository;
+
+    @Autowired
+    private DisponibilidadCabanaRepository disponibilidadCabanaRepository;
+
+    @Autowired
+    private BloqueHorarioRepository bloqueHorarioRepository;
+
+    private final Map<Long, IntervalosRecurso> intervalosPorRecurso = new ConcurrentHashMap<>();
+    private final Map<String, Long> recursoPorClave = new ConcurrentHashMap<>();
+
+    // La carga completa toma el write lock; los cambios individuales el read lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // null mientras el índice no esté cargado
+    private volatile LocalDateTime horizonte;
+
+    /**
+     * Cargar el índice desde la base de datos al iniciar la aplicación
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void cargarIndice() {
+        LocalDate hoy = LocalDate.now();
+        long inicio = System.currentTimeMillis();
+
+        lock.writeLock().lock();
+        try {
+            intervalosPorRecurso.clear();
+            recursoPorClave.clear();
+
+            List<Object[]> reservas = reservaRepository.findIntervalosActivosDesde(hoy.atStartOfDay());
+            for (Object[] fila : reservas) {
+                registrar(PREFIJO_RESERVA + fila[0], (Long) fila[1],
+                        (LocalDateTime) fila[3], (LocalDateTime) fila[4]);
+            }
+
+            List<Object[]> diasBloqueados = disponibilidadCabanaRepository.findBloqueosDesde(hoy);
+            for (Object[] fila : diasBloqueados) {
+                LocalDateTime dia = ((LocalDate) fila[2]).atStartOfDay();
+                registrar(PREFIJO_DIA_CABANA + fila[0], (Long) fila[1], dia, dia);
+            }
+
+            List<Object[]> bloques = bloqueHorarioRepository.findBloqueosDesde(hoy);
+            for (Object[] fila : bloques) {
+                LocalDate fecha = (LocalDate) fila[2];
+                registrar(PREFIJO_BLOQUE + fila[0], (Long) fila[1],
+                        fecha.atTime((LocalTime) fila[3]), fecha.atTime((LocalTime) fila[4]));
+            }
+
+            horizonte = hoy.atStartOfDay();
+
+            logger.info("Índice de disponibilidad cargado: {} reservas, {} días bloqueados, {} bloques en {} ms",
+                    reservas.size(), diasBloqueados.size(), bloques.size(),
+                    System.currentTimeMillis() - inicio);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Descartar intervalos ya vencidos y avanzar el horizonte del índice
+     */
+    @Scheduled(cron = "0 30 3 * * *")
+    public void depurarIntervalosVencidos() {
+        if (horizonte == null) {
+            return;
+        }
+
+        LocalDateTime nuevoHorizonte = LocalDate.now().atStartOfDay();
+
+        lock.writeLock().lock();
+        try {
+            horizonte = nuevoHorizonte;
+            intervalosPorRecurso.values().forEach(i -> i.eliminarAnterioresA(nuevoHorizonte, recursoPorClave));
+            intervalosPorRecurso.values().removeIf(IntervalosRecurso::estaVacio);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indica si el índice puede responder consultas que comienzan en la fecha indicada
+     */
+    public boolean cubre(LocalDateTime inicio) {
+        LocalDateTime h = horizonte;
+        return h != null && !inicio.isBefore(h);
+    }
+
+    /**
+     * Verificar si existe algún intervalo ocupado que se traslape con [inicio, fin].
+     * Usa el mismo criterio inclusivo que las consultas BETWEEN de los repositorios.
+     */
+    public boolean hayConflicto(Long recursoId, LocalDateTime inicio, LocalDateTime fin) {
+        IntervalosRecurso intervalos = intervalosPorRecurso.get(recursoId);
+        return intervalos != null && intervalos.hayTraslape(inicio, fin);
+    }
+
+    /**
+     * Actualizar una reserva en el índice según su estado actual
+     */
+    public void actualizarReserva(Long reservaId, Long recursoId, EstadoReserva estado,
+            LocalDateTime fechaInicio, LocalDateTime fechaFin) {
+        String clave = PREFIJO_RESERVA + reservaId;
+        if (recursoId != null && fechaInicio != null && fechaFin != null
+                && (estado == EstadoReserva.CONFIRMADA || estado == EstadoReserva.EN_CURSO)) {
+            aplicarRegistro(clave, recursoId, fechaInicio, fechaFin);
+        } else {
+            aplicarEliminacion(clave);
+        }
+    }
+
+    public void eliminarReserva(Long reservaId) {
+        aplicarEliminacion(PREFIJO_RESERVA + reservaId);
+    }
+
+    /**
+     * Actualizar un día de disponibilidad de cabaña en el índice
+     */
+    public void actualizarDiaCabana(Long disponibilidadId, Long cabanaId, LocalDate fecha, Boolean disponible) {
+        String clave = PREFIJO_DIA_CABANA + disponibilidadId;
+        if (cabanaId != null && fecha != null && Boolean.FALSE.equals(disponible)) {
+            LocalDateTime dia = fecha.atStartOfDay();
+            aplicarRegistro(clave, cabanaId, dia, dia);
+        } else {
+            aplicarEliminacion(clave);
+        }
+    }
+
+    public void eliminarDiaCabana(Long disponibilidadId) {
+        aplicarEliminacion(PREFIJO_DIA_CABANA + disponibilidadId);
+    }
+
+    /**
+     * Actualizar un bloque horario de servicio en el índice
+     */
+    public void actualizarBloqueHorario(Long bloqueId, Long servicioId, LocalDate fecha,
+            LocalTime horaInicio, LocalTime horaFin, Boolean disponible) {
+        String clave = PREFIJO_BLOQUE + bloqueId;
+        if (servicioId != null && fecha != null && horaInicio != null && horaFin != null
+                && Boolean.FALSE.equals(disponible)) {
+            aplicarRegistro(clave, servicioId, fecha.atTime(horaInicio), fecha.atTime(horaFin));
+        } else {
+            aplicarEliminacion(clave);
+        }
+    }
+
+    public void eliminarBloqueHorario(Long bloqueId) {
+        aplicarEliminacion(PREFIJO_BLOQUE + bloqueId);
+    }
+
+    private void aplicarRegistro(String clave, Long recursoId, LocalDateTime inicio, LocalDateTime fin) {
+        lock.readLock().lock();
+        try {
+            registrar(clave, recursoId, inicio, fin);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void aplicarEliminacion(String clave) {
+        lock.readLock().lock();
+        try {
+            eliminar(clave);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void registrar(String clave, Long recursoId, LocalDateTime inicio, LocalDateTime fin) {
+        Long recursoAnterior = recursoPorClave.put(clave, recursoId);
+        if (recursoAnterior != null && !recursoAnterior.equals(recursoId)) {
+            IntervalosRecurso anterior = intervalosPorRecurso.get(recursoAnterior);
+            if (anterior != null) {
+                anterior.eliminar(clave);
+            }
+        }
+        intervalosPorRecurso.computeIfAbsent(recursoId, id -> new IntervalosRecurso())
+                .registrar(new Intervalo(clave, inicio, fin));
+    }
+
+    private void eliminar(String clave) {
+        Long recursoId = recursoPorClave.remove(clave);
+        if (recursoId != null) {
+            IntervalosRecurso intervalos = intervalosPorRecurso.get(recursoId);
+            if (intervalos != null) {
+                intervalos.eliminar(clave);
+            }
+        }
+    }
+
+    private static final class Intervalo {
+        private final String clave;
+        private final LocalDateTime inicio;
+        private final LocalDateTime fin;
+
+        private Intervalo(String clave, LocalDateTime inicio, LocalDateTime fin) {
+            this.clave = clave;
+            this.inicio = inicio;
+            this.fin = fin;
+        }
+    }
+
+    /**
+     * Intervalos de un recurso ordenados por inicio. Con la duración máxima
+     * registrada basta recorrer los que empiezan en [inicio - duracionMaxima, fin].
+     */
+    private static final class IntervalosRecurso {
+
+        private static final Comparator<Intervalo> ORDEN = Comparator
+                .comparing((Intervalo i) -> i.inicio)
+                .thenComparing(i -> i.clave);
+
+        private final NavigableSet<Intervalo> porInicio = new TreeSet<>(ORDEN);
+        private final Map<String, Intervalo> porClave = new HashMap<>();
+        private Duration duracionMaxima = Duration.ZERO;
+
+        synchronized void registrar(Intervalo intervalo) {
+            Intervalo anterior = porClave.put(intervalo.clave, intervalo);
+            if (anterior != null) {
+                porInicio.remove(anterior);
+            }
+            porInicio.add(intervalo);
+
+            Duration duracion = Duration.between(intervalo.inicio, intervalo.fin);
+            if (duracion.compareTo(duracionMaxima) > 0) {
+                duracionMaxima = duracion;
+            }
+        }
+
+        synchronized void eliminar(String clave) {
+            Intervalo anterior = porClave.remove(clave);
+            if (anterior != null) {
+                porInicio.remove(anterior);
+            }
+        }
+
+        synchronized boolean hayTraslape(LocalDateTime inicio, LocalDateTime fin) {
+            Intervalo desde = new Intervalo("", inicio.minus(duracionMaxima), null);
+            Intervalo hasta = new Intervalo("\uffff", fin, null);
+
+            for (Intervalo intervalo : porInicio.subSet(desde, true, hasta, true)) {
+                if (!intervalo.fin.isBefore(inicio)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        synchronized void eliminarAnterioresA(LocalDateTime limite, Map<String, Long> recursoPorClave) {
+            porInicio.removeIf(intervalo -> {
+                if (intervalo.fin.isBefore(limite)) {
+                    porClave.remove(intervalo.clave);
+                    recursoPorClave.remove(intervalo.clave);
+                    return true;
+                }
+                return false;
+            });
+        }
+
+        synchronized boolean estaVacio() {
+            return porInicio.isEmpty();
+        }
+    }
+}
@@ -2,7 +2,9 @@ package com.bms.reserva_servicio_backend.service;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -150,6 +152,31 @@ public class InventarioService {
         stockService.liberarStock(itemsToRelease, reserva);
     }
 
+    /**
+     * Liberar los items de varias reservas con una sola consulta y un solo lote
+     * de actualizaciones de stock
+     *
+     * @param usuarioPorReserva reservaId -> userId
+     * @return unidades repuestas en total
+     */
+    public int liberarItemsDeReservas(Map<Long, Long> usuarioPorReserva) {
+        if (usuarioPorReserva.isEmpty()) {
+            return 0;
+        }
+
+        int unidades = 0;
+
+        Map<Long, Map<Long, Integer>> itemsPorReserva = new LinkedHashMap<>();
+        for (Object[] fila : itemReservadoRepository.findCantidadesPorReservas(new ArrayList<>(usuarioPorReserva.keySet()))) {
+            itemsPorReserva.computeIfAbsent((Long) fila[0], id -> new HashMap<>())
+                    .merge((Long) fila[1], (Integer) fila[2], Integer::sum);
+            unidades += (Integer) fila[2];
+        }
+
+        stockService.liberarStockDeReservas(itemsPorReserva, usuarioPorReserva);
+        return unidades;
+    }
+
     /**
      * Calcular disponibilidad de un item en un período
      */
@@ -22,6 +22,9 @@ public class PagoService {
     @Autowired
     private PagoRepository pagoRepository;
 
+    @Autowired
+    private EstadisticasDashboardService estadisticasDashboard;
+
     /**
      * Procesar pago de una reserva individual
      */
@@ -34,7 +37,7 @@ public class PagoService {
         pago.setFechaPago(LocalDateTime.now());
         pago.setEstado("COMPLETADO");
         
-        return pagoRepository.save(pago);
+        return registrar(pagoRepository.save(pago));
     }
 
      /**
@@ -49,7 +52,7 @@ public class PagoService {
         pago.setFechaPago(LocalDateTime.now());
         pago.setEstado("COMPLETADO");
         
-        return pagoRepository.save(pago);
+        return registrar(pagoRepository.save(pago));
     }
     
     /**
@@ -66,9 +69,14 @@ public class PagoService {
         reembolso.setFechaPago(LocalDateTime.now());
         reembolso.setEstado("COMPLETADO");
         
-        return pagoRepository.save(reembolso);
+        return registrar(pagoRepository.save(reembolso));
     }
     
+    private Pagos registrar(Pagos pago) {
+        estadisticasDashboard.registrarPago(pago);
+        return pago;
+    }
+
     /**
      * Calcular monto de reembolso
      */
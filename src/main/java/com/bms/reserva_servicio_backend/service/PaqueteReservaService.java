@@ -2,6 +2,7 @@ package com.bms.reserva_servicio_backend.service;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -36,6 +37,12 @@ public class PaqueteReservaService {
     @Autowired
     private PagoService pagoService;
 
+    @Autowired
+    private EstadisticasDashboardService estadisticasDashboard;
+
+    @Autowired
+    private BloqueoRecursoService bloqueoRecursoService;
+
     /**
      * Crear paquete combinado: Cabaña + Servicios
      * 
@@ -44,6 +51,14 @@ public class PaqueteReservaService {
     public PaqueteReserva crearPaqueteCompleto(Long userId,
             PaqueteReservaDTO paqueteDTO) throws Exception {
 
+        // Todos los recursos del paquete de una vez y en orden, antes de reservar cada uno
+        List<Long> recursoIds = new ArrayList<>();
+        recursoIds.add(paqueteDTO.getCabanaId());
+        if (paqueteDTO.getServicios() != null) {
+            paqueteDTO.getServicios().forEach(servicio -> recursoIds.add(servicio.getServicioId()));
+        }
+        bloqueoRecursoService.bloquearHastaFinDeTransaccion(recursoIds);
+
         PaqueteReserva paquete = new PaqueteReserva();
         paquete.setUser(userRepository.findById(userId).orElseThrow(
                 () -> new EntityNotFoundException("Usuario no encontrado"))); // CAMBIADO: setCliente -> setUser
@@ -118,6 +133,7 @@ public class PaqueteReservaService {
 
         // Confirmar todas las reservas del paquete
         for (Reserva reserva : paquete.getReservas()) {
+            estadisticasDashboard.registrarCambioEstado(reserva.getEstado(), EstadoReserva.CONFIRMADA);
             reserva.setEstado(EstadoReserva.CONFIRMADA);
         }
 
@@ -133,6 +149,19 @@ public class PaqueteReservaService {
                 .orElseThrow(() -> new EntityNotFoundException("Paquete no encontrado"));
     }
 
+    /**
+     * Obtener paquete por ID con sus reservas, items e imágenes ya cargados
+     * para PaqueteResponse
+     */
+    @Transactional(readOnly = true)
+    public PaqueteReserva obtenerDetalle(Long id) {
+        PaqueteReserva paquete = paqueteRepository.cargarReservas(List.of(id)).stream()
+                .findFirst()
+                .orElseThrow(() -> new EntityNotFoundException("Paquete no encontrado"));
+        reservaService.cargarParaRespuesta(paquete.getReservas());
+        return paquete;
+    }
+
     /**
      * Obtener paquetes por cliente
      */
@@ -0,0 +1,431 @@
+package com.bms.reserva_servicio_backend.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Reconciliación del directorio de uploads con recursos_imagenes.
+ *
+ * Los archivos que ninguna imagen referencia (cargas fallidas, imágenes
+ * borradas en cascada con su recurso) se mueven a .cuarentena o se eliminan,
+ * según app.upload.gc.modo. Los archivos en cuarentena se eliminan pasados
+ * app.upload.gc.retencion-dias.
+ *
+ * Primero se leen las URLs de la tabla por páginas y se guarda una huella de
+ * 64 bits por archivo referenciado (para los nombres por contenido, el inicio
+ * del SHA-256, que cubre original y variantes). Luego se recorre el directorio.
+ * Una colisión de huellas solo puede conservar un huérfano, nunca borrar un
+ * archivo en uso. Los archivos modificados dentro del período de gracia no se
+ * tocan (pueden ser de una carga en curso), y antes de cada lote se vuelve a
+ * consultar la tabla por los hashes candidatos. Una carga repetida renueva la
+ * fecha del archivo existente antes de guardar su fila, así que la fecha se
+ * vuelve a leer justo antes de mover o eliminar cada archivo, y también
+ * después de moverlo: si cambió entre medio, el archivo vuelve a su lugar.
+ *
+ * Métricas: uploads.gc.archivos (tag "accion": cuarentena, eliminado) y
+ * uploads.gc.bytes.
+ */
+@Service
+public class ReconciliacionArchivosService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReconciliacionArchivosService.class);
+
+    public static final String DIRECTORIO_CUARENTENA = ".cuarentena";
+
+    private static final Pattern NOMBRE_POR_CONTENIDO = Pattern.compile("^([0-9a-f]{64})");
+
+    private static final String SQL_PAGINA = "SELECT id, url, url_miniatura, url_media, url_completa, hash_contenido "
+            + "FROM recursos_imagenes WHERE id > :desdeId ORDER BY id LIMIT :limite";
+    private static final String SQL_HASHES_EN_USO = "SELECT DISTINCT hash_contenido FROM recursos_imagenes "
+            + "WHERE hash_contenido IN (:hashes)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final Path directorio;
+    private final boolean cuarentena;
+    private final Duration gracia;
+    private final Duration retencion;
+    private final int tamanoLote;
+    private final long pausaMs;
+
+    private final Counter archivosEnCuarentena;
+    private final Counter archivosEliminados;
+    private final Counter bytesRecuperados;
+
+    private final AtomicBoolean enCurso = new AtomicBoolean();
+
+    /**
+     * Resumen de una ejecución: bytesHuerfanos son los de los archivos movidos o
+     * eliminados en esta pasada; bytesRecuperados lo efectivamente liberado en
+     * disco (eliminaciones directas y purga de la cuarentena)
+     */
+    public record Resultado(long archivosRevisados, long huerfanos, long bytesHuerfanos, long bytesRecuperados) {
+    }
+
+    public ReconciliacionArchivosService(NamedParameterJdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+            @Value("${app.upload.dir:uploads/recursos}") String uploadDir,
+            @Value("${app.upload.gc.modo:cuarentena}") String modo,
+            @Value("${app.upload.gc.gracia-minutos:60}") long graciaMinutos,
+            @Value("${app.upload.gc.retencion-dias:7}") long retencionDias,
+            @Value("${app.upload.gc.tamano-lote:200}") int tamanoLote,
+            @Value("${app.upload.gc.pausa-ms:100}") long pausaMs) {
+        if (!"cuarentena".equals(modo) && !"eliminar".equals(modo)) {
+            throw new IllegalArgumentException("app.upload.gc.modo debe ser cuarentena o eliminar: " + modo);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.directorio = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.cuarentena = "cuarentena".equals(modo);
+        this.gracia = Duration.ofMinutes(graciaMinutos);
+        this.retencion = Duration.ofDays(retencionDias);
+        this.tamanoLote = tamanoLote;
+        this.pausaMs = pausaMs;
+
+        this.archivosEnCuarentena = Counter.builder("uploads.gc.archivos")
+                .description("Archivos huérfanos de uploads/recursos")
+                .tag("accion", "cuarentena")
+                .register(meterRegistry);
+        this.archivosEliminados = Counter.builder("uploads.gc.archivos")
+                .description("Archivos huérfanos de uploads/recursos")
+                .tag("accion", "eliminado")
+                .register(meterRegistry);
+        this.bytesRecuperados = Counter.builder("uploads.gc.bytes")
+                .description("Bytes liberados al eliminar archivos huérfanos")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${app.upload.gc.cron:0 45 3 * * *}")
+    public void reconciliarProgramado() {
+        try {
+            reconciliar();
+        } catch (Exception e) {
+            logger.error("Error en la reconciliación de uploads: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Ejecutar una reconciliación completa; si ya hay una en curso no hace nada
+     */
+    public Resultado reconciliar() throws IOException {
+        if (!Files.isDirectory(directorio)) {
+            return new Resultado(0, 0, 0, 0);
+        }
+        if (!enCurso.compareAndSet(false, true)) {
+            logger.info("Reconciliación de uploads ya en curso, se omite");
+            return new Resultado(0, 0, 0, 0);
+        }
+        try {
+            long bytesRecuperadosTotal = purgarCuarentena();
+
+            // La tabla se lee antes de recorrer el directorio: lo subido después queda en el período de gracia
+            ConjuntoHuellas referenciados = leerReferenciados();
+            Instant limiteGracia = Instant.now().minus(gracia);
+
+            long[] revisados = new long[1];
+            List<Path> candidatos = new ArrayList<>();
+            Files.walkFileTree(directorio, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    // Archivos planos: la cuarentena u otros subdirectorios no se revisan
+                    return dir.equals(directorio) ? FileVisitResult.CONTINUE : FileVisitResult.SKIP_SUBTREE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path archivo, BasicFileAttributes attrs) {
+                    if (!attrs.isRegularFile()) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    revisados[0]++;
+                    if (attrs.lastModifiedTime().toInstant().isBefore(limiteGracia)
+                            && !referenciados.contiene(huella(archivo.getFileName().toString()))) {
+                        candidatos.add(archivo);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path archivo, IOException e) {
+                    logger.warn("No se pudo revisar {}: {}", archivo, e.getMessage());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+
+            long huerfanos = 0;
+            long bytesHuerfanos = 0;
+            for (int i = 0; i < candidatos.size(); i += tamanoLote) {
+                if (i > 0) {
+                    pausar();
+                }
+                long[] procesado = procesarLote(candidatos.subList(i, Math.min(i + tamanoLote, candidatos.size())));
+                huerfanos += procesado[0];
+                bytesHuerfanos += procesado[1];
+                if (!cuarentena) {
+                    bytesRecuperadosTotal += procesado[1];
+                }
+            }
+
+            Resultado resultado = new Resultado(revisados[0], huerfanos, bytesHuerfanos, bytesRecuperadosTotal);
+            if (huerfanos > 0 || bytesRecuperadosTotal > 0) {
+                logger.info("Reconciliación de uploads: {} archivos revisados, {} huérfanos {} ({} bytes), "
+                        + "{} bytes liberados", resultado.archivosRevisados(), huerfanos,
+                        cuarentena ? "en cuarentena" : "eliminados", bytesHuerfanos, bytesRecuperadosTotal);
+            }
+            return resultado;
+        } finally {
+            enCurso.set(false);
+        }
+    }
+
+    /**
+     * Mueve a cuarentena o elimina un lote de huérfanos, salvo los que ahora sí
+     * estén referenciados
+     *
+     * @return {archivos procesados, bytes de esos archivos}
+     */
+    private long[] procesarLote(List<Path> lote) {
+        Set<String> enUso = hashesEnUso(lote);
+        long archivos = 0;
+        long bytes = 0;
+        for (Path archivo : lote) {
+            Matcher m = NOMBRE_POR_CONTENIDO.matcher(archivo.getFileName().toString());
+            if (m.find() && enUso.contains(m.group(1))) {
+                continue;
+            }
+            try {
+                // Una carga repetida pudo renovar la fecha después del recorrido
+                Instant limiteGracia = Instant.now().minus(gracia);
+                if (!modificadoAntesDe(archivo, limiteGracia)) {
+                    continue;
+                }
+                long tamano = Files.size(archivo);
+                if (cuarentena) {
+                    Path destino = directorio.resolve(DIRECTORIO_CUARENTENA);
+                    Files.createDirectories(destino);
+                    Path movido = destino.resolve(archivo.getFileName());
+                    Files.move(archivo, movido, StandardCopyOption.REPLACE_EXISTING);
+                    // La fecha se conserva al mover: si se renovó entre la lectura y el movimiento, se devuelve
+                    if (!modificadoAntesDe(movido, limiteGracia)) {
+                        Files.move(movido, archivo, StandardCopyOption.REPLACE_EXISTING);
+                        continue;
+                    }
+                    // La retención de la cuarentena se cuenta desde que el archivo entra en ella
+                    Files.setLastModifiedTime(movido, FileTime.from(Instant.now()));
+                    archivosEnCuarentena.increment();
+                } else {
+                    Files.deleteIfExists(archivo);
+                    archivosEliminados.increment();
+                    bytesRecuperados.increment(tamano);
+                }
+                archivos++;
+                bytes += tamano;
+            } catch (IOException e) {
+                logger.warn("No se pudo procesar el huérfano {}: {}", archivo, e.getMessage());
+            }
+        }
+        return new long[] { archivos, bytes };
+    }
+
+    private static boolean modificadoAntesDe(Path archivo, Instant limite) throws IOException {
+        return Files.getLastModifiedTime(archivo).toInstant().isBefore(limite);
+    }
+
+    private Set<String> hashesEnUso(List<Path> lote) {
+        Set<String> hashes = new HashSet<>();
+        for (Path archivo : lote) {
+            Matcher m = NOMBRE_POR_CONTENIDO.matcher(archivo.getFileName().toString());
+            if (m.find()) {
+                hashes.add(m.group(1));
+            }
+        }
+        if (hashes.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return new HashSet<>(jdbcTemplate.queryForList(SQL_HASHES_EN_USO,
+                new MapSqlParameterSource("hashes", hashes), String.class));
+    }
+
+    /**
+     * Elimina los archivos que llevan en cuarentena más que la retención
+     *
+     * @return bytes liberados
+     */
+    private long purgarCuarentena() throws IOException {
+        Path dir = directorio.resolve(DIRECTORIO_CUARENTENA);
+        if (!Files.isDirectory(dir)) {
+            return 0;
+        }
+        Instant limite = Instant.now().minus(retencion);
+        long bytes = 0;
+        try (var archivos = Files.list(dir)) {
+            for (Path archivo : (Iterable<Path>) archivos::iterator) {
+                try {
+                    if (Files.isRegularFile(archivo)
+                            && Files.getLastModifiedTime(archivo).toInstant().isBefore(limite)) {
+                        long tamano = Files.size(archivo);
+                        Files.delete(archivo);
+                        archivosEliminados.increment();
+                        bytesRecuperados.increment(tamano);
+                        bytes += tamano;
+                    }
+                } catch (IOException e) {
+                    logger.warn("No se pudo eliminar {} de la cuarentena: {}", archivo, e.getMessage());
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Huellas de todos los archivos referenciados, leyendo la tabla por páginas
+     */
+    private ConjuntoHuellas leerReferenciados() {
+        ConjuntoHuellas huellas = new ConjuntoHuellas(1024);
+        long desdeId = 0;
+        int leidas;
+        do {
+            long[] ultimoId = { desdeId };
+            int[] filas = new int[1];
+            jdbcTemplate.query(SQL_PAGINA, new MapSqlParameterSource("desdeId", desdeId).addValue("limite", tamanoLote),
+                    rs -> {
+                        ultimoId[0] = rs.getLong("id");
+                        filas[0]++;
+                        String hash = rs.getString("hash_contenido");
+                        if (hash != null) {
+                            huellas.agregar(huella(hash));
+                        }
+                        for (String columna : new String[] { "url", "url_miniatura", "url_media", "url_completa" }) {
+                            String url = rs.getString(columna);
+                            if (url != null) {
+                                huellas.agregar(huella(url.substring(url.lastIndexOf('/') + 1)));
+                            }
+                        }
+                    });
+            desdeId = ultimoId[0];
+            leidas = filas[0];
+        } while (leidas == tamanoLote);
+        return huellas;
+    }
+
+    /**
+     * Huella de 64 bits de un nombre de archivo: para los nombres por contenido
+     * los primeros 16 dígitos del SHA-256 (iguales para el original, sus
+     * variantes y sus versiones WebP/AVIF); para el resto FNV-1a del nombre
+     */
+    static long huella(String nombre) {
+        Matcher m = NOMBRE_POR_CONTENIDO.matcher(nombre);
+        if (m.find()) {
+            return Long.parseUnsignedLong(m.group(1).substring(0, 16), 16);
+        }
+        long h = 0xcbf29ce484222325L;
+        for (byte b : nombre.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private void pausar() {
+        try {
+            Thread.sleep(pausaMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Conjunto de long con direccionamiento abierto: 8 bytes por entrada, sin
+     * objetos por elemento. El 0 se guarda aparte porque marca posición vacía.
+     */
+    static final class ConjuntoHuellas {
+
+        private long[] tabla;
+        private int tamano;
+        private boolean contieneCero;
+
+        ConjuntoHuellas(int capacidadInicial) {
+            tabla = new long[Integer.highestOneBit(Math.max(16, capacidadInicial) * 2 - 1)];
+        }
+
+        void agregar(long valor) {
+            if (valor == 0) {
+                contieneCero = true;
+                return;
+            }
+            if ((tamano + 1) * 2 > tabla.length) {
+                redimensionar();
+            }
+            if (insertar(tabla, valor)) {
+                tamano++;
+            }
+        }
+
+        boolean contiene(long valor) {
+            if (valor == 0) {
+                return contieneCero;
+            }
+            int mascara = tabla.length - 1;
+            for (int i = indice(valor, mascara); tabla[i] != 0; i = (i + 1) & mascara) {
+                if (tabla[i] == valor) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void redimensionar() {
+            long[] nueva = new long[tabla.length * 2];
+            for (long valor : tabla) {
+                if (valor != 0) {
+                    insertar(nueva, valor);
+                }
+            }
+            tabla = nueva;
+        }
+
+        private static boolean insertar(long[] tabla, long valor) {
+            int mascara = tabla.length - 1;
+            int i = indice(valor, mascara);
+            while (tabla[i] != 0) {
+                if (tabla[i] == valor) {
+                    return false;
+                }
+                i = (i + 1) & mascara;
+            }
+            tabla[i] = valor;
+            return true;
+        }
+
+        private static int indice(long valor, int mascara) {
+            long h = valor * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mascara;
+        }
+    }
+}
@@ -1,18 +1,43 @@
 package com.bms.reserva_servicio_backend.service;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
-import java.util.UUID;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.bms.reserva_servicio_backend.models.Recurso;
@@ -25,37 +50,83 @@ import jakarta.persistence.EntityNotFoundException;
 @Service
 public class RecursoImagenService {
 
+    private static final Logger logger = LoggerFactory.getLogger(RecursoImagenService.class);
+
     @Autowired
     private RecursoImagenRepository imagenRepository;
 
     @Autowired
     private RecursoRepository recursoRepository;
 
+    @Autowired
+    private VariantesImagenService variantesImagen;
+
+    @Autowired
+    @Qualifier("escrituraImagenesExecutor")
+    private Executor escrituraImagenesExecutor;
+
+    @Value("${app.upload.max-archivos-lote:50}")
+    private int maxArchivosPorLote;
+
     @Value("${app.upload.dir:uploads/recursos}")
     private String uploadDir;
 
     @Value("${app.base.url:http://localhost:8080}")
     private String baseUrl;
 
+    // Cargas sin confirmar por hash de contenido: mientras haya una, el archivo no se borra
+    private final ConcurrentHashMap<String, Integer> subidasEnCurso = new ConcurrentHashMap<>();
+
     /**
      * Subir imagen para un recurso
      */
     @Transactional
     public RecursoImagen subirImagen(Long recursoId, MultipartFile file, String descripcion, Boolean esPrincipal)
             throws IOException {
+        return subirImagenes(recursoId, List.of(file), descripcion != null ? List.of(descripcion) : null,
+                Boolean.TRUE.equals(esPrincipal) ? 0 : null).get(0);
+    }
+
+    /**
+     * Subir varias imágenes para un recurso.
+     *
+     * Los archivos se escriben en paralelo; luego se leen una sola vez las
+     * imágenes existentes (para el orden y la imagen principal) y se guardan
+     * todos los registros con un solo saveAll. indicePrincipal es la posición
+     * del archivo que queda como principal, o null para no cambiarla.
+     */
+    @Transactional
+    public List<RecursoImagen> subirImagenes(Long recursoId, List<MultipartFile> files, List<String> descripciones,
+            Integer indicePrincipal) throws IOException {
 
         Recurso recurso = recursoRepository.findById(recursoId)
                 .orElseThrow(() -> new EntityNotFoundException("Recurso no encontrado con id: " + recursoId));
 
-        // Validar archivo
-        if (file.isEmpty()) {
-            throw new IllegalArgumentException("El archivo está vacío");
+        // Validar archivos
+        if (files == null || files.isEmpty()) {
+            throw new IllegalArgumentException("Debe enviar al menos un archivo");
         }
-
-        // Validar tipo de archivo (solo imágenes)
-        String contentType = file.getContentType();
-        if (contentType == null || !contentType.startsWith("image/")) {
-            throw new IllegalArgumentException("Solo se permiten archivos de imagen");
+        if (files.size() > maxArchivosPorLote) {
+            throw new IllegalArgumentException("Se permiten como máximo " + maxArchivosPorLote + " archivos por carga");
+        }
+        if (indicePrincipal != null && (indicePrincipal < 0 || indicePrincipal >= files.size())) {
+            throw new IllegalArgumentException("Índice de imagen principal fuera de rango: " + indicePrincipal);
+        }
+        for (MultipartFile file : files) {
+            if (file.isEmpty()) {
+                throw new IllegalArgumentException("El archivo está vacío: " + file.getOriginalFilename());
+            }
+            // Validar tipo de archivo (solo imágenes)
+            String contentType = file.getContentType();
+            if (contentType == null || !contentType.startsWith("image/")) {
+                throw new IllegalArgumentException("Solo se permiten archivos de imagen: " + file.getOriginalFilename());
+            }
+            try (InputStream entrada = file.getInputStream()) {
+                if (variantesImagen.excedeMaximoPixeles(entrada)) {
+                    throw new IllegalArgumentException("La imagen supera el máximo de "
+                            + variantesImagen.getMaxPixeles() + " píxeles: " + file.getOriginalFilename());
+                }
+            }
         }
 
         // Crear directorio si no existe
@@ -64,42 +135,209 @@ public class RecursoImagenService {
             Files.createDirectories(uploadPath);
         }
 
-        // Generar nombre único para el archivo
-        String originalFilename = file.getOriginalFilename();
-        String extension = originalFilename != null && originalFilename.contains(".")
-                ? originalFilename.substring(originalFilename.lastIndexOf("."))
-                : ".jpg";
-        String filename = UUID.randomUUID().toString() + extension;
+        // Guardar por contenido: el nombre es el SHA-256 del archivo, calculado mientras se copia
+        Queue<String> reservados = new ConcurrentLinkedQueue<>();
+        liberarAlTerminar(reservados);
+        List<ArchivoGuardado> archivos = guardarEnParalelo(files, uploadPath, reservados);
+
+        // Una sola lectura de las imágenes existentes: siguiente orden y reinicio de la principal
+        List<RecursoImagen> existentes = imagenRepository.findByRecursoIdOrderByOrdenVisualizacionAsc(recursoId);
+        int siguienteOrden = existentes.stream()
+                .map(RecursoImagen::getOrdenVisualizacion)
+                .filter(orden -> orden != null)
+                .max(Integer::compare)
+                .map(orden -> orden + 1)
+                .orElse(0);
+        if (indicePrincipal != null) {
+            existentes.stream()
+                    .filter(img -> Boolean.TRUE.equals(img.getEsPrincipal()))
+                    .forEach(img -> img.setEsPrincipal(false));
+        }
+
+        // El mismo contenido ya subido reutiliza sus variantes
+        Map<String, RecursoImagen> conVariantes = new HashMap<>();
+        imagenRepository.findByHashContenidoInAndUrlMiniaturaIsNotNull(
+                archivos.stream().map(ArchivoGuardado::hash).distinct().toList())
+                .forEach(img -> conVariantes.putIfAbsent(img.getHashContenido(), img));
 
-        // Guardar archivo
-        Path filePath = uploadPath.resolve(filename);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+        // Crear registros en BD
+        List<RecursoImagen> nuevas = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            ArchivoGuardado archivo = archivos.get(i);
+            RecursoImagen imagen = RecursoImagen.builder()
+                    .recurso(recurso)
+                    .url(baseUrl + "/uploads/recursos/" + archivo.nombre())
+                    .hashContenido(archivo.hash())
+                    .nombre(files.get(i).getOriginalFilename())
+                    .descripcion(descripciones != null && i < descripciones.size() ? descripciones.get(i) : null)
+                    .esPrincipal(indicePrincipal != null && indicePrincipal == i)
+                    .ordenVisualizacion(siguienteOrden + i)
+                    .fechaSubida(LocalDateTime.now())
+                    .build();
 
-        // Si es imagen principal, quitar flag de otras imágenes
-        if (esPrincipal != null && esPrincipal) {
-            List<RecursoImagen> imagenesExistentes = imagenRepository.findByRecursoIdOrderByOrdenVisualizacionAsc(recursoId);
-            for (RecursoImagen img : imagenesExistentes) {
-                img.setEsPrincipal(false);
+            RecursoImagen existente = conVariantes.get(archivo.hash());
+            if (existente != null) {
+                imagen.setUrlMiniatura(existente.getUrlMiniatura());
+                imagen.setUrlMedia(existente.getUrlMedia());
+                imagen.setUrlCompleta(existente.getUrlCompleta());
             }
-            imagenRepository.saveAll(imagenesExistentes);
+            nuevas.add(imagen);
         }
+        nuevas = imagenRepository.saveAll(nuevas);
 
-        // Obtener el siguiente orden de visualización
-        List<RecursoImagen> imagenes = imagenRepository.findByRecursoIdOrderByOrdenVisualizacionAsc(recursoId);
-        int nextOrden = imagenes.isEmpty() ? 0 : imagenes.get(imagenes.size() - 1).getOrdenVisualizacion() + 1;
+        // Una generación de variantes por contenido distinto
+        Set<String> encolados = new HashSet<>();
+        for (ArchivoGuardado archivo : archivos) {
+            if (!conVariantes.containsKey(archivo.hash()) && encolados.add(archivo.hash())) {
+                variantesImagen.generarDespuesDelCommit(archivo.nombre(), archivo.hash());
+            }
+        }
+        return nuevas;
+    }
 
-        // Crear registro en BD
-        RecursoImagen imagen = RecursoImagen.builder()
-                .recurso(recurso)
-                .url(baseUrl + "/uploads/recursos/" + filename)
-                .nombre(originalFilename)
-                .descripcion(descripcion)
-                .esPrincipal(esPrincipal != null ? esPrincipal : false)
-                .ordenVisualizacion(nextOrden)
-                .fechaSubida(LocalDateTime.now())
-                .build();
+    /**
+     * Escribe los archivos en el pool de escritura de imágenes y espera a que
+     * terminen todos; devuelve los resultados en el mismo orden
+     */
+    private List<ArchivoGuardado> guardarEnParalelo(List<MultipartFile> files, Path uploadPath,
+            Queue<String> reservados) throws IOException {
+        List<CompletableFuture<ArchivoGuardado>> escrituras = files.stream()
+                .map(file -> CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return guardarPorContenido(file, uploadPath, extension(file.getOriginalFilename()),
+                                reservados);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, escrituraImagenesExecutor))
+                .toList();
 
-        return imagenRepository.save(imagen);
+        try {
+            CompletableFuture.allOf(escrituras.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+        return escrituras.stream().map(CompletableFuture::join).toList();
+    }
+
+    /**
+     * Copia el archivo a un temporal calculando su SHA-256 en la misma lectura y
+     * luego lo mueve a {hash}{extension}. Si ese archivo ya existe, el contenido
+     * está repetido y se descarta el temporal. El hash queda en subidasEnCurso
+     * (y en reservados) antes de mirar el destino, así eliminarImagen no lo borra
+     * entre esta comprobación y el commit de la fila.
+     */
+    private ArchivoGuardado guardarPorContenido(MultipartFile file, Path uploadPath, String extension,
+            Queue<String> reservados) throws IOException {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        Path temporal = Files.createTempFile(uploadPath, "subida-", ".tmp");
+        try {
+            try (InputStream entrada = new DigestInputStream(file.getInputStream(), sha256)) {
+                Files.copy(entrada, temporal, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String hash = HexFormat.of().formatHex(sha256.digest());
+            subidasEnCurso.merge(hash, 1, Integer::sum);
+            reservados.add(hash);
+            String nombre = hash + extension;
+            Path destino = uploadPath.resolve(nombre);
+            if (Files.exists(destino)) {
+                try {
+                    // Renueva la fecha para que la reconciliación no lo tome por huérfano mientras se guarda la fila
+                    Files.setLastModifiedTime(destino, FileTime.from(Instant.now()));
+                    Files.delete(temporal);
+                    return new ArchivoGuardado(hash, nombre);
+                } catch (NoSuchFileException e) {
+                    // La reconciliación lo acaba de retirar: se vuelve a escribir con este contenido
+                }
+            }
+            Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return new ArchivoGuardado(hash, nombre);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporal);
+            throw e;
+        }
+    }
+
+    private static String extension(String originalFilename) {
+        if (originalFilename != null && originalFilename.contains(".")) {
+            String extension = originalFilename.substring(originalFilename.lastIndexOf(".")).toLowerCase(Locale.ROOT);
+            if (extension.matches("\\.[a-z0-9]{1,5}")) {
+                return extension;
+            }
+        }
+        return ".jpg";
+    }
+
+    /**
+     * Al terminar la transacción de la carga (commit o rollback) los hashes
+     * reservados dejan de proteger sus archivos
+     */
+    private void liberarAlTerminar(Queue<String> reservados) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                for (String hash : reservados) {
+                    subidasEnCurso.computeIfPresent(hash, (clave, cantidad) -> cantidad > 1 ? cantidad - 1 : null);
+                }
+            }
+        });
+    }
+
+    /**
+     * Borra los archivos de un contenido al confirmar, solo si ya no hay filas
+     * con ese hash ni cargas en curso. La comprobación y el borrado ocurren
+     * dentro de compute sobre el hash, excluyentes con la reserva que hace
+     * guardarPorContenido.
+     */
+    private void borrarContenidoDespuesDelCommit(String hash, List<Path> archivos) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                subidasEnCurso.compute(hash, (clave, cantidad) -> {
+                    if (cantidad == null && imagenRepository.countByHashContenido(hash) == 0) {
+                        borrar(archivos);
+                    }
+                    return cantidad;
+                });
+            }
+        });
+    }
+
+    private static void borrarDespuesDelCommit(List<Path> archivos) {
+        if (archivos.isEmpty()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                borrar(archivos);
+            }
+        });
+    }
+
+    private static void borrar(List<Path> archivos) {
+        for (Path archivo : archivos) {
+            try {
+                Files.deleteIfExists(archivo);
+            } catch (IOException e) {
+                logger.warn("No se pudo eliminar el archivo {}", archivo, e);
+            }
+        }
+    }
+
+    private record ArchivoGuardado(String hash, String nombre) {
     }
 
     /**
@@ -124,14 +362,21 @@ public class RecursoImagenService {
         RecursoImagen imagen = imagenRepository.findById(imagenId)
                 .orElseThrow(() -> new EntityNotFoundException("Imagen no encontrada con id: " + imagenId));
 
-        // Extraer filename de la URL
-        String url = imagen.getUrl();
-        String filename = url.substring(url.lastIndexOf("/") + 1);
-
-        // Eliminar archivo del sistema de archivos
-        Path filePath = Paths.get(uploadDir).resolve(filename);
-        if (Files.exists(filePath)) {
-            Files.delete(filePath);
+        // Archivos a borrar: el original y sus variantes, salvo que otra imagen tenga el mismo contenido
+        List<Path> archivos = new ArrayList<>();
+        String hash = imagen.getHashContenido();
+        if (hash == null || imagenRepository.countByHashContenido(hash) <= 1) {
+            String url = imagen.getUrl();
+            archivos.add(Paths.get(uploadDir).resolve(url.substring(url.lastIndexOf("/") + 1)));
+            if (hash == null) {
+                borrarDespuesDelCommit(archivos);
+            } else {
+                for (VariantesImagenService.Variante variante : VariantesImagenService.Variante.values()) {
+                    archivos.add(Paths.get(uploadDir).resolve(VariantesImagenService.nombreVariante(hash, variante)));
+                }
+                // Una carga del mismo contenido puede confirmarse antes que este borrado: se vuelve a contar
+                borrarContenidoDespuesDelCommit(hash, archivos);
+            }
         }
 
         // Eliminar registro de BD
@@ -0,0 +1,84 @@
+package com.bms.reserva_servicio_backend.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Último acceso de los usuarios con escritura diferida.
+ *
+ * El login solo anota el acceso en memoria; varios logins del mismo usuario
+ * entre dos volcados quedan en una sola entrada con la fecha más reciente. Cada
+ * app.usuarios.ultimo-acceso.intervalo-ms se escriben todos los pendientes con
+ * un UPDATE por lotes, y al detener la aplicación se vuelca lo que quede.
+ */
+@Service
+public class RegistroUltimoAccesoService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RegistroUltimoAccesoService.class);
+
+    private static final String SQL_ACTUALIZAR = "UPDATE users SET ultimo_acceso = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Long, LocalDateTime> pendientes = new ConcurrentHashMap<>();
+
+    public RegistroUltimoAccesoService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Anotar un acceso del usuario; se guarda en el siguiente volcado
+     */
+    public void registrar(Long userId) {
+        if (userId != null) {
+            registrarAcceso(userId, LocalDateTime.now());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.usuarios.ultimo-acceso.intervalo-ms:15000}", initialDelay = 15000)
+    @PreDestroy
+    public void volcar() {
+        if (pendientes.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> filas = new ArrayList<>(pendientes.size());
+        List<Map.Entry<Long, LocalDateTime>> tomadas = new ArrayList<>(pendientes.size());
+        for (Map.Entry<Long, LocalDateTime> entrada : pendientes.entrySet()) {
+            Long userId = entrada.getKey();
+            LocalDateTime acceso = entrada.getValue();
+            // Solo se quita si no hubo un acceso más nuevo mientras tanto
+            if (pendientes.remove(userId, acceso)) {
+                tomadas.add(Map.entry(userId, acceso));
+                filas.add(new Object[] { Timestamp.valueOf(acceso), userId });
+            }
+        }
+        if (filas.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(SQL_ACTUALIZAR, filas);
+            logger.debug("Último acceso actualizado para {} usuarios", filas.size());
+        } catch (RuntimeException e) {
+            // Se reintentan en el siguiente volcado, salvo que ya haya un acceso más nuevo
+            tomadas.forEach(t -> registrarAcceso(t.getKey(), t.getValue()));
+            logger.error("Error al actualizar último acceso de {} usuarios: {}", filas.size(), e.getMessage());
+        }
+    }
+
+    private void registrarAcceso(Long userId, LocalDateTime acceso) {
+        pendientes.merge(userId, acceso, (actual, nuevo) -> nuevo.isAfter(actual) ? nuevo : actual);
+    }
+}
@@ -1,36 +1,72 @@
 package com.bms.reserva_servicio_backend.service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.bms.reserva_servicio_backend.enums.EstadoReserva;
-import com.bms.reserva_servicio_backend.models.Reserva;
 import com.bms.reserva_servicio_backend.repository.ReservaRepository;
 
 /**
  * Servicio para tareas programadas relacionadas con reservas
  * - Liberar stock de reservas completadas
  * - Actualizar estados de reservas según fechas
+ *
+ * Las reservas se procesan por lotes paginados por id. Cada lote se confirma en
+ * su propia transacción (UPDATE masivo del estado + reposición agregada del
+ * stock), así un lote confirmado ya no vuelve a aparecer como candidato y si el
+ * proceso se interrumpe la siguiente ejecución continúa con lo pendiente. Como
+ * en ExpiracionReservasService, la transacción toma primero los locks de
+ * BloqueoRecursoService de los recursos del lote y después las filas.
+ *
+ * Las transiciones a tiempo las dispara TemporizadorReservasService; estos jobs
+ * periódicos quedan como red de seguridad.
  */
 @Service
-@Transactional
 public class ReservaSchedulerService {
 
     private static final Logger logger = LoggerFactory.getLogger(ReservaSchedulerService.class);
 
+    private static final List<EstadoReserva> ESTADOS_A_COMPLETAR = List.of(EstadoReserva.EN_CURSO,
+            EstadoReserva.CONFIRMADA);
+
     @Autowired
     private ReservaRepository reservaRepository;
 
     @Autowired
     private InventarioService inventarioService;
 
+    @Autowired
+    private EstadisticasDashboardService estadisticasDashboard;
+
+    @Autowired
+    private IndiceDisponibilidadService indiceDisponibilidad;
+
+    @Autowired
+    private VersionRecursosService versionRecursos;
+
+    @Autowired
+    private BloqueoRecursoService bloqueoRecursoService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.reservas.scheduler.tamano-lote:500}")
+    private int tamanoLote;
+
     /**
      * Job que se ejecuta cada hora para:
      * 1. Completar automáticamente reservas que ya finalizaron
@@ -41,102 +77,144 @@ public class ReservaSchedulerService {
     public void procesarReservasFinalizadas() {
         logger.info("Iniciando procesamiento de reservas finalizadas...");
 
-        try {
-            LocalDateTime ahora = LocalDateTime.now();
-
-            // Buscar reservas EN_CURSO o CONFIRMADA que ya finalizaron
-            List<Reserva> reservasFinalizadas = reservaRepository
-                .findByEstadoInAndFechaFinBefore(
-                    List.of(EstadoReserva.EN_CURSO, EstadoReserva.CONFIRMADA),
-                    ahora
-                );
-
-            if (reservasFinalizadas.isEmpty()) {
-                logger.info("No hay reservas para completar");
-                return;
-            }
+        LocalDateTime ahora = LocalDateTime.now();
+        long desdeId = 0L;
+        int completadas = 0;
+        int errores = 0;
 
-            logger.info("Encontradas {} reservas para completar", reservasFinalizadas.size());
-
-            int completadas = 0;
-            int errores = 0;
-
-            for (Reserva reserva : reservasFinalizadas) {
+        try {
+            List<Long> ids;
+            while (!(ids = reservaRepository.findIdsFinalizadasDesde(
+                    ESTADOS_A_COMPLETAR, ahora, desdeId, Limit.of(tamanoLote))).isEmpty()) {
+                desdeId = ids.get(ids.size() - 1);
                 try {
-                    // Cambiar estado a COMPLETADA
-                    EstadoReserva estadoAnterior = reserva.getEstado();
-                    reserva.setEstado(EstadoReserva.COMPLETADA);
-                    reservaRepository.save(reserva);
-
-                    // Liberar items del inventario
-                    inventarioService.liberarItems(reserva);
-
-                    // Nota: La disponibilidad ya se maneja en el DisponibilidadService
-                    // y se libera automáticamente cuando pasa la fecha
-
-                    logger.info("Reserva #{} completada y stock liberado (estado anterior: {})",
-                               reserva.getId(), estadoAnterior);
-                    completadas++;
-
+                    completadas += completarLote(ids);
                 } catch (Exception e) {
-                    errores++;
-                    logger.error("Error al procesar reserva #{}: {}",
-                               reserva.getId(), e.getMessage(), e);
+                    errores += ids.size();
+                    logger.error("Error al completar el lote de reservas hasta #{}: {}", desdeId, e.getMessage(), e);
                 }
+                logger.debug("Reservas finalizadas procesadas hasta #{}", desdeId);
             }
-
-            logger.info("Procesamiento completado: {} reservas completadas, {} errores",
-                       completadas, errores);
-
         } catch (Exception e) {
             logger.error("Error general en procesarReservasFinalizadas: {}", e.getMessage(), e);
         }
+
+        logger.info("Procesamiento completado: {} reservas completadas, {} con error",
+                completadas, errores);
     }
 
     /**
-     * Job que se ejecuta cada 30 minutos para actualizar reservas a EN_CURSO
+     * Job que se ejecuta cada hora para actualizar reservas a EN_CURSO
      * cuando la fecha de inicio ya pasó
      */
-    @Scheduled(fixedDelay = 1800000, initialDelay = 30000) // Cada 30 minutos, delay inicial de 30 segundos
+    @Scheduled(fixedDelay = 3600000, initialDelay = 30000) // Cada hora, delay inicial de 30 segundos
     public void actualizarReservasEnCurso() {
         logger.info("Actualizando reservas a EN_CURSO...");
 
+        LocalDateTime ahora = LocalDateTime.now();
+        long desdeId = 0L;
+        int actualizadas = 0;
+
         try {
-            LocalDateTime ahora = LocalDateTime.now();
+            List<Long> ids;
+            while (!(ids = reservaRepository.findIdsParaIniciarDesde(
+                    EstadoReserva.CONFIRMADA, ahora, desdeId, Limit.of(tamanoLote))).isEmpty()) {
+                desdeId = ids.get(ids.size() - 1);
+                try {
+                    actualizadas += iniciarLote(ids);
+                } catch (Exception e) {
+                    logger.error("Error al iniciar el lote de reservas hasta #{}: {}", desdeId, e.getMessage(), e);
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Error en actualizarReservasEnCurso: {}", e.getMessage(), e);
+        }
 
-            // Buscar reservas CONFIRMADA cuya fecha de inicio ya pasó pero aún no terminaron
-            List<Reserva> reservasParaIniciar = reservaRepository
-                .findByEstadoAndFechaInicioBefore(EstadoReserva.CONFIRMADA, ahora);
+        logger.info("Actualizadas {} reservas a EN_CURSO", actualizadas);
+    }
 
-            // Filtrar solo las que no han terminado
-            List<Reserva> reservasEnCurso = reservasParaIniciar.stream()
-                .filter(r -> r.getFechaFin().isAfter(ahora))
-                .toList();
+    /**
+     * Completar un lote de reservas en una transacción propia: bloquea las filas
+     * que siguen CONFIRMADA / EN_CURSO, las pasa a COMPLETADA con un solo UPDATE y
+     * repone el stock de todos sus items agrupado por item.
+     *
+     * @return cantidad de reservas completadas
+     */
+    public int completarLote(List<Long> ids) {
+        Map<EstadoReserva, Long> estadosAnteriores = new EnumMap<>(EstadoReserva.class);
 
-            if (reservasEnCurso.isEmpty()) {
-                logger.info("No hay reservas para iniciar");
-                return;
-            }
+        // Fuera de la transacción: el recurso de una reserva no cambia
+        List<Long> recursoIds = reservaRepository.findRecursoIdsByIdIn(ids);
 
-            logger.info("Encontradas {} reservas para marcar como EN_CURSO", reservasEnCurso.size());
+        List<Long> completadas = new TransactionTemplate(transactionManager).execute(status -> {
+            bloqueoRecursoService.bloquearHastaFinDeTransaccion(recursoIds);
 
-            int actualizadas = 0;
-            for (Reserva reserva : reservasEnCurso) {
-                try {
-                    reserva.setEstado(EstadoReserva.EN_CURSO);
-                    reservaRepository.save(reserva);
-                    logger.info("Reserva #{} actualizada a EN_CURSO", reserva.getId());
-                    actualizadas++;
-                } catch (Exception e) {
-                    logger.error("Error al actualizar reserva #{}: {}", reserva.getId(), e.getMessage());
-                }
+            Map<Long, Long> usuarioPorReserva = bloquearLote(ids, ESTADOS_A_COMPLETAR, estadosAnteriores);
+            if (usuarioPorReserva.isEmpty()) {
+                return List.<Long>of();
             }
 
-            logger.info("Actualizadas {} reservas a EN_CURSO", actualizadas);
+            List<Long> bloqueadas = new ArrayList<>(usuarioPorReserva.keySet());
+            reservaRepository.actualizarEstadoEnLote(bloqueadas, EstadoReserva.COMPLETADA, LocalDateTime.now());
+            inventarioService.liberarItemsDeReservas(usuarioPorReserva);
+            // El UPDATE masivo no pasa por VersionRecursoEntityListener
+            versionRecursos.registrarCambios(reservaRepository.findRecursoIdsByIdIn(bloqueadas));
+            estadosAnteriores.forEach((estado, cantidad) -> estadisticasDashboard
+                    .registrarCambioEstado(estado, EstadoReserva.COMPLETADA, cantidad));
+            return bloqueadas;
+        });
 
-        } catch (Exception e) {
-            logger.error("Error en actualizarReservasEnCurso: {}", e.getMessage(), e);
+        // El lote ya está confirmado; el UPDATE masivo no pasa por DisponibilidadEntityListener
+        completadas.forEach(indiceDisponibilidad::eliminarReserva);
+
+        return completadas.size();
+    }
+
+    /**
+     * Pasar a EN_CURSO un lote de reservas CONFIRMADA en una transacción propia.
+     * El índice de disponibilidad no cambia: ambos estados ocupan el recurso.
+     *
+     * @return cantidad de reservas actualizadas
+     */
+    public int iniciarLote(List<Long> ids) {
+        Map<EstadoReserva, Long> estadosAnteriores = new EnumMap<>(EstadoReserva.class);
+
+        List<Long> recursoIds = reservaRepository.findRecursoIdsByIdIn(ids);
+
+        Integer iniciadas = new TransactionTemplate(transactionManager).execute(status -> {
+            bloqueoRecursoService.bloquearHastaFinDeTransaccion(recursoIds);
+
+            Map<Long, Long> usuarioPorReserva = bloquearLote(ids, List.of(EstadoReserva.CONFIRMADA),
+                    estadosAnteriores);
+            if (usuarioPorReserva.isEmpty()) {
+                return 0;
+            }
+            int actualizadas = reservaRepository.actualizarEstadoEnLote(new ArrayList<>(usuarioPorReserva.keySet()),
+                    EstadoReserva.EN_CURSO, LocalDateTime.now());
+            estadisticasDashboard.registrarCambioEstado(EstadoReserva.CONFIRMADA, EstadoReserva.EN_CURSO,
+                    actualizadas);
+            return actualizadas;
+        });
+
+        return iniciadas;
+    }
+
+    /**
+     * Bloquear (FOR UPDATE) las reservas del lote que siguen en alguno de los
+     * estados esperados. Las que cambiaron desde la búsqueda quedan fuera.
+     *
+     * @return reservaId -> userId de las filas bloqueadas, en orden de id
+     */
+    private Map<Long, Long> bloquearLote(List<Long> ids, List<EstadoReserva> estados,
+            Map<EstadoReserva, Long> estadosAnteriores) {
+        List<String> nombresEstados = estados.stream().map(EstadoReserva::name).toList();
+
+        Map<Long, Long> usuarioPorReserva = new LinkedHashMap<>();
+        for (Object[] fila : reservaRepository.bloquearParaTransicion(ids, nombresEstados)) {
+            usuarioPorReserva.put(((Number) fila[0]).longValue(), ((Number) fila[2]).longValue());
+            estadosAnteriores.merge(EstadoReserva.valueOf((String) fila[1]), 1L, Long::sum);
         }
+        return usuarioPorReserva;
     }
 
     /**
@@ -1,11 +1,23 @@
 package com.bms.reserva_servicio_backend.service;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.Base64;
+import java.util.HashSet;
 import java.util.List;
-
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.hibernate.Hibernate;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import com.bms.reserva_servicio_backend.dto.ItemReservaDTO;
@@ -16,14 +28,18 @@ import com.bms.reserva_servicio_backend.enums.TipoReserva;
 import com.bms.reserva_servicio_backend.models.Cabana;
 import com.bms.reserva_servicio_backend.models.ItemsInventario;
 import com.bms.reserva_servicio_backend.models.PaqueteReserva;
+import com.bms.reserva_servicio_backend.models.Recurso;
 import com.bms.reserva_servicio_backend.models.Reserva;
 import com.bms.reserva_servicio_backend.models.ServicioEntretencion;
 import com.bms.reserva_servicio_backend.models.User;
 import com.bms.reserva_servicio_backend.repository.CabanaRepository;
 import com.bms.reserva_servicio_backend.repository.PaqueteReservaRepository;
+import com.bms.reserva_servicio_backend.repository.RecursoRepository;
 import com.bms.reserva_servicio_backend.repository.ReservaRepository;
 import com.bms.reserva_servicio_backend.repository.ServicioEntretencionRepository;
 import com.bms.reserva_servicio_backend.repository.UserRepository;
+import com.bms.reserva_servicio_backend.response.PaginaCursorResponse;
+import com.bms.reserva_servicio_backend.response.ReservaListadoResponse;
 
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.transaction.annotation.Transactional;
@@ -32,6 +48,8 @@ import org.springframework.transaction.annotation.Transactional;
 @Transactional
 public class ReservaService {
 
+    private static final int LIMITE_MAXIMO_LISTADO = 200;
+
     private final ReservaRepository reservaRepository;
     private final CabanaRepository cabanaRepository;
     private final ServicioEntretencionRepository servicioRepository;
@@ -42,12 +60,16 @@ public class ReservaService {
     private final ValidacionService validacionService;
     private final PagoService pagoService;
     private final PaqueteReservaRepository paqueteRepository;
+    private final RecursoRepository recursoRepository;
+    private final BloqueoRecursoService bloqueoRecursoService;
+    private final EstadisticasDashboardService estadisticasDashboard;
 
     public ReservaService(ReservaRepository reservaRepository, CabanaRepository cabanaRepository,
             ServicioEntretencionRepository servicioRepository, UserRepository userRepository,
             DisponibilidadService disponibilidadService, InventarioService inventarioService,
             PrecioService precioService, ValidacionService validacionService, PagoService pagoService,
-            PaqueteReservaRepository paqueteRepository) {
+            PaqueteReservaRepository paqueteRepository, RecursoRepository recursoRepository,
+            BloqueoRecursoService bloqueoRecursoService, EstadisticasDashboardService estadisticasDashboard) {
         this.reservaRepository = reservaRepository;
         this.cabanaRepository = cabanaRepository;
         this.servicioRepository = servicioRepository;
@@ -58,6 +80,9 @@ public class ReservaService {
         this.validacionService = validacionService;
         this.pagoService = pagoService;
         this.paqueteRepository = paqueteRepository;
+        this.recursoRepository = recursoRepository;
+        this.bloqueoRecursoService = bloqueoRecursoService;
+        this.estadisticasDashboard = estadisticasDashboard;
     }
 
     /**
@@ -79,8 +104,11 @@ public class ReservaService {
         // Obtener usuario (antes cliente)
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new EntityNotFoundException("Usuario no encontrado"));
-        // Verificar disponibilidad
 
+        // Serializar reservas de la misma cabaña hasta el fin de la transacción
+        bloqueoRecursoService.bloquearHastaFinDeTransaccion(cabanaId);
+
+        // Verificar disponibilidad
         if (!disponibilidadService.validarDisponibilidadCabana(cabanaId, fechaInicio, fechaFin)) {
             throw new IllegalStateException("Cabaña no disponible en las fechas seleccionadas");
         }
@@ -111,6 +139,7 @@ public class ReservaService {
         reserva.setTipoReserva(TipoReserva.CABANA_DIA);
 
         reserva = reservaRepository.save(reserva);
+        estadisticasDashboard.registrarReservaCreada(reserva);
 
         // Reservar items si existen
         if (itemsAdicionales != null && !itemsAdicionales.isEmpty()) {
@@ -143,10 +172,17 @@ public class ReservaService {
         LocalTime horaFin = horaInicio.plusMinutes(
                 servicio.getDuracionBloqueMinutos() * duracionBloques);
 
+        // Serializar reservas del mismo servicio hasta el fin de la transacción
+        bloqueoRecursoService.bloquearHastaFinDeTransaccion(servicioId);
+
         // Verificar disponibilidad del bloque horario
         if (!disponibilidadService.validarDisponibilidadServicio(servicioId, fecha, horaInicio, horaFin)) {
             throw new IllegalStateException("Servicio no disponible en el horario solicitado");
         }
+
+        // Reclamar los bloques con bloqueo de fila (evita doble reserva concurrente)
+        disponibilidadService.reclamarBloquesHorario(servicioId, fecha, horaInicio, horaFin);
+
         // Validar equipamiento disponible
         if (equipamiento != null && !equipamiento.isEmpty()) {
             LocalDateTime inicio = fecha.atTime(horaInicio);
@@ -171,15 +207,13 @@ public class ReservaService {
         reserva.setTipoReserva(TipoReserva.SERVICIO_BLOQUE);
 
         reserva = reservaRepository.save(reserva);
+        estadisticasDashboard.registrarReservaCreada(reserva);
 
         // Reservar equipamiento
         if (equipamiento != null && !equipamiento.isEmpty()) {
             inventarioService.reservarItems(reserva, equipamiento);
         }
 
-        // Bloquear horario
-        disponibilidadService.bloquearBloqueHorario(servicioId, fecha, horaInicio, horaFin);
-
         return reserva;
     }
 
@@ -199,11 +233,14 @@ public class ReservaService {
             throw new IllegalArgumentException("El monto del pago no coincide con el total");
         }
 
+        EstadoReserva estadoAnterior = reserva.getEstado();
+
         // Procesar pago
         pagoService.procesarPago(reserva, pagoDTO);
 
         // Actualizar estado
         reserva.setEstado(EstadoReserva.CONFIRMADA);
+        estadisticasDashboard.registrarCambioEstado(estadoAnterior, EstadoReserva.CONFIRMADA);
         return reservaRepository.save(reserva);
     }
 
@@ -221,9 +258,11 @@ public class ReservaService {
         disponibilidadService.liberarRecurso(reserva);
 
         // Actualizar estado
+        EstadoReserva estadoAnterior = reserva.getEstado();
         reserva.setEstado(EstadoReserva.CANCELADA);
         reserva.setObservaciones(motivo);
         reserva = reservaRepository.save(reserva);
+        estadisticasDashboard.registrarCambioEstado(estadoAnterior, EstadoReserva.CANCELADA);
 
         // Actualizar estado del paquete si corresponde
         if (reserva.getPaquete() != null) {
@@ -250,11 +289,13 @@ public class ReservaService {
                     String.format("No se puede realizar check-in a una reserva en estado %s", reserva.getEstado()));
         }
 
+        EstadoReserva estadoAnterior = reserva.getEstado();
         reserva.setEstado(EstadoReserva.EN_CURSO);
         // Opcional: Registrar la fecha/hora de check-in si se añade un campo a la
         // entidad Reserva
 
         reserva = reservaRepository.save(reserva);
+        estadisticasDashboard.registrarCambioEstado(estadoAnterior, EstadoReserva.EN_CURSO);
 
         // Actualizar estado del paquete si corresponde
         if (reserva.getPaquete() != null) {
@@ -289,11 +330,13 @@ public class ReservaService {
         // Liberar disponibilidad del recurso principal (cabaña/servicio)
         disponibilidadService.liberarRecurso(reserva);
 
+        EstadoReserva estadoAnterior = reserva.getEstado();
         reserva.setEstado(EstadoReserva.COMPLETADA);
         // Opcional: Registrar la fecha/hora de check-out si se añade un campo a la
         // entidad Reserva
 
         reserva = reservaRepository.save(reserva);
+        estadisticasDashboard.registrarCambioEstado(estadoAnterior, EstadoReserva.COMPLETADA);
 
         // Actualizar estado del paquete si corresponde
         if (reserva.getPaquete() != null) {
@@ -306,8 +349,9 @@ public class ReservaService {
     /**
      * Obtener reservas por cliente
      */
+    @Transactional(readOnly = true)
     public List<Reserva> obtenerReservasPorCliente(Long userId) {
-        return reservaRepository.findByUserId(userId);
+        return cargarParaRespuesta(reservaRepository.findDetalleByUserId(userId));
     }
 
     /**
@@ -318,18 +362,166 @@ public class ReservaService {
                 .orElseThrow(() -> new EntityNotFoundException("Reserva no encontrada"));
     }
 
+    /**
+     * Obtener reserva por ID con todo lo que necesita ReservaMapper ya cargado
+     */
+    @Transactional(readOnly = true)
+    public Reserva obtenerDetalle(Long id) {
+        Reserva reserva = reservaRepository.findDetalleById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Reserva no encontrada"));
+        cargarParaRespuesta(List.of(reserva));
+        return reserva;
+    }
+
     /**
      * Obtener reservas por estado
      */
+    @Transactional(readOnly = true)
     public List<Reserva> obtenerPorEstado(EstadoReserva estado) {
-        return reservaRepository.findByEstado(estado);
+        return cargarParaRespuesta(reservaRepository.findDetalleByEstado(estado));
     }
 
     /**
      * Obtener todas las reservas
      */
+    @Transactional(readOnly = true)
     public List<Reserva> obtenerTodas() {
-        return reservaRepository.findAll();
+        return cargarParaRespuesta(reservaRepository.findAllDetalle());
+    }
+
+    /**
+     * Obtener una página de reservas por estado, de la más reciente a la más antigua
+     */
+    @Transactional(readOnly = true)
+    public Page<Reserva> obtenerPorEstado(EstadoReserva estado, int pagina, int tamano) {
+        Page<Reserva> reservas = reservaRepository.findDetalleByEstado(estado, paginaListado(pagina, tamano));
+        cargarParaRespuesta(reservas.getContent());
+        return reservas;
+    }
+
+    /**
+     * Obtener una página de todas las reservas, de la más reciente a la más antigua
+     */
+    @Transactional(readOnly = true)
+    public Page<Reserva> obtenerTodas(int pagina, int tamano) {
+        Page<Reserva> reservas = reservaRepository.findAllDetalle(paginaListado(pagina, tamano));
+        cargarParaRespuesta(reservas.getContent());
+        return reservas;
+    }
+
+    // Orden (fechaReserva, id) descendente: lo cubre idx_reserva_fecha_reserva
+    private Pageable paginaListado(int pagina, int tamano) {
+        if (pagina < 0) {
+            throw new IllegalArgumentException("La página no puede ser negativa");
+        }
+        if (tamano < 1 || tamano > LIMITE_MAXIMO_LISTADO) {
+            throw new IllegalArgumentException("El tamaño de página debe estar entre 1 y " + LIMITE_MAXIMO_LISTADO);
+        }
+        return PageRequest.of(pagina, tamano, Sort.by(Sort.Direction.DESC, "fechaReserva", "id"));
+    }
+
+    /**
+     * Inicializar las colecciones que recorre ReservaMapper: reservas de cada
+     * paquete, items reservados y las imágenes del recurso. Una consulta por
+     * colección para todo el listado, en lugar de una por reserva.
+     */
+    public List<Reserva> cargarParaRespuesta(List<Reserva> reservas) {
+        if (reservas.isEmpty()) {
+            return reservas;
+        }
+
+        Set<Long> paquetesPendientes = reservas.stream()
+                .map(Reserva::getPaquete)
+                .filter(p -> p != null && !Hibernate.isInitialized(p.getReservas()))
+                .map(PaqueteReserva::getId)
+                .collect(Collectors.toSet());
+        if (!paquetesPendientes.isEmpty()) {
+            paqueteRepository.cargarReservas(paquetesPendientes);
+        }
+
+        // Items de las reservas y de las demás reservas de sus paquetes (el desglose usa su cantidad)
+        Set<Long> reservaIds = new HashSet<>();
+        for (Reserva reserva : reservas) {
+            reservaIds.add(reserva.getId());
+            if (reserva.getPaquete() != null) {
+                reserva.getPaquete().getReservas().forEach(r -> reservaIds.add(r.getId()));
+            }
+        }
+        reservaRepository.cargarItemsReservados(reservaIds);
+
+        Set<Long> recursoIds = reservas.stream()
+                .map(Reserva::getRecurso)
+                .filter(Objects::nonNull)
+                .map(Recurso::getId)
+                .collect(Collectors.toSet());
+        recursoRepository.cargarImagenes(recursoIds);
+
+        return reservas;
+    }
+
+    /**
+     * Listar reservas paginadas por cursor (fechaReserva, id) de la más reciente a la más antigua.
+     * El total solo se calcula en la primera página: exacto si hay filtros, estimado si no.
+     */
+    @Transactional(readOnly = true)
+    public PaginaCursorResponse<ReservaListadoResponse> listarReservas(EstadoReserva estado, TipoReserva tipo,
+            Long recursoId, Long userId, LocalDate desde, LocalDate hasta, String cursor, int limite) {
+        if (limite < 1 || limite > LIMITE_MAXIMO_LISTADO) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y " + LIMITE_MAXIMO_LISTADO);
+        }
+
+        LocalDateTime cursorFecha = null;
+        Long cursorId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                String[] partes = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+                cursorFecha = LocalDateTime.parse(partes[0]);
+                cursorId = Long.valueOf(partes[1]);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+        }
+
+        LocalDateTime inicio = desde != null ? desde.atStartOfDay() : null;
+        LocalDateTime fin = hasta != null ? hasta.plusDays(1).atStartOfDay() : null;
+
+        // Se pide una fila extra para saber si hay página siguiente
+        List<ReservaListadoResponse> filas = reservaRepository.buscarListado(
+                estado, tipo, recursoId, userId, inicio, fin, cursorFecha, cursorId, Limit.of(limite + 1));
+
+        boolean hayMas = filas.size() > limite;
+        if (hayMas) {
+            filas = filas.subList(0, limite);
+        }
+
+        String siguienteCursor = null;
+        if (hayMas) {
+            ReservaListadoResponse ultima = filas.get(filas.size() - 1);
+            siguienteCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    (ultima.getFechaReserva() + "|" + ultima.getId()).getBytes(StandardCharsets.UTF_8));
+        }
+
+        Long total = null;
+        Boolean totalExacto = null;
+        if (cursorFecha == null) {
+            boolean sinFiltros = estado == null && tipo == null && recursoId == null
+                    && userId == null && inicio == null && fin == null;
+            if (sinFiltros) {
+                total = reservaRepository.estimarTotalReservas();
+                totalExacto = false;
+            } else {
+                total = reservaRepository.contarListado(estado, tipo, recursoId, userId, inicio, fin);
+                totalExacto = true;
+            }
+        }
+
+        return PaginaCursorResponse.<ReservaListadoResponse>builder()
+                .contenido(filas)
+                .siguienteCursor(siguienteCursor)
+                .hayMas(hayMas)
+                .totalEstimado(total)
+                .totalExacto(totalExacto)
+                .build();
     }
 
     /**
@@ -372,6 +564,7 @@ public class ReservaService {
         }
 
         reserva = reservaRepository.save(reserva);
+        estadisticasDashboard.registrarCambioEstado(estadoActual, nuevoEstado);
 
         // Actualizar estado del paquete si corresponde
         if (reserva.getPaquete() != null) {
@@ -404,7 +597,7 @@ public class ReservaService {
     /**
      * Actualiza el estado del paquete basándose en el estado de sus reservas
      */
-    private void actualizarEstadoPaquete(PaqueteReserva paquete) {
+    public void actualizarEstadoPaquete(PaqueteReserva paquete) {
         if (paquete == null)
             return;
 
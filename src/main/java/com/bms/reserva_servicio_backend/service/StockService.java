@@ -1,96 +1,245 @@
 package com.bms.reserva_servicio_backend.service;
 
 import com.bms.reserva_servicio_backend.models.ItemsInventario;
-import com.bms.reserva_servicio_backend.models.MovimientoInventario;
 import com.bms.reserva_servicio_backend.models.MovimientoInventario.TipoMovimiento;
 import com.bms.reserva_servicio_backend.repository.ItemInventarioRepository;
-import com.bms.reserva_servicio_backend.repository.MovimientoInventarioRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 
+/**
+ * Movimientos de stock de items de inventario.
+ *
+ * El stock se descuenta con un UPDATE condicional (cantidad_disponible >= cantidad)
+ * por item, enviado como un solo lote JDBC, en lugar de leer, restar y guardar la
+ * entidad. Así no se depende del @Version para resolver la concurrencia: si no hay
+ * stock el UPDATE simplemente no afecta filas. La versión igual se incrementa para
+ * que las ediciones vía JPA detecten el cambio.
+ *
+ * Como estos UPDATE no pasan por Hibernate, los items modificados se sacan de la
+ * caché de segundo nivel del catálogo y se incrementa la versión de su recurso.
+ */
 @Service
 public class StockService {
 
+    private static final String SQL_DESCONTAR_STOCK = "UPDATE items_inventario "
+            + "SET cantidad_disponible = cantidad_disponible - ?, version = version + 1 "
+            + "WHERE id = ? AND cantidad_disponible >= ?";
+
+    private static final String SQL_REPONER_STOCK = "UPDATE items_inventario "
+            + "SET cantidad_disponible = cantidad_disponible + ?, version = version + 1 "
+            + "WHERE id = ?";
+
+    private static final String SQL_INSERTAR_MOVIMIENTO = "INSERT INTO movimientos_inventario "
+            + "(item_id, tipo_movimiento, cantidad, fecha_movimiento, reserva_id, user_id, "
+            + "observaciones, stock_anterior, stock_posterior) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String OBSERVACION_LIBERACION = "Liberación de stock por cancelación/finalización de reserva";
+
     @Autowired
     private ItemInventarioRepository itemInventarioRepository;
 
     @Autowired
-    private MovimientoInventarioRepository movimientoInventarioRepository;
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private VersionRecursosService versionRecursos;
 
     @Transactional
     public boolean reservarStock(Map<Long, Integer> itemsToReserve,
             com.bms.reserva_servicio_backend.models.Reserva reserva) {
-        for (Map.Entry<Long, Integer> entry : itemsToReserve.entrySet()) {
-            Long itemId = entry.getKey();
-            Integer quantity = entry.getValue();
+        // Orden fijo por ID para que dos reservas concurrentes bloqueen las filas en el mismo orden
+        Map<Long, Integer> items = new TreeMap<>(itemsToReserve);
+        if (items.isEmpty()) {
+            return true;
+        }
 
-            Optional<ItemsInventario> optionalItem = itemInventarioRepository.findById(itemId);
-            if (optionalItem.isEmpty()) {
-                throw new IllegalArgumentException("Item de inventario con ID " + itemId + " no encontrado.");
-            }
+        List<Object[]> parametros = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : items.entrySet()) {
+            parametros.add(new Object[] { entry.getValue(), entry.getKey(), entry.getValue() });
+        }
 
-            ItemsInventario item = optionalItem.get();
-            if (item.getCantidadDisponible() < quantity) {
-                throw new IllegalStateException("Stock insuficiente para el item: " + item.getNombre()
-                        + ". Disponible: " + item.getCantidadDisponible() + ", Solicitado: " + quantity);
-            }
+        int[] filasActualizadas = jdbcTemplate.batchUpdate(SQL_DESCONTAR_STOCK, parametros);
+        desalojarDeCache(items.keySet());
 
-            int stockAnterior = item.getCantidadDisponible();
-            item.setCantidadDisponible(item.getCantidadDisponible() - quantity);
-            itemInventarioRepository.save(item);
-
-            MovimientoInventario movimiento = MovimientoInventario.builder()
-                    .item(item)
-                    .tipoMovimiento(TipoMovimiento.SALIDA)
-                    .cantidad(quantity)
-                    .fechaMovimiento(LocalDateTime.now())
-                    .observaciones("Reserva de stock para paquete/reserva")
-                    .stockAnterior(stockAnterior)
-                    .stockPosterior(item.getCantidadDisponible())
-                    .reserva(reserva)
-                    .usuario(reserva != null ? reserva.getUser() : null)
-                    .build();
-            movimientoInventarioRepository.save(movimiento);
+        int i = 0;
+        for (Map.Entry<Long, Integer> entry : items.entrySet()) {
+            if (filasActualizadas[i++] == 0) {
+                // Se lanza la excepción y la transacción revierte los descuentos ya aplicados
+                lanzarStockInsuficiente(entry.getKey(), entry.getValue());
+            }
         }
+
+        registrarMovimientos(items, reserva, TipoMovimiento.SALIDA,
+                "Reserva de stock para paquete/reserva", -1);
         return true;
     }
 
     @Transactional
     public boolean liberarStock(Map<Long, Integer> itemsToRelease,
             com.bms.reserva_servicio_backend.models.Reserva reserva) {
-        for (Map.Entry<Long, Integer> entry : itemsToRelease.entrySet()) {
-            Long itemId = entry.getKey();
-            Integer quantity = entry.getValue();
+        Map<Long, Integer> items = new TreeMap<>(itemsToRelease);
+        if (items.isEmpty()) {
+            return true;
+        }
 
-            Optional<ItemsInventario> optionalItem = itemInventarioRepository.findById(itemId);
-            if (optionalItem.isEmpty()) {
+        List<Object[]> parametros = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : items.entrySet()) {
+            parametros.add(new Object[] { entry.getValue(), entry.getKey() });
+        }
+
+        int[] filasActualizadas = jdbcTemplate.batchUpdate(SQL_REPONER_STOCK, parametros);
+        desalojarDeCache(items.keySet());
+
+        int i = 0;
+        for (Long itemId : items.keySet()) {
+            if (filasActualizadas[i++] == 0) {
                 throw new IllegalArgumentException("Item de inventario con ID " + itemId + " no encontrado.");
             }
-
-            ItemsInventario item = optionalItem.get();
-
-            int stockAnterior = item.getCantidadDisponible();
-            item.setCantidadDisponible(item.getCantidadDisponible() + quantity);
-            itemInventarioRepository.save(item);
-
-            MovimientoInventario movimiento = MovimientoInventario.builder()
-                    .item(item)
-                    .tipoMovimiento(TipoMovimiento.DEVOLUCION)
-                    .cantidad(quantity)
-                    .fechaMovimiento(LocalDateTime.now())
-                    .observaciones("Liberación de stock por cancelación/finalización de reserva")
-                    .stockAnterior(stockAnterior)
-                    .stockPosterior(item.getCantidadDisponible())
-                    .reserva(reserva)
-                    .usuario(reserva != null ? reserva.getUser() : null)
-                    .build();
-            movimientoInventarioRepository.save(movimiento);
         }
+
+        registrarMovimientos(items, reserva, TipoMovimiento.DEVOLUCION, OBSERVACION_LIBERACION, 1);
         return true;
     }
+
+    /**
+     * Liberar el stock de varias reservas a la vez: un UPDATE por item con la
+     * cantidad total del lote y un movimiento por cada reserva e item.
+     *
+     * @param itemsPorReserva   reservaId -> (itemId -> cantidad)
+     * @param usuarioPorReserva reservaId -> userId, para los movimientos
+     */
+    @Transactional
+    public void liberarStockDeReservas(Map<Long, Map<Long, Integer>> itemsPorReserva,
+            Map<Long, Long> usuarioPorReserva) {
+        Map<Long, Integer> totales = new TreeMap<>();
+        itemsPorReserva.values().forEach(items -> items.forEach(
+                (itemId, cantidad) -> totales.merge(itemId, cantidad, Integer::sum)));
+        if (totales.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> parametros = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : totales.entrySet()) {
+            parametros.add(new Object[] { entry.getValue(), entry.getKey() });
+        }
+
+        int[] filasActualizadas = jdbcTemplate.batchUpdate(SQL_REPONER_STOCK, parametros);
+        desalojarDeCache(totales.keySet());
+
+        int i = 0;
+        for (Long itemId : totales.keySet()) {
+            if (filasActualizadas[i++] == 0) {
+                throw new IllegalArgumentException("Item de inventario con ID " + itemId + " no encontrado.");
+            }
+        }
+
+        // Se parte del stock previo al lote y se avanza movimiento por movimiento
+        Map<Long, Integer> stockCorriente = new HashMap<>();
+        stockActual(new ArrayList<>(totales.keySet())).forEach(
+                (itemId, posterior) -> stockCorriente.put(itemId, posterior - totales.get(itemId)));
+
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> filas = new ArrayList<>();
+        for (Map.Entry<Long, Map<Long, Integer>> reserva : itemsPorReserva.entrySet()) {
+            for (Map.Entry<Long, Integer> item : reserva.getValue().entrySet()) {
+                Integer anterior = stockCorriente.get(item.getKey());
+                Integer posterior = anterior != null ? anterior + item.getValue() : null;
+                stockCorriente.put(item.getKey(), posterior);
+                filas.add(new Object[] { item.getKey(), TipoMovimiento.DEVOLUCION.name(), item.getValue(), ahora,
+                        reserva.getKey(), usuarioPorReserva.get(reserva.getKey()), OBSERVACION_LIBERACION,
+                        anterior, posterior });
+            }
+        }
+
+        jdbcTemplate.batchUpdate(SQL_INSERTAR_MOVIMIENTO, filas);
+    }
+
+    /**
+     * Sacar los items de la caché de segundo nivel ahora y otra vez al terminar la
+     * transacción, para no dejar en caché una lectura hecha antes del commit
+     */
+    void desalojarDeCache(Collection<Long> itemIds) {
+        List<Long> ids = new ArrayList<>(itemIds);
+        Cache cache = entityManagerFactory.getCache();
+        ids.forEach(id -> cache.evict(ItemsInventario.class, id));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    ids.forEach(id -> cache.evict(ItemsInventario.class, id));
+                }
+            });
+        }
+    }
+
+    private void lanzarStockInsuficiente(Long itemId, Integer cantidad) {
+        Optional<ItemsInventario> optionalItem = itemInventarioRepository.findById(itemId);
+        if (optionalItem.isEmpty()) {
+            throw new IllegalArgumentException("Item de inventario con ID " + itemId + " no encontrado.");
+        }
+
+        ItemsInventario item = optionalItem.get();
+        Integer disponible = stockActual(List.of(itemId)).getOrDefault(itemId, item.getCantidadDisponible());
+        throw new IllegalStateException("Stock insuficiente para el item: " + item.getNombre()
+                + ". Disponible: " + disponible + ", Solicitado: " + cantidad);
+    }
+
+    /**
+     * Registrar los movimientos de todos los items en un solo lote JDBC.
+     * El stock posterior se lee después del UPDATE (la fila sigue bloqueada por esta
+     * transacción) y el anterior se obtiene deshaciendo la cantidad.
+     */
+    private void registrarMovimientos(Map<Long, Integer> items,
+            com.bms.reserva_servicio_backend.models.Reserva reserva,
+            TipoMovimiento tipo, String observaciones, int signo) {
+        Map<Long, Integer> stockPosterior = stockActual(new ArrayList<>(items.keySet()));
+
+        Long reservaId = reserva != null ? reserva.getId() : null;
+        Long userId = reserva != null && reserva.getUser() != null ? reserva.getUser().getId() : null;
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+
+        List<Object[]> filas = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : items.entrySet()) {
+            Integer posterior = stockPosterior.get(entry.getKey());
+            Integer anterior = posterior != null ? posterior - signo * entry.getValue() : null;
+            filas.add(new Object[] { entry.getKey(), tipo.name(), entry.getValue(), ahora,
+                    reservaId, userId, observaciones, anterior, posterior });
+        }
+
+        jdbcTemplate.batchUpdate(SQL_INSERTAR_MOVIMIENTO, filas);
+    }
+
+    /**
+     * Stock actual de los items. Se lee siempre después de un UPDATE, así que de
+     * paso se registra el cambio en la versión de sus recursos.
+     */
+    private Map<Long, Integer> stockActual(List<Long> itemIds) {
+        Map<Long, Integer> stock = new HashMap<>();
+        for (Object[] fila : itemInventarioRepository.findStockDisponible(itemIds)) {
+            stock.put((Long) fila[0], (Integer) fila[1]);
+            versionRecursos.registrarCambio((Long) fila[2]);
+        }
+        return stock;
+    }
 }
@@ -0,0 +1,297 @@
+package com.bms.reserva_servicio_backend.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.bms.reserva_servicio_backend.enums.EstadoReserva;
+import com.bms.reserva_servicio_backend.repository.ReservaRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Temporizadores del ciclo de vida de las reservas.
+ *
+ * Guarda en una rueda de temporizadores jerárquica (tick de 1 segundo) el inicio
+ * y el fin de cada reserva CONFIRMADA / EN_CURSO. Al vencer el inicio la reserva
+ * pasa a EN_CURSO y al vencer el fin a COMPLETADA, con los mismos lotes de
+ * ReservaSchedulerService, a los pocos segundos de la fecha.
+ *
+ * Se carga al iniciar la aplicación y se mantiene con DisponibilidadEntityListener
+ * después de cada commit. Los jobs periódicos del scheduler quedan como red de
+ * seguridad para lo que no pase por aquí (reinicios, cambios fuera de JPA).
+ *
+ * La rueda avanza en su propio hilo y no en el scheduler de Spring: así el tick
+ * no espera detrás de las auditorías, la reconciliación de archivos u otros
+ * jobs largos.
+ */
+@Service
+public class TemporizadorReservasService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TemporizadorReservasService.class);
+
+    private static final long TICK_MS = 1000;
+
+    @Autowired
+    private ReservaRepository reservaRepository;
+
+    @Autowired
+    private ReservaSchedulerService reservaSchedulerService;
+
+    @Value("${app.reservas.scheduler.tamano-lote:500}")
+    private int tamanoLote;
+
+    private final RuedaTemporizadores rueda = new RuedaTemporizadores(tickActual());
+
+    private final ScheduledExecutorService reloj = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread hilo = new Thread(r, "temporizador-reservas");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    /**
+     * Cargar los temporizadores de las reservas activas al iniciar la aplicación.
+     * Las fechas ya vencidas se disparan en el siguiente tick.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarTemporizadores() {
+        List<Object[]> reservas = reservaRepository.findIntervalosActivosDesde(LocalDate.now().atStartOfDay());
+        for (Object[] fila : reservas) {
+            programar((Long) fila[0], (EstadoReserva) fila[2], (LocalDateTime) fila[3], (LocalDateTime) fila[4]);
+        }
+        logger.info("Temporizadores de reservas cargados: {} reservas, {} temporizadores",
+                reservas.size(), rueda.cantidad());
+
+        reloj.scheduleWithFixedDelay(this::avanzarSinPropagar, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void detener() {
+        reloj.shutdownNow();
+    }
+
+    /**
+     * Programar (o reprogramar) los temporizadores de una reserva según su estado actual
+     */
+    public void programar(Long reservaId, EstadoReserva estado, LocalDateTime fechaInicio, LocalDateTime fechaFin) {
+        if (reservaId == null) {
+            return;
+        }
+
+        if (estado == EstadoReserva.CONFIRMADA && fechaInicio != null) {
+            rueda.agregar(reservaId, Evento.INICIO, tick(fechaInicio));
+        } else {
+            rueda.cancelar(reservaId, Evento.INICIO);
+        }
+
+        if ((estado == EstadoReserva.CONFIRMADA || estado == EstadoReserva.EN_CURSO) && fechaFin != null) {
+            rueda.agregar(reservaId, Evento.FIN, tick(fechaFin));
+        } else {
+            rueda.cancelar(reservaId, Evento.FIN);
+        }
+    }
+
+    public void cancelar(Long reservaId) {
+        rueda.cancelar(reservaId, Evento.INICIO);
+        rueda.cancelar(reservaId, Evento.FIN);
+    }
+
+    /**
+     * Avanzar la rueda hasta el tick actual y aplicar las transiciones vencidas.
+     * Primero los inicios: si inicio y fin vencen juntos la reserva termina COMPLETADA.
+     */
+    public void avanzar() {
+        Map<Evento, List<Long>> vencidos = rueda.avanzarHasta(tickActual());
+
+        for (List<Long> lote : particionar(vencidos.get(Evento.INICIO))) {
+            try {
+                reservaSchedulerService.iniciarLote(lote);
+            } catch (Exception e) {
+                logger.error("Error al iniciar {} reservas por temporizador: {}", lote.size(), e.getMessage(), e);
+            }
+        }
+
+        for (List<Long> lote : particionar(vencidos.get(Evento.FIN))) {
+            try {
+                reservaSchedulerService.completarLote(lote);
+            } catch (Exception e) {
+                logger.error("Error al completar {} reservas por temporizador: {}", lote.size(), e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Una excepción que escape de la tarea cancelaría las ejecuciones siguientes
+     */
+    private void avanzarSinPropagar() {
+        try {
+            avanzar();
+        } catch (RuntimeException e) {
+            logger.error("Error al avanzar la rueda de temporizadores: {}", e.getMessage(), e);
+        }
+    }
+
+    private List<List<Long>> particionar(List<Long> ids) {
+        List<List<Long>> lotes = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += tamanoLote) {
+            lotes.add(ids.subList(i, Math.min(i + tamanoLote, ids.size())));
+        }
+        return lotes;
+    }
+
+    private static long tickActual() {
+        return System.currentTimeMillis() / TICK_MS;
+    }
+
+    /**
+     * Primer tick en o después de la fecha
+     */
+    private static long tick(LocalDateTime fecha) {
+        long millis = fecha.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return Math.floorDiv(millis + TICK_MS - 1, TICK_MS);
+    }
+
+    private enum Evento {
+        INICIO, FIN
+    }
+
+    private static final class Temporizador {
+        private final Long reservaId;
+        private final Evento evento;
+        private final long expiracion;
+        private Set<Temporizador> ranura;
+
+        private Temporizador(Long reservaId, Evento evento, long expiracion) {
+            this.reservaId = reservaId;
+            this.evento = evento;
+            this.expiracion = expiracion;
+        }
+    }
+
+    /**
+     * Rueda jerárquica de 64 ranuras por nivel. Un temporizador va en el nivel más
+     * bajo cuya ventana comparte con el tick actual; al entrar en una nueva ventana
+     * de un nivel superior, sus temporizadores bajan (cascada) a los niveles
+     * inferiores. Agregar y cancelar son O(1); avanzar un tick es O(1) amortizado.
+     */
+    private static final class RuedaTemporizadores {
+
+        private static final int BITS_POR_NIVEL = 6;
+        private static final int RANURAS = 1 << BITS_POR_NIVEL;
+        private static final int NIVELES = 6; // 64^6 segundos, más de 2000 años
+
+        private final List<List<Set<Temporizador>>> niveles = new ArrayList<>();
+        private final Map<String, Temporizador> porClave = new HashMap<>();
+        private long tickActual;
+
+        private RuedaTemporizadores(long tickInicial) {
+            this.tickActual = tickInicial;
+            for (int nivel = 0; nivel < NIVELES; nivel++) {
+                List<Set<Temporizador>> ranuras = new ArrayList<>(RANURAS);
+                for (int i = 0; i < RANURAS; i++) {
+                    ranuras.add(new LinkedHashSet<>());
+                }
+                niveles.add(ranuras);
+            }
+        }
+
+        synchronized int cantidad() {
+            return porClave.size();
+        }
+
+        synchronized void agregar(Long reservaId, Evento evento, long expiracion) {
+            String clave = clave(reservaId, evento);
+            Temporizador existente = porClave.get(clave);
+            if (existente != null) {
+                if (existente.expiracion == expiracion) {
+                    return;
+                }
+                existente.ranura.remove(existente);
+            }
+
+            Temporizador temporizador = new Temporizador(reservaId, evento, expiracion);
+            porClave.put(clave, temporizador);
+            // Lo ya vencido se dispara en el siguiente tick
+            insertar(temporizador, tickActual + 1);
+        }
+
+        synchronized void cancelar(Long reservaId, Evento evento) {
+            Temporizador temporizador = porClave.remove(clave(reservaId, evento));
+            if (temporizador != null) {
+                temporizador.ranura.remove(temporizador);
+            }
+        }
+
+        /**
+         * Avanzar tick a tick hasta el objetivo y devolver los IDs vencidos por evento
+         */
+        synchronized Map<Evento, List<Long>> avanzarHasta(long objetivo) {
+            Map<Evento, List<Long>> vencidos = new EnumMap<>(Evento.class);
+            vencidos.put(Evento.INICIO, new ArrayList<>());
+            vencidos.put(Evento.FIN, new ArrayList<>());
+
+            while (tickActual < objetivo) {
+                tickActual++;
+
+                // Cascada de arriba hacia abajo al cruzar el límite de cada ventana
+                for (int nivel = NIVELES - 1; nivel > 0; nivel--) {
+                    if ((tickActual & ((1L << (BITS_POR_NIVEL * nivel)) - 1)) == 0) {
+                        Set<Temporizador> ranura = niveles.get(nivel).get(indice(tickActual, nivel));
+                        List<Temporizador> pendientes = new ArrayList<>(ranura);
+                        ranura.clear();
+                        pendientes.forEach(t -> insertar(t, tickActual));
+                    }
+                }
+
+                Set<Temporizador> ranura = niveles.get(0).get(indice(tickActual, 0));
+                for (Temporizador temporizador : ranura) {
+                    porClave.remove(clave(temporizador.reservaId, temporizador.evento));
+                    vencidos.get(temporizador.evento).add(temporizador.reservaId);
+                }
+                ranura.clear();
+            }
+
+            return vencidos;
+        }
+
+        private void insertar(Temporizador temporizador, long minimo) {
+            long expiracion = Math.max(temporizador.expiracion, minimo);
+
+            int nivel = 0;
+            while (nivel < NIVELES - 1
+                    && (expiracion >>> (BITS_POR_NIVEL * (nivel + 1))) != (tickActual >>> (BITS_POR_NIVEL * (nivel + 1)))) {
+                nivel++;
+            }
+
+            Set<Temporizador> ranura = niveles.get(nivel).get(indice(expiracion, nivel));
+            ranura.add(temporizador);
+            temporizador.ranura = ranura;
+        }
+
+        private static int indice(long tick, int nivel) {
+            return (int) ((tick >>> (BITS_POR_NIVEL * nivel)) & (RANURAS - 1));
+        }
+
+        private static String clave(Long reservaId, Evento evento) {
+            return reservaId + ":" + evento;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.bms.reserva_servicio_backend.service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bms.reserva_servicio_backend.models.RecursoImagen;
+import com.bms.reserva_servicio_backend.repository.RecursoImagenRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Genera las variantes redimensionadas (miniatura, media y completa) de las
+ * imágenes subidas, fuera del hilo del request.
+ *
+ * Las variantes se guardan en JPEG junto al original con el nombre
+ * {hash}-{ancho}.jpg; si ya existen (mismo contenido subido antes) no se
+ * vuelven a calcular. Al terminar se guardan sus URLs en todas las imágenes
+ * con ese contenido que aún no las tienen.
+ * Si la cola está llena o el formato no se puede decodificar, la imagen queda
+ * sin variantes y los listados usan el original. Las dimensiones se leen de la
+ * cabecera antes de decodificar: una imagen de más de max-pixeles no se
+ * decodifica (un PNG pequeño puede declarar decenas de miles de píxeles por lado).
+ */
+@Service
+public class VariantesImagenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(VariantesImagenService.class);
+
+    private static final float CALIDAD_JPEG = 0.82f;
+
+    public enum Variante {
+        MINIATURA(400), MEDIA(1024), COMPLETA(1920);
+
+        private final int ancho;
+
+        Variante(int ancho) {
+            this.ancho = ancho;
+        }
+
+        public int getAncho() {
+            return ancho;
+        }
+    }
+
+    private final RecursoImagenRepository imagenRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor executor;
+    private final Timer tiempoGeneracion;
+    private final String uploadDir;
+    private final String baseUrl;
+    private final long maxPixeles;
+
+    public VariantesImagenService(RecursoImagenRepository imagenRepository,
+            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+            @Value("${app.upload.dir:uploads/recursos}") String uploadDir,
+            @Value("${app.base.url:http://localhost:8080}") String baseUrl,
+            @Value("${app.upload.variantes.hilos:2}") int hilos,
+            @Value("${app.upload.variantes.capacidad-cola:200}") int capacidadCola,
+            @Value("${app.upload.variantes.max-pixeles:40000000}") long maxPixeles) {
+        this.imagenRepository = imagenRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.uploadDir = uploadDir;
+        this.baseUrl = baseUrl;
+        this.maxPixeles = maxPixeles;
+
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadCola), r -> {
+                    Thread hilo = new Thread(r, "variantes-imagen-" + contador.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        this.tiempoGeneracion = Timer.builder("imagenes.variantes")
+                .description("Tiempo de generación de las variantes de una imagen")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Encolar la generación de variantes al confirmar la transacción actual, para
+     * que el hilo de trabajo encuentre la imagen ya guardada
+     */
+    public void generarDespuesDelCommit(String archivoOriginal, String hash) {
+        Runnable encolar = () -> encolar(archivoOriginal, hash);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            encolar.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                encolar.run();
+            }
+        });
+    }
+
+    /**
+     * Nombre en disco de una variante
+     */
+    public static String nombreVariante(String hash, Variante variante) {
+        return hash + "-" + variante.getAncho() + ".jpg";
+    }
+
+    public long getMaxPixeles() {
+        return maxPixeles;
+    }
+
+    /**
+     * Indica si la imagen (archivo o stream) declara más de max-pixeles. Solo lee
+     * la cabecera; si ningún lector de ImageIO reconoce el formato devuelve false.
+     */
+    public boolean excedeMaximoPixeles(Object fuente) throws IOException {
+        try (ImageInputStream entrada = ImageIO.createImageInputStream(fuente)) {
+            if (entrada == null) {
+                return false;
+            }
+            Iterator<ImageReader> lectores = ImageIO.getImageReaders(entrada);
+            if (!lectores.hasNext()) {
+                return false;
+            }
+            ImageReader lector = lectores.next();
+            try {
+                lector.setInput(entrada, true, true);
+                return (long) lector.getWidth(0) * lector.getHeight(0) > maxPixeles;
+            } finally {
+                lector.dispose();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        executor.shutdown();
+    }
+
+    private void encolar(String archivoOriginal, String hash) {
+        try {
+            executor.execute(() -> tiempoGeneracion.record(() -> generar(archivoOriginal, hash)));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Cola de variantes llena: {} queda solo con el original", archivoOriginal);
+        }
+    }
+
+    private void generar(String archivoOriginal, String hash) {
+        Path directorio = Paths.get(uploadDir);
+        Map<Variante, String> urls = new EnumMap<>(Variante.class);
+        try {
+            BufferedImage original = null;
+            for (Variante variante : Variante.values()) {
+                String nombre = nombreVariante(hash, variante);
+                Path destino = directorio.resolve(nombre);
+                if (!Files.exists(destino)) {
+                    if (original == null) {
+                        File archivo = directorio.resolve(archivoOriginal).toFile();
+                        if (excedeMaximoPixeles(archivo)) {
+                            logger.warn("Imagen sobre el máximo de {} píxeles, sin variantes: {}",
+                                    maxPixeles, archivoOriginal);
+                            return;
+                        }
+                        original = ImageIO.read(archivo);
+                        if (original == null) {
+                            logger.info("Formato no soportado para variantes: {}", archivoOriginal);
+                            return;
+                        }
+                    }
+                    escribirJpeg(redimensionar(original, variante.getAncho()), directorio, destino);
+                }
+                urls.put(variante, baseUrl + "/uploads/recursos/" + nombre);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Error al generar variantes de {}: {}", archivoOriginal, e.getMessage());
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> imagenRepository
+                .findByHashContenidoAndUrlMiniaturaIsNull(hash)
+                .forEach(imagen -> asignarUrls(imagen, urls)));
+    }
+
+    private static void asignarUrls(RecursoImagen imagen, Map<Variante, String> urls) {
+        imagen.setUrlMiniatura(urls.get(Variante.MINIATURA));
+        imagen.setUrlMedia(urls.get(Variante.MEDIA));
+        imagen.setUrlCompleta(urls.get(Variante.COMPLETA));
+    }
+
+    /**
+     * Reduce a lo sumo a {@code ancho} px manteniendo la proporción, en pasos de
+     * la mitad para no perder calidad en reducciones grandes. Siempre devuelve
+     * RGB (JPEG no admite transparencia: el fondo queda blanco).
+     */
+    private static BufferedImage redimensionar(BufferedImage original, int ancho) {
+        int anchoFinal = Math.min(ancho, original.getWidth());
+        int altoFinal = Math.max(1, Math.round((float) original.getHeight() * anchoFinal / original.getWidth()));
+
+        BufferedImage actual = original;
+        int anchoActual = original.getWidth();
+        int altoActual = original.getHeight();
+        do {
+            anchoActual = Math.max(anchoFinal, anchoActual / 2);
+            altoActual = Math.max(altoFinal, altoActual / 2);
+            actual = dibujar(actual, anchoActual, altoActual);
+        } while (anchoActual > anchoFinal);
+        return actual;
+    }
+
+    private static BufferedImage dibujar(BufferedImage origen, int ancho, int alto) {
+        BufferedImage destino = new BufferedImage(ancho, alto, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = destino.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(origen, 0, 0, ancho, alto, Color.WHITE, null);
+        } finally {
+            g.dispose();
+        }
+        return destino;
+    }
+
+    /**
+     * Escribe en un temporal y lo mueve al destino, así nunca se sirve un archivo
+     * a medio escribir
+     */
+    private static void escribirJpeg(BufferedImage imagen, Path directorio, Path destino) throws IOException {
+        Path temporal = Files.createTempFile(directorio, "variante-", ".tmp");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream salida = ImageIO.createImageOutputStream(temporal.toFile())) {
+            ImageWriteParam parametros = writer.getDefaultWriteParam();
+            parametros.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            parametros.setCompressionQuality(CALIDAD_JPEG);
+            writer.setOutput(salida);
+            writer.write(null, new IIOImage(imagen, null, null), parametros);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporal);
+            throw e;
+        } finally {
+            writer.dispose();
+        }
+        Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,143 @@
+package com.bms.reserva_servicio_backend.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.springframework.http.CacheControl;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+
+/**
+ * Versiones de los recursos para las ETag de los endpoints públicos de catálogo
+ * y disponibilidad, guardadas en recursos_version.
+ *
+ * Cada cambio en un recurso, sus imágenes, items, reservas, días de cabaña o
+ * bloques horarios incrementa la versión del recurso en la misma transacción.
+ * Los recursos de una transacción se acumulan y se escriben una sola vez antes
+ * del commit, en orden de id (dos transacciones no se bloquean en orden
+ * cruzado). La ETag combina la fecha de hoy (hay respuestas que dependen del
+ * día, como disponibleHoy) y la versión; si no cambió, el cliente recibe 304
+ * con una sola consulta por clave primaria.
+ */
+@Service
+public class VersionRecursosService {
+
+    public static final CacheControl CACHE_CATALOGO = CacheControl.maxAge(Duration.ofSeconds(60))
+            .cachePublic().mustRevalidate();
+    public static final CacheControl CACHE_INVENTARIO = CacheControl.maxAge(Duration.ofSeconds(30))
+            .cachePublic().mustRevalidate();
+    public static final CacheControl CACHE_DISPONIBILIDAD = CacheControl.maxAge(Duration.ofSeconds(5))
+            .cachePublic().mustRevalidate();
+
+    private static final String SQL_INCREMENTAR = "INSERT INTO recursos_version (recurso_id, version) "
+            + "VALUES (:recursoId, 1) ON DUPLICATE KEY UPDATE version = version + 1";
+
+    private static final String SQL_VERSION_RECURSO = "SELECT COALESCE(v.version, 0) FROM recursos r "
+            + "LEFT JOIN recursos_version v ON v.recurso_id = r.id WHERE r.id = :recursoId";
+
+    private static final String SQL_VERSION_CATALOGO = "SELECT COUNT(*) AS recursos, "
+            + "COALESCE(SUM(version), 0) AS cambios FROM recursos_version";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+
+    public VersionRecursosService(NamedParameterJdbcTemplate jdbcTemplate, EntityManager entityManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Registrar un cambio en un recurso; se escribe antes del commit de la
+     * transacción actual
+     */
+    public void registrarCambio(Long recursoId) {
+        if (recursoId != null) {
+            registrarCambios(List.of(recursoId));
+        }
+    }
+
+    /**
+     * Registrar un cambio en varios recursos (UPDATE masivos)
+     */
+    public void registrarCambios(Collection<Long> recursoIds) {
+        if (recursoIds.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            incrementar(new TreeSet<>(recursoIds));
+            return;
+        }
+        pendientes().addAll(recursoIds);
+    }
+
+    /**
+     * ETag de los listados del catálogo: cambia con cualquier modificación
+     */
+    public String etagCatalogo() {
+        Map<String, Object> version = jdbcTemplate.queryForMap(SQL_VERSION_CATALOGO, Map.of());
+        return "\"" + LocalDate.now() + "-" + version.get("recursos") + "." + version.get("cambios") + "\"";
+    }
+
+    /**
+     * ETag de las respuestas que dependen de un solo recurso
+     *
+     * @throws EntityNotFoundException si el recurso no existe (404 en lugar de 304)
+     */
+    public String etagRecurso(Long recursoId) {
+        List<Long> version = jdbcTemplate.queryForList(SQL_VERSION_RECURSO,
+                new MapSqlParameterSource("recursoId", recursoId), Long.class);
+        if (version.isEmpty()) {
+            throw new EntityNotFoundException("Recurso no encontrado con id: " + recursoId);
+        }
+        return "\"" + LocalDate.now() + "-" + recursoId + "." + version.get(0) + "\"";
+    }
+
+    /**
+     * Recursos cambiados en la transacción actual. La primera vez se registra la
+     * escritura: antes del commit se hace flush (los listeners de las entidades
+     * pendientes agregan sus recursos) y se incrementan todos de una vez.
+     */
+    @SuppressWarnings("unchecked")
+    private SortedSet<Long> pendientes() {
+        SortedSet<Long> pendientes = (SortedSet<Long>) TransactionSynchronizationManager.getResource(this);
+        if (pendientes != null) {
+            return pendientes;
+        }
+        SortedSet<Long> nuevos = new TreeSet<>();
+        TransactionSynchronizationManager.bindResource(this, nuevos);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                if (!readOnly) {
+                    entityManager.flush();
+                    incrementar(nuevos);
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(VersionRecursosService.this);
+            }
+        });
+        return nuevos;
+    }
+
+    private void incrementar(SortedSet<Long> recursoIds) {
+        SqlParameterSource[] filas = recursoIds.stream()
+                .map(id -> new MapSqlParameterSource("recursoId", id))
+                .toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(SQL_INCREMENTAR, filas);
+    }
+}
@@ -2,22 +2,30 @@ package com.bms.reserva_servicio_backend.service.impl;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.bms.reserva_servicio_backend.enums.EstadoRecurso;
 import com.bms.reserva_servicio_backend.enums.EstadoReserva;
 import com.bms.reserva_servicio_backend.models.Cabana;
+import com.bms.reserva_servicio_backend.models.RecursoImagen;
 import com.bms.reserva_servicio_backend.repository.CabanaRepository;
 import com.bms.reserva_servicio_backend.request.CabanaRequest;
 import com.bms.reserva_servicio_backend.response.CabanaResponse;
+import com.bms.reserva_servicio_backend.response.PaginaResponse;
 import com.bms.reserva_servicio_backend.response.SuccessResponse;
 import com.bms.reserva_servicio_backend.service.CabanaService;
-import com.bms.reserva_servicio_backend.service.DisponibilidadService;
 
 import jakarta.persistence.EntityNotFoundException;
 
@@ -25,11 +33,10 @@ import jakarta.persistence.EntityNotFoundException;
 @Transactional
 public class CabanaServiceImpl implements CabanaService {
 
-    @Autowired
-    private CabanaRepository cabanaRepository;
+    private static final int TAMANO_MAXIMO_PAGINA = 100;
 
     @Autowired
-    private DisponibilidadService disponibilidadService;
+    private CabanaRepository cabanaRepository;
 
     @Autowired
     private com.bms.reserva_servicio_backend.repository.ReservaRepository reservaRepository;
@@ -85,15 +92,45 @@ public class CabanaServiceImpl implements CabanaService {
     @Override
     @Transactional(readOnly = true)
     public List<CabanaResponse> obtenerDisponibles(LocalDate fechaInicio, LocalDate fechaFin) {
-        // Obtener cabañas con estado DISPONIBLE
-        List<Cabana> cabanasDisponibles = cabanaRepository.findByEstado(EstadoRecurso.DISPONIBLE);
+        validarRangoFechas(fechaInicio, fechaFin);
 
-        // Filtrar por disponibilidad en las fechas
-        return cabanasDisponibles.stream()
-                .filter(cabana -> disponibilidadService.validarDisponibilidadCabana(
-                        cabana.getId(), fechaInicio, fechaFin))
-                .map(this::mapearEntidadAResponse)
-                .collect(Collectors.toList());
+        List<Cabana> cabanas = cabanaRepository.buscarDisponiblesEnRango(
+                fechaInicio, fechaFin, fechaInicio.atStartOfDay(), fechaFin.atTime(23, 59),
+                null, null, Pageable.unpaged(Sort.by("id"))).getContent();
+
+        return mapearListaAResponse(cabanas);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PaginaResponse<CabanaResponse> buscarDisponibles(LocalDate fechaInicio, LocalDate fechaFin,
+            Integer capacidad, String tipoCabana, int pagina, int tamano, boolean precioDescendente) {
+        validarRangoFechas(fechaInicio, fechaFin);
+
+        if (pagina < 0) {
+            throw new IllegalArgumentException("La página no puede ser negativa");
+        }
+        if (tamano < 1 || tamano > TAMANO_MAXIMO_PAGINA) {
+            throw new IllegalArgumentException("El tamaño de página debe estar entre 1 y " + TAMANO_MAXIMO_PAGINA);
+        }
+
+        // Ordenar por precio y desempatar por ID para que la paginación sea estable
+        Sort orden = Sort.by(precioDescendente ? Sort.Direction.DESC : Sort.Direction.ASC, "precioPorUnidad")
+                .and(Sort.by("id"));
+
+        String tipo = tipoCabana != null && !tipoCabana.isBlank() ? tipoCabana.toUpperCase() : null;
+
+        Page<Cabana> resultado = cabanaRepository.buscarDisponiblesEnRango(
+                fechaInicio, fechaFin, fechaInicio.atStartOfDay(), fechaFin.atTime(23, 59),
+                capacidad, tipo, PageRequest.of(pagina, tamano, orden));
+
+        return PaginaResponse.<CabanaResponse>builder()
+                .contenido(mapearListaAResponse(resultado.getContent()))
+                .pagina(resultado.getNumber())
+                .tamano(resultado.getSize())
+                .totalElementos(resultado.getTotalElements())
+                .totalPaginas(resultado.getTotalPages())
+                .build();
     }
 
     @Override
@@ -238,23 +275,50 @@ public class CabanaServiceImpl implements CabanaService {
         cabana.setServiciosIncluidos(request.getServiciosIncluidos());
     }
 
+    private void validarRangoFechas(LocalDate fechaInicio, LocalDate fechaFin) {
+        if (fechaInicio == null || fechaFin == null) {
+            throw new IllegalArgumentException("Las fechas de inicio y fin son obligatorias");
+        }
+        if (fechaFin.isBefore(fechaInicio)) {
+            throw new IllegalArgumentException("La fecha de fin no puede ser anterior a la fecha de inicio");
+        }
+    }
+
+    /**
+     * Mapear una lista de cabañas contando sus reservas en una sola consulta
+     */
+    private List<CabanaResponse> mapearListaAResponse(List<Cabana> cabanas) {
+        if (cabanas.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Long> ids = cabanas.stream().map(Cabana::getId).collect(Collectors.toList());
+        Map<Long, Long> reservasPorCabana = new HashMap<>();
+        for (Object[] fila : reservaRepository.contarPorRecursos(ids)) {
+            reservasPorCabana.put((Long) fila[0], (Long) fila[1]);
+        }
+
+        return cabanas.stream()
+                .map(c -> mapearEntidadAResponse(c, reservasPorCabana.getOrDefault(c.getId(), 0L)))
+                .collect(Collectors.toList());
+    }
+
     private CabanaResponse mapearEntidadAResponse(Cabana cabana) {
         // Contar reservas desde el repositorio
         long totalReservas = reservaRepository.findByRecursoId(cabana.getId()).size();
+        return mapearEntidadAResponse(cabana, totalReservas);
+    }
+
+    private CabanaResponse mapearEntidadAResponse(Cabana cabana, long totalReservas) {
 
         // Obtener imagen principal
-        String imagenPrincipalUrl = null;
+        RecursoImagen imagenPrincipal = null;
         if (cabana.getImagenes() != null && !cabana.getImagenes().isEmpty()) {
-            imagenPrincipalUrl = cabana.getImagenes().stream()
+            imagenPrincipal = cabana.getImagenes().stream()
                     .filter(img -> img.getEsPrincipal() != null && img.getEsPrincipal())
-                    .map(img -> img.getUrl())
                     .findFirst()
-                    .orElse(null);
-            
-            // Si no hay imagen principal, usar la primera
-            if (imagenPrincipalUrl == null && !cabana.getImagenes().isEmpty()) {
-                imagenPrincipalUrl = cabana.getImagenes().get(0).getUrl();
-            }
+                    // Si no hay imagen principal, usar la primera
+                    .orElse(cabana.getImagenes().get(0));
         }
 
         return CabanaResponse.builder()
@@ -273,7 +337,8 @@ public class CabanaServiceImpl implements CabanaService {
                 .disponibleHoy(cabana.getEstado() == EstadoRecurso.DISPONIBLE)
                 .itemsInventario(cabana.getInventario() != null ? cabana.getInventario().size() : 0)
                 .imagenes(cabana.getImagenes())
-                .imagenPrincipalUrl(imagenPrincipalUrl)
+                .imagenPrincipalUrl(imagenPrincipal != null ? imagenPrincipal.getUrl() : null)
+                .imagenPrincipalMiniaturaUrl(imagenPrincipal != null ? imagenPrincipal.getUrlListado() : null)
                 .build();
     }
 
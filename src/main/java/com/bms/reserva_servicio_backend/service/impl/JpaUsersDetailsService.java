@@ -8,6 +8,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -15,9 +16,10 @@ import org.springframework.transaction.annotation.Transactional;
 
 import com.bms.reserva_servicio_backend.models.User;
 import com.bms.reserva_servicio_backend.repository.UserRepository;
+import com.bms.reserva_servicio_backend.security.UsuarioAutenticado;
 
 @Service
-public class JpaUsersDetailsService implements UserDetailsService {
+public class JpaUsersDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     @Autowired
     private UserRepository userRepository;
@@ -33,9 +35,24 @@ public class JpaUsersDetailsService implements UserDetailsService {
         User user = userOptional.get();
         List<GrantedAuthority> authorities = user.getRoles().stream()
                 .map(role -> new SimpleGrantedAuthority(role.getName())).collect(Collectors.toList());
-        return new org.springframework.security.core.userdetails.User(user.getUsername(), user.getPassword(),
-                user.isEnabled(), true, true, true, authorities);
+        return new UsuarioAutenticado(user.getId(), user.getEmail(), user.getUsername(), user.getPassword(),
+                user.isEnabled(), authorities);
 
     }
 
+    /**
+     * Guarda el hash recodificado con el algoritmo o costo actual; Spring Security
+     * lo llama tras un login exitoso con un hash desactualizado
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.actualizarPassword(user.getUsername(), newPassword);
+        if (user instanceof UsuarioAutenticado autenticado) {
+            return new UsuarioAutenticado(autenticado.getId(), autenticado.getEmail(), autenticado.getUsername(),
+                    newPassword, autenticado.isEnabled(), autenticado.getAuthorities());
+        }
+        return org.springframework.security.core.userdetails.User.withUserDetails(user).password(newPassword).build();
+    }
+
 }
@@ -11,6 +11,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import com.bms.reserva_servicio_backend.enums.EstadoRecurso;
 import com.bms.reserva_servicio_backend.enums.EstadoReserva;
+import com.bms.reserva_servicio_backend.models.RecursoImagen;
 import com.bms.reserva_servicio_backend.models.ServicioEntretencion;
 import com.bms.reserva_servicio_backend.repository.ServicioEntretencionRepository;
 import com.bms.reserva_servicio_backend.request.ServicioRequest;
@@ -249,18 +250,13 @@ public class ServicioServiceImpl implements ServicioService {
         int totalReservas = reservaRepository.findByRecursoId(servicio.getId()).size();
 
         // Obtener imagen principal
-        String imagenPrincipalUrl = null;
+        RecursoImagen imagenPrincipal = null;
         if (servicio.getImagenes() != null && !servicio.getImagenes().isEmpty()) {
-            imagenPrincipalUrl = servicio.getImagenes().stream()
+            imagenPrincipal = servicio.getImagenes().stream()
                     .filter(img -> img.getEsPrincipal() != null && img.getEsPrincipal())
-                    .map(img -> img.getUrl())
                     .findFirst()
-                    .orElse(null);
-            
-            // Si no hay imagen principal, usar la primera
-            if (imagenPrincipalUrl == null && !servicio.getImagenes().isEmpty()) {
-                imagenPrincipalUrl = servicio.getImagenes().get(0).getUrl();
-            }
+                    // Si no hay imagen principal, usar la primera
+                    .orElse(servicio.getImagenes().get(0));
         }
 
         return ServicioResponse.builder()
@@ -280,7 +276,8 @@ public class ServicioServiceImpl implements ServicioService {
                 .bloquesDisponibles(servicio.getBloquesDisponibles() != null ? servicio.getBloquesDisponibles().size() : 0)
                 .itemsInventario(servicio.getInventario() != null ? servicio.getInventario().size() : 0)
                 .imagenes(servicio.getImagenes())
-                .imagenPrincipalUrl(imagenPrincipalUrl)
+                .imagenPrincipalUrl(imagenPrincipal != null ? imagenPrincipal.getUrl() : null)
+                .imagenPrincipalMiniaturaUrl(imagenPrincipal != null ? imagenPrincipal.getUrlListado() : null)
                 .build();
     }
 
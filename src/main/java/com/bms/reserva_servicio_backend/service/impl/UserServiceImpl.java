@@ -18,6 +18,7 @@ import com.bms.reserva_servicio_backend.request.RegisterRequest;
 import com.bms.reserva_servicio_backend.request.UpdateUserRequest;
 import com.bms.reserva_servicio_backend.response.SuccessResponse;
 import com.bms.reserva_servicio_backend.response.UserResponse;
+import com.bms.reserva_servicio_backend.service.EstadisticasDashboardService;
 import com.bms.reserva_servicio_backend.service.UserService;
 
 @Service
@@ -32,6 +33,9 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private EstadisticasDashboardService estadisticasDashboard;
+
     @Override
     @Transactional(readOnly = true)
     public List<User> findAll() {
@@ -56,7 +60,9 @@ public class UserServiceImpl implements UserService {
 
         user.setRoles(roles);
         user.setPassword(passwordEncoder.encode(user.getPassword()));
-        return repository.save(user);
+        User savedUser = repository.save(user);
+        estadisticasDashboard.registrarUsuarioNuevo(savedUser);
+        return savedUser;
     }
 
     @Override
@@ -105,6 +111,7 @@ public class UserServiceImpl implements UserService {
         user.setRoles(roles);
 
         User savedUser = repository.save(user);
+        estadisticasDashboard.registrarUsuarioNuevo(savedUser);
 
         // Construir respuesta
         UserResponse userResponse = UserResponse.builder()
@@ -234,6 +241,7 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
+    @Transactional
     public SuccessResponse<UserResponse> toggleUserStatus(Long id) {
         SuccessResponse<UserResponse> successResponse = new SuccessResponse<>();
 
@@ -248,6 +256,7 @@ public class UserServiceImpl implements UserService {
 
         user.setEnabled(!user.isEnabled());
         repository.save(user);
+        estadisticasDashboard.registrarCambioHabilitado(user.isEnabled());
         successResponse.setSuccess(true);
         successResponse.setTimestamp(LocalDateTime.now());
         successResponse.setData(null);
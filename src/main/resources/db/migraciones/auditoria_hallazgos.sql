@@ -0,0 +1,13 @@
+-- Hallazgos de la auditoría de integridad (HallazgoAuditoria). El índice
+-- resuelve la búsqueda del hallazgo abierto de una entidad y el listado por tipo.
+-- Aplicar a mano: ddl-auto es validate y no crea tablas.
+CREATE TABLE auditoria_hallazgos (
+    id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    tipo VARCHAR(40) NOT NULL,
+    entidad_id BIGINT NOT NULL,
+    detalle VARCHAR(500),
+    primera_deteccion DATETIME(6) NOT NULL,
+    ultima_deteccion DATETIME(6) NOT NULL,
+    resuelto_en DATETIME(6),
+    INDEX idx_hallazgo_tipo_entidad (tipo, entidad_id, resuelto_en)
+);
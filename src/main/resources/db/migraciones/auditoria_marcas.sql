@@ -0,0 +1,9 @@
+-- Marcas de agua de las auditorías incrementales (AuditoriaSchedulerService):
+-- una fila por auditoría (integridad, integridad-rapida).
+-- Aplicar a mano: ddl-auto es validate y no crea tablas.
+CREATE TABLE auditoria_marcas (
+    nombre VARCHAR(50) NOT NULL PRIMARY KEY,
+    marca_fecha DATETIME(6) NOT NULL,
+    marca_item_reservado_id BIGINT NOT NULL,
+    actualizada_en DATETIME(6) NOT NULL
+);
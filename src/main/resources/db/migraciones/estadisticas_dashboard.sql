@@ -0,0 +1,11 @@
+-- Contadores materializados del dashboard (EstadisticasDashboardService).
+-- Una fila por métrica y periodo: 1970-01-01 para totales, el día o el primer
+-- día del mes. La tabla vacía se llena al iniciar la aplicación.
+-- Aplicar a mano: ddl-auto es validate y no crea tablas.
+CREATE TABLE estadisticas_dashboard (
+    metrica VARCHAR(40) NOT NULL,
+    periodo DATE NOT NULL,
+    cantidad BIGINT NOT NULL,
+    monto DECIMAL(38, 2) NOT NULL,
+    PRIMARY KEY (metrica, periodo)
+);
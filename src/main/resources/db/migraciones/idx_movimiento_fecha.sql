@@ -0,0 +1,4 @@
+-- Auditoría incremental de stock: items con movimientos después de la marca
+-- (SQL_ITEMS_STOCK_MODIFICADOS en AuditoriaSchedulerService).
+-- Aplicar a mano: ddl-auto es validate y no crea índices.
+CREATE INDEX idx_movimiento_fecha ON movimientos_inventario (fecha_movimiento);
@@ -0,0 +1,4 @@
+-- Ingresos del dashboard (pagos por estado en un rango de fechaPago):
+-- la suma se resuelve con un rango sobre el índice.
+-- Aplicar a mano: ddl-auto es validate y no crea índices.
+CREATE INDEX idx_pago_estado_fecha ON pagos (estado, fecha_pago);
@@ -0,0 +1,4 @@
+-- Expiración de reservas PENDIENTE_PAGO (ReservaRepository.findIdsRetenidasAntesDe):
+-- filtra por estado y fechaReserva sin recorrer toda la tabla.
+-- Aplicar a mano: ddl-auto es validate y no crea índices.
+CREATE INDEX idx_reserva_estado_fecha_reserva ON reservas (estado, fecha_reserva);
@@ -0,0 +1,4 @@
+-- Listado de reservas por cursor (fechaReserva, id) y GET /api/reservas paginado:
+-- el orden y el corte del cursor se resuelven sobre el índice.
+-- Aplicar a mano: ddl-auto es validate y no crea índices.
+CREATE INDEX idx_reserva_fecha_reserva ON reservas (fecha_reserva, id);
@@ -0,0 +1,4 @@
+-- Auditoría incremental: reservas modificadas después de la marca
+-- (rama por last_modified_date del UNION en AuditoriaSchedulerService).
+-- Aplicar a mano: ddl-auto es validate y no crea índices.
+CREATE INDEX idx_reserva_last_modified ON reservas (last_modified_date);
@@ -0,0 +1,6 @@
+-- Última edición de un item de inventario (ItemsInventario.ultimaModificacion):
+-- la auditoría incremental revisa los items editados después de su marca.
+-- Las filas existentes quedan en NULL; la revisión completa las cubre.
+-- Aplicar a mano: ddl-auto es validate y no crea columnas ni índices.
+ALTER TABLE items_inventario ADD COLUMN ultima_modificacion DATETIME(6) NULL;
+CREATE INDEX idx_item_ultima_modificacion ON items_inventario (ultima_modificacion);
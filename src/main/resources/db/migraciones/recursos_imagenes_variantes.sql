@@ -0,0 +1,10 @@
+-- Variantes redimensionadas y hash de contenido de las imágenes (RecursoImagen).
+-- El índice resuelve cuántas imágenes comparten un archivo antes de borrarlo.
+-- Las filas existentes quedan sin hash ni variantes y se sirven con la URL original.
+-- Aplicar a mano: ddl-auto es validate y no crea columnas ni índices.
+ALTER TABLE recursos_imagenes
+    ADD COLUMN url_miniatura VARCHAR(500),
+    ADD COLUMN url_media VARCHAR(500),
+    ADD COLUMN url_completa VARCHAR(500),
+    ADD COLUMN hash_contenido VARCHAR(64),
+    ADD INDEX idx_imagen_hash (hash_contenido);
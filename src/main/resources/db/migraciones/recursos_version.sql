@@ -0,0 +1,7 @@
+-- Contadores de cambios por recurso para las ETag de catálogo y disponibilidad
+-- (VersionRecursosService). Un recurso sin fila tiene versión 0.
+-- Aplicar a mano: ddl-auto es validate y no crea tablas.
+CREATE TABLE recursos_version (
+    recurso_id BIGINT NOT NULL PRIMARY KEY,
+    version BIGINT NOT NULL
+);
@@ -0,0 +1,190 @@
+package com.bms.reserva_servicio_backend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.bms.reserva_servicio_backend.enums.EstadoItem;
+import com.bms.reserva_servicio_backend.enums.EstadoPaquete;
+import com.bms.reserva_servicio_backend.enums.EstadoRecurso;
+import com.bms.reserva_servicio_backend.enums.EstadoReserva;
+import com.bms.reserva_servicio_backend.enums.TipoReserva;
+import com.bms.reserva_servicio_backend.mappers.ReservaMapper;
+import com.bms.reserva_servicio_backend.models.Cabana;
+import com.bms.reserva_servicio_backend.models.ItemReservado;
+import com.bms.reserva_servicio_backend.models.ItemsInventario;
+import com.bms.reserva_servicio_backend.models.PaqueteReserva;
+import com.bms.reserva_servicio_backend.models.Reserva;
+import com.bms.reserva_servicio_backend.models.User;
+import com.bms.reserva_servicio_backend.response.ReservaResponse;
+import com.bms.reserva_servicio_backend.service.ReservaService;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Cantidad de sentencias SQL de las lecturas que arman ReservaResponse
+ * (listado, detalle y reservas de un cliente). Si una lectura vuelve a cargar
+ * asociaciones de forma perezosa por reserva, la cantidad crece con el
+ * número de reservas y estas pruebas fallan.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class ReservaConsultasStatisticsTests {
+
+    private static final int RESERVAS = 10;
+
+    // Página + count, reservas de paquetes, items reservados e imágenes del recurso
+    private static final long MAX_SENTENCIAS_LISTADO = 5;
+    // Reserva(s), reservas de paquetes, items reservados e imágenes del recurso
+    private static final long MAX_SENTENCIAS_DETALLE = 4;
+    private static final long MAX_SENTENCIAS_CLIENTE = 4;
+
+    @Autowired
+    private ReservaService reservaService;
+
+    @Autowired
+    private ReservaMapper mapper;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics estadisticas;
+    private User cliente;
+    private Long reservaEnPaqueteId;
+
+    @BeforeEach
+    void crearDatos() {
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        String sufijo = String.valueOf(System.nanoTime());
+        cliente = new User();
+        cliente.setUsername("estadisticas-" + sufijo);
+        cliente.setPassword("x");
+        cliente.setEnabled(true);
+        cliente.setNombres("Cliente");
+        cliente.setApellidos("Estadisticas");
+        cliente.setEmail("estadisticas-" + sufijo + "@test.local");
+        cliente.setFechaRegistro(LocalDateTime.now());
+        entityManager.persist(cliente);
+
+        Cabana cabana = new Cabana();
+        cabana.setNombre("Cabaña estadísticas " + sufijo);
+        cabana.setEstado(EstadoRecurso.DISPONIBLE);
+        cabana.setPrecioPorUnidad(new BigDecimal("50000"));
+        cabana.setCapacidadPersonas(4);
+        entityManager.persist(cabana);
+
+        ItemsInventario item = new ItemsInventario();
+        item.setRecurso(cabana);
+        item.setNombre("Leña");
+        item.setCantidadTotal(100);
+        item.setCantidadDisponible(100);
+        item.setEstadoItem(EstadoItem.NUEVO);
+        item.setEsReservable(true);
+        item.setPrecioReserva(new BigDecimal("1000"));
+        entityManager.persist(item);
+
+        // Más recientes que cualquier dato existente para que llenen la primera página
+        LocalDateTime base = LocalDateTime.now().plusYears(50);
+
+        PaqueteReserva paquete = new PaqueteReserva();
+        paquete.setUser(cliente);
+        paquete.setNombrePaquete("Paquete estadísticas");
+        paquete.setFechaCreacion(base);
+        paquete.setFechaInicio(base);
+        paquete.setFechaFin(base.plusDays(RESERVAS));
+        paquete.setEstado(EstadoPaquete.PENDIENTE);
+        paquete.setPrecioTotal(BigDecimal.ZERO);
+        paquete.setDescuento(BigDecimal.ZERO);
+        paquete.setPrecioFinal(BigDecimal.ZERO);
+        entityManager.persist(paquete);
+
+        for (int i = 0; i < RESERVAS; i++) {
+            Reserva reserva = new Reserva();
+            reserva.setUser(cliente);
+            reserva.setRecurso(cabana);
+            reserva.setFechaReserva(base.plusMinutes(i));
+            reserva.setFechaInicio(base.plusDays(i));
+            reserva.setFechaFin(base.plusDays(i + 1));
+            reserva.setTipoReserva(TipoReserva.CABANA_DIA);
+            reserva.setEstado(EstadoReserva.PENDIENTE);
+            reserva.setPrecioBase(new BigDecimal("50000"));
+            reserva.setPrecioItems(new BigDecimal("1000"));
+            reserva.setPrecioTotal(new BigDecimal("51000"));
+            // La mitad dentro del paquete para recorrer también paquete.reservas
+            if (i % 2 == 0) {
+                reserva.setPaquete(paquete);
+            }
+            entityManager.persist(reserva);
+
+            ItemReservado itemReservado = new ItemReservado();
+            itemReservado.setReserva(reserva);
+            itemReservado.setItem(item);
+            itemReservado.setCantidad(1);
+            itemReservado.setPrecioUnitario(new BigDecimal("1000"));
+            itemReservado.setSubtotal(new BigDecimal("1000"));
+            entityManager.persist(itemReservado);
+
+            if (reserva.getPaquete() != null) {
+                reservaEnPaqueteId = reserva.getId();
+            }
+        }
+
+        // Las lecturas deben ir a la base, no al contexto de persistencia de la prueba
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void listadoUsaSentenciasFijas() {
+        List<ReservaResponse> respuesta = contarSentencias(MAX_SENTENCIAS_LISTADO,
+                () -> reservaService.obtenerTodas(0, RESERVAS).getContent().stream()
+                        .map(mapper::toResponse)
+                        .toList());
+
+        assertEquals(RESERVAS, respuesta.size());
+    }
+
+    @Test
+    void detalleUsaSentenciasFijas() {
+        ReservaResponse respuesta = contarSentencias(MAX_SENTENCIAS_DETALLE,
+                () -> mapper.toResponse(reservaService.obtenerDetalle(reservaEnPaqueteId)));
+
+        assertEquals(reservaEnPaqueteId, respuesta.getId());
+    }
+
+    @Test
+    void reservasDelClienteUsanSentenciasFijas() {
+        List<ReservaResponse> respuesta = contarSentencias(MAX_SENTENCIAS_CLIENTE,
+                () -> reservaService.obtenerReservasPorCliente(cliente.getId()).stream()
+                        .map(mapper::toResponse)
+                        .toList());
+
+        assertEquals(RESERVAS, respuesta.size());
+    }
+
+    private <T> T contarSentencias(long maximo, Supplier<T> lectura) {
+        estadisticas.clear();
+        T resultado = lectura.get();
+        long sentencias = estadisticas.getPrepareStatementCount();
+        assertTrue(sentencias <= maximo,
+                "Se ejecutaron " + sentencias + " sentencias, el máximo es " + maximo);
+        return resultado;
+    }
+}
@@ -0,0 +1,296 @@
+package com.bms.reserva_servicio_backend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bms.reserva_servicio_backend.enums.EstadoRecurso;
+import com.bms.reserva_servicio_backend.models.BloqueHorario;
+import com.bms.reserva_servicio_backend.models.ServicioEntretencion;
+import com.bms.reserva_servicio_backend.models.User;
+import com.bms.reserva_servicio_backend.repository.BloqueHorarioRepository;
+import com.bms.reserva_servicio_backend.repository.ReservaRepository;
+import com.bms.reserva_servicio_backend.service.DisponibilidadService;
+import com.bms.reserva_servicio_backend.service.ReservaService;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Contención sobre un único bloque horario de un servicio.
+ *
+ * - 200 usuarios reservan el mismo bloque a la vez por ReservaService: el
+ *   bloqueo por recurso los serializa, así que solo uno reserva y los demás
+ *   ven el bloque ya tomado. La espera del bloqueo se alarga para que un
+ *   timeout no pase por rechazo; si ocurre, la prueba falla.
+ * - Con el bloque reclamado por una transacción abierta, 199 reclamos directos
+ *   (sin el bloqueo por recurso) deben saltar la fila con SKIP LOCKED y fallar
+ *   de inmediato, sin esperar el commit.
+ *
+ * Cada rechazo se clasifica por su mensaje. Registra en el log los intentos
+ * por segundo. Usa la base configurada y confirma los datos (cada intento es
+ * una transacción propia); los borra al terminar.
+ */
+@SpringBootTest(properties = "app.reservas.bloqueo.timeout-ms=120000")
+class ReservaServicioConcurrenciaTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservaServicioConcurrenciaTests.class);
+
+    private static final int RESERVADORES = 200;
+
+    // Rechazos esperados (DisponibilidadService / ReservaService)
+    private static final String NO_DISPONIBLE = "Servicio no disponible en el horario solicitado";
+    private static final String FILA_BLOQUEADA = "El horario solicitado está siendo reservado por otro usuario";
+    // Timeout del bloqueo por recurso (BloqueoRecursoService): no es un rechazo
+    private static final String TIMEOUT_BLOQUEO = "El recurso está siendo reservado por otro usuario, intente nuevamente";
+
+    @Autowired
+    private ReservaService reservaService;
+
+    @Autowired
+    private DisponibilidadService disponibilidadService;
+
+    @Autowired
+    private ReservaRepository reservaRepository;
+
+    @Autowired
+    private BloqueHorarioRepository bloqueHorarioRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaccion;
+    private Long servicioId;
+    private List<Long> usuarioIds;
+    private LocalDate fecha;
+    private LocalTime horaInicio;
+    private LocalTime horaFin;
+
+    @BeforeEach
+    void crearDatos() {
+        transaccion = new TransactionTemplate(transactionManager);
+        fecha = LocalDate.now().plusDays(7);
+        horaInicio = LocalTime.of(10, 0);
+        horaFin = horaInicio.plusHours(1);
+        String sufijo = String.valueOf(System.nanoTime());
+
+        transaccion.executeWithoutResult(status -> {
+            ServicioEntretencion servicio = new ServicioEntretencion();
+            servicio.setNombre("Servicio concurrencia " + sufijo);
+            servicio.setEstado(EstadoRecurso.DISPONIBLE);
+            servicio.setPrecioPorUnidad(new BigDecimal("10000"));
+            servicio.setCapacidadMaxima(4);
+            servicio.setDuracionBloqueMinutos(60);
+            servicio.setRequiereSupervision(false);
+            entityManager.persist(servicio);
+            servicioId = servicio.getId();
+
+            BloqueHorario bloque = new BloqueHorario();
+            bloque.setServicio(servicio);
+            bloque.setFecha(fecha);
+            bloque.setHoraInicio(horaInicio);
+            bloque.setHoraFin(horaFin);
+            bloque.setDisponible(true);
+            entityManager.persist(bloque);
+
+            usuarioIds = new ArrayList<>(RESERVADORES);
+            for (int i = 0; i < RESERVADORES; i++) {
+                User usuario = new User();
+                usuario.setUsername("concurrencia-" + sufijo + "-" + i);
+                usuario.setPassword("x");
+                usuario.setEnabled(true);
+                usuario.setEmail("concurrencia-" + sufijo + "-" + i + "@test.local");
+                usuario.setFechaRegistro(LocalDateTime.now());
+                entityManager.persist(usuario);
+                usuarioIds.add(usuario.getId());
+            }
+        });
+
+        // Sin bloque, reclamarBloquesHorario no tiene nada que reclamar y la prueba no mide nada
+        assertEquals(1, bloqueHorarioRepository.countBloquesTraslapados(servicioId, fecha, horaInicio, horaFin));
+        assertTrue(bloqueDisponible());
+    }
+
+    @AfterEach
+    void borrarDatos() {
+        transaccion.executeWithoutResult(status -> {
+            reservaRepository.deleteAll(reservaRepository.findByRecursoId(servicioId));
+            entityManager.createQuery("DELETE FROM BloqueHorario b WHERE b.servicio.id = :servicioId")
+                    .setParameter("servicioId", servicioId)
+                    .executeUpdate();
+            entityManager.remove(entityManager.find(ServicioEntretencion.class, servicioId));
+            entityManager.createQuery("DELETE FROM User u WHERE u.id IN :ids")
+                    .setParameter("ids", usuarioIds)
+                    .executeUpdate();
+        });
+    }
+
+    @Test
+    void unSoloReservadorObtieneElBloque() throws Exception {
+        Map<String, AtomicInteger> rechazos = new ConcurrentHashMap<>();
+        AtomicInteger exitosas = new AtomicInteger();
+        List<Throwable> errores = new ArrayList<>();
+
+        long nanos = enParalelo(usuarioIds, usuarioId -> {
+            try {
+                reservaService.reservarServicio(servicioId, usuarioId, fecha, horaInicio, 1, null);
+                exitosas.incrementAndGet();
+            } catch (IllegalStateException e) {
+                rechazos.computeIfAbsent(String.valueOf(e.getMessage()), m -> new AtomicInteger()).incrementAndGet();
+            } catch (RuntimeException e) {
+                synchronized (errores) {
+                    errores.add(e);
+                }
+            }
+        });
+
+        logger.info("{} reservadores sobre un bloque: {} ms, {} intentos/s ({} exitosas, rechazos {})",
+                RESERVADORES, TimeUnit.NANOSECONDS.toMillis(nanos),
+                Math.round(RESERVADORES / (nanos / 1e9)), exitosas.get(), rechazos);
+
+        assertTrue(errores.isEmpty(), () -> "Errores inesperados: " + errores);
+        assertFalse(rechazos.containsKey(TIMEOUT_BLOQUEO), () -> "Timeouts del bloqueo por recurso: " + rechazos);
+        assertEquals(1, exitosas.get());
+        // Serializados por el bloqueo por recurso: todos ven el bloque ya reservado
+        assertEquals(Map.of(NO_DISPONIBLE, RESERVADORES - 1), conteos(rechazos));
+        assertEquals(1, reservaRepository.findByRecursoId(servicioId).size());
+        assertFalse(bloqueDisponible());
+    }
+
+    @Test
+    void reclamoConcurrenteSaltaElBloqueTomado() throws Exception {
+        CountDownLatch tomado = new CountDownLatch(1);
+        CountDownLatch soltar = new CountDownLatch(1);
+        ExecutorService dueno = Executors.newSingleThreadExecutor();
+        try {
+            // Reclama el bloque y mantiene la transacción abierta (fila bloqueada)
+            Future<?> reclamo = dueno.submit(() -> transaccion.executeWithoutResult(status -> {
+                disponibilidadService.reclamarBloquesHorario(servicioId, fecha, horaInicio, horaFin);
+                tomado.countDown();
+                try {
+                    soltar.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+            }));
+            assertTrue(tomado.await(1, TimeUnit.MINUTES));
+
+            Map<String, AtomicInteger> rechazos = new ConcurrentHashMap<>();
+            AtomicInteger exitosas = new AtomicInteger();
+            List<Throwable> errores = new ArrayList<>();
+
+            long nanos = enParalelo(usuarioIds.subList(1, RESERVADORES), usuarioId -> {
+                try {
+                    transaccion.executeWithoutResult(status -> disponibilidadService
+                            .reclamarBloquesHorario(servicioId, fecha, horaInicio, horaFin));
+                    exitosas.incrementAndGet();
+                } catch (IllegalStateException e) {
+                    rechazos.computeIfAbsent(String.valueOf(e.getMessage()), m -> new AtomicInteger())
+                            .incrementAndGet();
+                } catch (RuntimeException e) {
+                    synchronized (errores) {
+                        errores.add(e);
+                    }
+                }
+            });
+
+            logger.info("{} reclamos con el bloque tomado: {} ms, {} intentos/s (rechazos {})",
+                    RESERVADORES - 1, TimeUnit.NANOSECONDS.toMillis(nanos),
+                    Math.round((RESERVADORES - 1) / (nanos / 1e9)), rechazos);
+
+            // Nadie esperó el commit del dueño: todos saltaron la fila bloqueada
+            assertTrue(errores.isEmpty(), () -> "Errores inesperados: " + errores);
+            assertEquals(0, exitosas.get());
+            assertEquals(Map.of(FILA_BLOQUEADA, RESERVADORES - 1), conteos(rechazos));
+
+            soltar.countDown();
+            reclamo.get(1, TimeUnit.MINUTES);
+        } finally {
+            soltar.countDown();
+            dueno.shutdownNow();
+        }
+
+        assertFalse(bloqueDisponible());
+        IllegalStateException despues = assertThrows(IllegalStateException.class,
+                () -> transaccion.executeWithoutResult(status -> disponibilidadService
+                        .reclamarBloquesHorario(servicioId, fecha, horaInicio, horaFin)));
+        assertEquals(NO_DISPONIBLE, despues.getMessage());
+    }
+
+    /**
+     * Ejecutar un intento por usuario, todos liberados a la vez
+     *
+     * @return nanosegundos desde la largada hasta el último intento
+     */
+    private long enParalelo(List<Long> usuarios, Consumer<Long> intento) throws Exception {
+        CountDownLatch listos = new CountDownLatch(usuarios.size());
+        CountDownLatch largada = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(usuarios.size());
+        List<Future<?>> intentos = new ArrayList<>(usuarios.size());
+        try {
+            for (Long usuarioId : usuarios) {
+                intentos.add(executor.submit(() -> {
+                    listos.countDown();
+                    largada.await();
+                    intento.accept(usuarioId);
+                    return null;
+                }));
+            }
+
+            listos.await();
+            long inicio = System.nanoTime();
+            largada.countDown();
+            for (Future<?> futuro : intentos) {
+                futuro.get(2, TimeUnit.MINUTES);
+            }
+            return System.nanoTime() - inicio;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private boolean bloqueDisponible() {
+        return Boolean.TRUE.equals(transaccion.execute(status -> entityManager.createQuery(
+                "SELECT b.disponible FROM BloqueHorario b WHERE b.servicio.id = :servicioId", Boolean.class)
+                .setParameter("servicioId", servicioId)
+                .getSingleResult()));
+    }
+
+    private static Map<String, Integer> conteos(Map<String, AtomicInteger> rechazos) {
+        Map<String, Integer> conteos = new HashMap<>();
+        rechazos.forEach((mensaje, cantidad) -> conteos.put(mensaje, cantidad.get()));
+        return conteos;
+    }
+}